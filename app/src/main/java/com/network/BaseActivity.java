@@ -2,47 +2,59 @@ package com.network;
 
 import android.os.Bundle;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
-import com.network.internet.NetworkStateChangeListener;
-import com.network.internet.NetworkStateChangeReceiver;
-import com.network.internet.RegisterAndUnregisterNetworkReceiver;
+import com.network.internet.ConnectivityEvent;
+import com.network.internet.ConnectivityEventBus;
+import com.network.internet.ConnectivityEventListener;
+import com.network.internet.ConnectivityExecutors;
+import com.network.internet.ConnectivityMonitor;
 
 public abstract class BaseActivity extends AppCompatActivity {
 
-    private RegisterAndUnregisterNetworkReceiver registerAndUnregisterNetworkReceiver;
+    private ConnectivityMonitor connectivityMonitor;
+    private ConnectivityEventListener connectivityEventListener;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        registerAndUnregisterNetworkReceiver= new RegisterAndUnregisterNetworkReceiver(BaseActivity.this);
+        connectivityMonitor = ConnectivityMonitor.getInstance(BaseActivity.this);
         checkInternetConnection();
     }
 
+    /*
+     * Only the visible activity shows connectivity toasts, the listener is subscribed between onStart and onStop.
+     */
     private void checkInternetConnection() {
-        NetworkStateChangeReceiver.setNetworkStateChangeListener(new NetworkStateChangeListener() {
+        connectivityEventListener = new ConnectivityEventListener() {
             @Override
-            public void networkAvailable() {
-                Toast.makeText(getApplicationContext(), "Now you are connected to Internet!", Toast.LENGTH_LONG).show();
+            public void onConnectivityEvent(@NonNull ConnectivityEvent event) {
+                if (event.isAvailable()) {
+                    Toast.makeText(getApplicationContext(), "Now you are connected to Internet!", Toast.LENGTH_LONG).show();
+                } else {
+                    Toast.makeText(getApplicationContext(), "You are not connected to Internet!", Toast.LENGTH_LONG).show();
+                }
             }
-
-            @Override
-            public void networkUnavailable() {
-                Toast.makeText(getApplicationContext(), "You are not connected to Internet!", Toast.LENGTH_LONG).show();
-            }
-        });
+        };
     }
 
+    /*
+     * onStart of the next screen runs before onStop of the current one, so the monitor keeps its
+     * registration across transitions, rotation is covered by its idle grace period.
+     */
     @Override
-    protected void onResume()
+    protected void onStart()
     {
-        registerAndUnregisterNetworkReceiver.registerNetworkReceiver(BaseActivity.this);
-        super.onResume();
+        super.onStart();
+        ConnectivityEventBus.subscribe(connectivityEventListener, ConnectivityExecutors.mainThread());
+        connectivityMonitor.acquire();
     }
     @Override
-    protected void onPause()
+    protected void onStop()
     {
-        registerAndUnregisterNetworkReceiver.unregisterNetworkReceiver(BaseActivity.this);
-        super.onPause();
+        connectivityMonitor.release();
+        ConnectivityEventBus.unsubscribe(connectivityEventListener);
+        super.onStop();
     }
 }
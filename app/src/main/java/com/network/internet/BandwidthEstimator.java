@@ -0,0 +1,224 @@
+package com.network.internet;
+
+import android.net.TrafficStats;
+import android.os.Handler;
+import android.os.SystemClock;
+import com.network.util.LogcatUtil;
+
+/**
+ * Passive throughput estimate of the default network, measured from {@link TrafficStats} byte counters.
+ *
+ * <p>While {@link ConnectivityMonitor} holds the network callback the counters are read on the monitor thread,
+ * every second while traffic flows and every {@link #IDLE_SAMPLE_INTERVAL_MILLIS} when the link is idle. Only
+ * intervals during which the link stayed busy are used: an interval that moved at least
+ * {@link #MIN_SAMPLE_BYTES} right after another one that did. The first interval of a transfer mostly measures
+ * the idle time before it. Each usable interval goes into an exponentially weighted moving average, and the
+ * estimate starts over whenever the default network changes.</p>
+ *
+ * <p>Traffic that does not saturate the link still underestimates it, so the estimate is a lower bound that
+ * gets better with bulk transfers: a high value shows the link is fast, a low one does not show it is slow.
+ * {@link #getConfidence()} grows with the number of usable samples.</p>
+ */
+public final class BandwidthEstimator {
+
+    private static final String TAG = BandwidthEstimator.class.getSimpleName();
+
+    public static final long ACTIVE_SAMPLE_INTERVAL_MILLIS = 1000;
+    public static final long IDLE_SAMPLE_INTERVAL_MILLIS   = 5000;
+    public static final long MIN_SAMPLE_BYTES              = 16 * 1024;
+    /* at or above this downstream rate a network counts as fast, about where 3G used to be */
+    public static final long FAST_DOWNSTREAM_KBPS          = 550;
+    public static final float CONFIDENT                    = 0.5f;
+
+    public static final long UNKNOWN = -1;
+
+    /* weight of the newest sample */
+    private static final double ALPHA = 0.3;
+    /* samples needed for a confidence of 1 */
+    private static final int FULL_CONFIDENCE_SAMPLES = 8;
+
+    private static volatile BandwidthEstimator instance;
+
+    private Handler handler;
+    private boolean running;
+    private boolean supported = true;
+
+    private long lastSampleMillis;
+    private long lastRxBytes;
+    private long lastTxBytes;
+    /* the previous interval moved at least MIN_SAMPLE_BYTES that way */
+    private boolean downstreamBusy;
+    private boolean upstreamBusy;
+
+    private volatile long downstreamKbps = UNKNOWN;
+    private volatile long upstreamKbps   = UNKNOWN;
+    private volatile int downstreamSamples;
+    private volatile int upstreamSamples;
+    private double downstreamAverage;
+    private double upstreamAverage;
+
+    private final Runnable sample = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+        }
+    };
+
+    public static BandwidthEstimator getInstance() {
+        if (instance == null) {
+            synchronized (BandwidthEstimator.class) {
+                if (instance == null) {
+                    instance = new BandwidthEstimator();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private BandwidthEstimator() {
+    }
+
+    /**
+     * Start sampling, called by {@link ConnectivityMonitor} when it registers the network callback
+     */
+    synchronized void start() {
+        if (running || !supported) {
+            return;
+        }
+        running = true;
+        restartWindow();
+        getHandler().postDelayed(sample, ACTIVE_SAMPLE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Stop sampling, the current estimate is kept
+     */
+    synchronized void stop() {
+        if (running) {
+            running = false;
+            getHandler().removeCallbacks(sample);
+        }
+    }
+
+    /**
+     * Forget the estimate, called when the default network changes
+     */
+    synchronized void onDefaultNetworkChanged() {
+        downstreamKbps    = UNKNOWN;
+        upstreamKbps      = UNKNOWN;
+        downstreamSamples = 0;
+        upstreamSamples   = 0;
+        downstreamAverage = 0;
+        upstreamAverage   = 0;
+        restartWindow();
+    }
+
+    /**
+     * Estimated downstream throughput of the current default network
+     *
+     * @return kilobits per second, {@link #UNKNOWN} until a usable sample was taken
+     */
+    public long getEstimatedDownstreamKbps() {
+        return downstreamKbps;
+    }
+
+    /**
+     * Estimated upstream throughput of the current default network
+     *
+     * @return kilobits per second, {@link #UNKNOWN} until a usable sample was taken
+     */
+    public long getEstimatedUpstreamKbps() {
+        return upstreamKbps;
+    }
+
+    /**
+     * How much the downstream estimate can be trusted
+     *
+     * @return 0 without samples up to 1 after 8 usable samples
+     */
+    public float getConfidence() {
+        return Math.min(1f, downstreamSamples / (float) FULL_CONFIDENCE_SAMPLES);
+    }
+
+    /**
+     * Whether the measured downstream throughput is fast, only meaningful when {@link #getConfidence()}
+     * reaches {@link #CONFIDENT}. {@code false} does not mean the link is slow, only that the app did not
+     * move enough to tell.
+     *
+     * @return {@code true}: at least {@link #FAST_DOWNSTREAM_KBPS}
+     */
+    public boolean isFast() {
+        return downstreamKbps >= FAST_DOWNSTREAM_KBPS;
+    }
+
+    private synchronized void sample() {
+        if (!running) {
+            return;
+        }
+        long nowMillis = SystemClock.elapsedRealtime();
+        long rxBytes = TrafficStats.getTotalRxBytes();
+        long txBytes = TrafficStats.getTotalTxBytes();
+        if (rxBytes == TrafficStats.UNSUPPORTED || txBytes == TrafficStats.UNSUPPORTED) {
+            LogcatUtil.warningMessage(TAG, "TrafficStats not supported, no bandwidth estimate");
+            supported = false;
+            running = false;
+            return;
+        }
+
+        long elapsedMillis = nowMillis - lastSampleMillis;
+        long rxDelta = rxBytes - lastRxBytes;
+        long txDelta = txBytes - lastTxBytes;
+        boolean rxBusy = false;
+        boolean txBusy = false;
+
+        /* counters go back to 0 when an interface goes down, such an interval is skipped */
+        if (elapsedMillis > 0 && rxDelta >= 0 && txDelta >= 0) {
+            rxBusy = rxDelta >= MIN_SAMPLE_BYTES;
+            txBusy = txDelta >= MIN_SAMPLE_BYTES;
+            /* a late run of the handler stretches the interval with time the link may have been idle */
+            boolean onTime = elapsedMillis <= 2 * ACTIVE_SAMPLE_INTERVAL_MILLIS;
+            if (rxBusy && downstreamBusy && onTime) {
+                downstreamAverage = average(downstreamAverage, downstreamSamples, kbps(rxDelta, elapsedMillis));
+                downstreamSamples++;
+                downstreamKbps = Math.round(downstreamAverage);
+            }
+            if (txBusy && upstreamBusy && onTime) {
+                upstreamAverage = average(upstreamAverage, upstreamSamples, kbps(txDelta, elapsedMillis));
+                upstreamSamples++;
+                upstreamKbps = Math.round(upstreamAverage);
+            }
+        }
+        boolean active = rxBusy || txBusy;
+        downstreamBusy = rxBusy;
+        upstreamBusy   = txBusy;
+
+        lastSampleMillis = nowMillis;
+        lastRxBytes      = rxBytes;
+        lastTxBytes      = txBytes;
+        getHandler().postDelayed(sample, active ? ACTIVE_SAMPLE_INTERVAL_MILLIS : IDLE_SAMPLE_INTERVAL_MILLIS);
+    }
+
+    private void restartWindow() {
+        lastSampleMillis = SystemClock.elapsedRealtime();
+        lastRxBytes      = TrafficStats.getTotalRxBytes();
+        lastTxBytes      = TrafficStats.getTotalTxBytes();
+        downstreamBusy   = false;
+        upstreamBusy     = false;
+    }
+
+    private static double kbps(long bytes, long millis) {
+        /* bits per millisecond are kilobits per second */
+        return bytes * 8d / millis;
+    }
+
+    private static double average(double average, int samples, double value) {
+        return samples == 0 ? value : average + ALPHA * (value - average);
+    }
+
+    private Handler getHandler() {
+        if (handler == null) {
+            handler = ConnectivityExecutors.monitorHandler();
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,73 @@
+package com.network.internet;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiManager;
+import android.telephony.TelephonyManager;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * The platform queries behind {@link NetworkConnectivityUtil}, one implementation per API tier.
+ *
+ * <p>{@link ConnectivityBackends} picks the implementation once, so the SDK checks and the
+ * {@code getSystemService} lookups are paid once per process instead of on every call.</p>
+ */
+public interface ConnectivityBackend {
+
+    /* network types, the values NetworkConnectivityUtil#getNetworkTypeNew returns */
+    int TYPE_NONE   = 0;
+    int TYPE_MOBILE = 1;
+    int TYPE_WIFI   = 2;
+    int TYPE_VPN    = 3;
+
+    /* bits of getConnectedTypes() */
+    int FLAG_MOBILE = 1 << TYPE_MOBILE;
+    int FLAG_WIFI   = 1 << TYPE_WIFI;
+
+    /**
+     * Name for logs and bug reports
+     *
+     * @return e.g. "marshmallow"
+     */
+    @NonNull
+    String getName();
+
+    /**
+     * NetworkInfo of the default network
+     *
+     * @return NetworkInfo, {@code null} when there is no default network
+     */
+    @Nullable
+    NetworkInfo getActiveNetworkInfo();
+
+    /**
+     * Type of the default network
+     *
+     * @return {@link #TYPE_NONE}, {@link #TYPE_MOBILE}, {@link #TYPE_WIFI} or {@link #TYPE_VPN}
+     */
+    int getActiveNetworkType();
+
+    /**
+     * Transports that are connected, looking at every network the tier can see
+     *
+     * @return {@link #FLAG_MOBILE} and {@link #FLAG_WIFI} bits
+     */
+    int getConnectedTypes();
+
+    /**
+     * Whether a network reaches the internet, validated by the framework from Marshmallow, connected below
+     *
+     * @return {@code true}: Yes <br>{@code false}: no
+     */
+    boolean hasValidatedNetwork();
+
+    @Nullable
+    ConnectivityManager getConnectivityManager();
+
+    @Nullable
+    TelephonyManager getTelephonyManager();
+
+    @Nullable
+    WifiManager getWifiManager();
+}
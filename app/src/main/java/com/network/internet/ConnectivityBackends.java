@@ -0,0 +1,70 @@
+package com.network.internet;
+
+import android.content.Context;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.network.util.LogcatUtil;
+
+/**
+ * Selects the {@link ConnectivityBackend} of this process.
+ *
+ * <p>The API tier is checked once, on the first call, and the chosen backend keeps its system services
+ * for the life of the process. Only one implementation is ever loaded, so calls through the interface
+ * stay monomorphic.</p>
+ */
+public final class ConnectivityBackends {
+
+    private static final String TAG = ConnectivityBackends.class.getSimpleName();
+
+    private static volatile ConnectivityBackend backend;
+
+    /**
+     * Backend of this process, created on the first call
+     *
+     * @param context - Context, only its application context is kept
+     * @return ConnectivityBackend
+     */
+    @NonNull
+    public static ConnectivityBackend get(@NonNull Context context) {
+        ConnectivityBackend result = backend;
+        if (result == null) {
+            synchronized (ConnectivityBackends.class) {
+                result = backend;
+                if (result == null) {
+                    result = create(context.getApplicationContext() != null ? context.getApplicationContext() : context);
+                    backend = result;
+                    LogcatUtil.informationMessage(TAG, "Using %s", result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replace the backend, e.g. with an {@link InMemoryConnectivityBackend}
+     *
+     * @param replacement - backend to use, {@code null} to select again on the next call
+     */
+    @VisibleForTesting
+    public static void install(@Nullable ConnectivityBackend replacement) {
+        synchronized (ConnectivityBackends.class) {
+            backend = replacement;
+        }
+    }
+
+    private static ConnectivityBackend create(@NonNull Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return new MarshmallowConnectivityBackend(context);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return new LollipopConnectivityBackend(context);
+        }
+        return new LegacyConnectivityBackend(context);
+    }
+
+    private ConnectivityBackends() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
@@ -0,0 +1,91 @@
+package com.network.internet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * One connectivity change delivered by {@link ConnectivityEventBus}.
+ */
+public final class ConnectivityEvent {
+
+    private final long sequence;
+    private final ConnectivityStateMachine.State state;
+    private final ConnectivitySnapshot snapshot;
+    private final int absorbedCallbacks;
+    private final long timestampNanos;
+
+    ConnectivityEvent(long sequence, @NonNull ConnectivityStateMachine.State state, @Nullable ConnectivitySnapshot snapshot,
+                      int absorbedCallbacks, long timestampNanos) {
+        this.sequence           = sequence;
+        this.state              = state;
+        this.snapshot           = snapshot;
+        this.absorbedCallbacks  = absorbedCallbacks;
+        this.timestampNanos     = timestampNanos;
+    }
+
+    /**
+     * Monotonically increasing, starts at 1. A gap means the subscriber was not registered for some events.
+     *
+     * @return sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Same meaning as {@link NetworkStateChangeListener#networkAvailable()} / {@link NetworkStateChangeListener#networkUnavailable()}
+     *
+     * @return {@code true}: network available <br>{@code false}: network unavailable
+     */
+    public boolean isAvailable() {
+        return state.isAvailable();
+    }
+
+    /**
+     * Settled state that caused this event
+     *
+     * @return State
+     */
+    @NonNull
+    public ConnectivityStateMachine.State getState() {
+        return state;
+    }
+
+    /**
+     * Number of raw callbacks coalesced into this event, 1 when nothing was debounced
+     *
+     * @return raw callback count
+     */
+    public int getAbsorbedCallbacks() {
+        return absorbedCallbacks;
+    }
+
+    /**
+     * Full connectivity state at the time of the event
+     *
+     * @return ConnectivitySnapshot, {@code null} below Lollipop where no NetworkCallback keeps one
+     */
+    @Nullable
+    public ConnectivitySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * {@link System#nanoTime()} when the event was published, to measure delivery latency
+     *
+     * @return timestamp in nanoseconds
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectivityEvent{" +
+                "sequence=" + sequence +
+                ", state=" + state +
+                ", absorbedCallbacks=" + absorbedCallbacks +
+                ", snapshot=" + snapshot +
+                '}';
+    }
+}
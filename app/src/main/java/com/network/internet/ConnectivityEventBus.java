@@ -0,0 +1,163 @@
+package com.network.internet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.network.util.LogcatUtil;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process delivery of connectivity changes to any number of subscribers.
+ *
+ * <p>Replaces the NETWORK_AVAILABILITY_ACTION broadcast, which went through ActivityManager just to
+ * reach our own receiver. Subscribers are kept in a copy-on-write array: subscribe and unsubscribe copy it
+ * under a lock, publish reads the current array without locking. Subscribers called on the publishing thread
+ * cost nothing but the event, the others one Runnable each.</p>
+ */
+public final class ConnectivityEventBus {
+
+    private static final String TAG = ConnectivityEventBus.class.getSimpleName();
+    private static final Subscriber[] NO_SUBSCRIBERS = new Subscriber[0];
+
+    private static final Object lock = new Object();
+    private static volatile Subscriber[] subscribers = NO_SUBSCRIBERS;
+    private static final AtomicLong sequence = new AtomicLong();
+    private static volatile ConnectivityEvent lastEvent;
+
+    /**
+     * Add a subscriber called on the publishing thread, which is the monitor thread of
+     * {@link ConnectivityExecutors}. Adding the same one twice has no effect.
+     *
+     * @param listener - ConnectivityEventListener, must return quickly
+     */
+    public static void subscribe(@NonNull ConnectivityEventListener listener) {
+        subscribe(listener, null);
+    }
+
+    /**
+     * Add a subscriber called through an executor, e.g. {@link ConnectivityExecutors#mainThread()}.
+     * Subscribing a listener again only changes its executor.
+     *
+     * @param listener - ConnectivityEventListener
+     * @param executor - Executor the listener is called on, {@code null} for the publishing thread
+     */
+    public static void subscribe(@NonNull ConnectivityEventListener listener, @Nullable Executor executor) {
+        synchronized (lock) {
+            Subscriber[] current = subscribers;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].listener == listener) {
+                    if (current[i].executor != executor) {
+                        Subscriber[] updated = current.clone();
+                        updated[i] = new Subscriber(listener, executor);
+                        subscribers = updated;
+                    }
+                    return;
+                }
+            }
+            Subscriber[] updated = new Subscriber[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = new Subscriber(listener, executor);
+            subscribers = updated;
+        }
+    }
+
+    /**
+     * Remove a subscriber, an event already handed to its executor may still be delivered
+     *
+     * @param listener - ConnectivityEventListener
+     */
+    public static void unsubscribe(@NonNull ConnectivityEventListener listener) {
+        synchronized (lock) {
+            Subscriber[] current = subscribers;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].listener == listener) {
+                    if (current.length == 1) {
+                        subscribers = NO_SUBSCRIBERS;
+                    } else {
+                        Subscriber[] updated = new Subscriber[current.length - 1];
+                        System.arraycopy(current, 0, updated, 0, i);
+                        System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                        subscribers = updated;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Deliver a change to every subscriber, called by {@link ConnectivityStateMachine}
+     *
+     * @param state             - settled state
+     * @param snapshot          - current ConnectivitySnapshot, may be null
+     * @param absorbedCallbacks - raw callbacks coalesced into this event
+     * @return the published event
+     */
+    static ConnectivityEvent publish(@NonNull ConnectivityStateMachine.State state, @Nullable ConnectivitySnapshot snapshot,
+                                     int absorbedCallbacks) {
+        ConnectivityEvent event = new ConnectivityEvent(sequence.incrementAndGet(), state, snapshot, absorbedCallbacks, System.nanoTime());
+        lastEvent = event;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.executor == null) {
+                subscriber.deliver(event);
+            } else {
+                try {
+                    subscriber.executor.execute(subscriber.deliveryOf(event));
+                } catch (RejectedExecutionException e) {
+                    LogcatUtil.errorMessage(TAG, "Subscriber executor rejected the event", e);
+                }
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Last published event
+     *
+     * @return ConnectivityEvent, {@code null} if nothing was published yet
+     */
+    @Nullable
+    public static ConnectivityEvent getLastEvent() {
+        return lastEvent;
+    }
+
+    public static int getSubscriberCount() {
+        return subscribers.length;
+    }
+
+    private static final class Subscriber {
+
+        final ConnectivityEventListener listener;
+        final Executor executor;
+
+        Subscriber(@NonNull ConnectivityEventListener listener, @Nullable Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        void deliver(@NonNull ConnectivityEvent event) {
+            ConnectivityMetrics.EVENT_DELIVERY.recordMicrosSince(event.getTimestampNanos());
+            try {
+                listener.onConnectivityEvent(event);
+            } catch (RuntimeException e) {
+                /* one broken subscriber must not keep the others from being told */
+                LogcatUtil.errorMessage(TAG, "Subscriber failed", e);
+            }
+        }
+
+        Runnable deliveryOf(@NonNull final ConnectivityEvent event) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    deliver(event);
+                }
+            };
+        }
+    }
+
+    private ConnectivityEventBus() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
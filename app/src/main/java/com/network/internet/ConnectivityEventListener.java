@@ -0,0 +1,12 @@
+package com.network.internet;
+
+import androidx.annotation.NonNull;
+
+public interface ConnectivityEventListener {
+    /**
+     * Called for every event published on {@link ConnectivityEventBus}, on the thread that published it
+     *
+     * @param event - ConnectivityEvent
+     */
+    void onConnectivityEvent(@NonNull ConnectivityEvent event);
+}
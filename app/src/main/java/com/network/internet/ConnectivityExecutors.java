@@ -0,0 +1,97 @@
+package com.network.internet;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import androidx.annotation.NonNull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Threads used by the connectivity classes.
+ *
+ * <p>Network callbacks, the settle timer of {@link ConnectivityStateMachine} and the grace timer of
+ * {@link ConnectivityMonitor} all run on one background {@link HandlerThread}, the monitor thread, so
+ * neither the framework's ConnectivityThread nor the main thread pays for them. Subscribers of
+ * {@link ConnectivityEventBus} pick where they are called with one of the executors below.</p>
+ */
+public final class ConnectivityExecutors {
+
+    private static final String MONITOR_THREAD_NAME = "ConnectivityMonitor";
+
+    private static volatile Handler monitorHandler;
+    private static volatile Executor mainThreadExecutor;
+    private static volatile Executor monitorThreadExecutor;
+
+    /**
+     * Handler of the monitor thread, the thread is started on first use and lives as long as the process
+     *
+     * @return Handler
+     */
+    @NonNull
+    public static Handler monitorHandler() {
+        if (monitorHandler == null) {
+            synchronized (ConnectivityExecutors.class) {
+                if (monitorHandler == null) {
+                    HandlerThread thread = new HandlerThread(MONITOR_THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+                    thread.start();
+                    monitorHandler = new Handler(thread.getLooper());
+                }
+            }
+        }
+        return monitorHandler;
+    }
+
+    /**
+     * Executor running on the main thread, for subscribers that touch views
+     *
+     * @return Executor
+     */
+    @NonNull
+    public static Executor mainThread() {
+        if (mainThreadExecutor == null) {
+            mainThreadExecutor = new HandlerExecutor(new Handler(Looper.getMainLooper()));
+        }
+        return mainThreadExecutor;
+    }
+
+    /**
+     * Executor running on the monitor thread, for subscribers doing more than a field update
+     *
+     * @return Executor
+     */
+    @NonNull
+    public static Executor monitorThread() {
+        if (monitorThreadExecutor == null) {
+            monitorThreadExecutor = new HandlerExecutor(monitorHandler());
+        }
+        return monitorThreadExecutor;
+    }
+
+    /**
+     * Runs the task inline when already on the Handler's thread, otherwise posts it
+     */
+    private static final class HandlerExecutor implements Executor {
+
+        private final Handler handler;
+
+        HandlerExecutor(@NonNull Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            if (Looper.myLooper() == handler.getLooper()) {
+                command.run();
+            } else if (!handler.post(command)) {
+                throw new RejectedExecutionException(handler + " is shutting down");
+            }
+        }
+    }
+
+    private ConnectivityExecutors() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
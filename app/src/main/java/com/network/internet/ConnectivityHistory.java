@@ -0,0 +1,593 @@
+package com.network.internet;
+
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import com.network.util.LogcatUtil;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Always-on history of the raw connectivity callbacks, to tell afterwards what the device saw.
+ *
+ * <p>The last {@link #CAPACITY} callbacks are kept in a ring of primitive longs, {@link #RECORD_WORDS} per
+ * record: wall clock time, callback type with transports and an extra value, network id, capability bits and
+ * the link bandwidth. Recording copies those into the ring under a lock and allocates nothing.</p>
+ *
+ * <p>Once {@link #enablePersistence(File)} is called the records are appended to a binary file at most every
+ * {@link #FLUSH_INTERVAL_MILLIS}, on a background thread. The file is rotated at {@link #MAX_FILE_BYTES} and
+ * {@link #MAX_ROTATED_FILES} rotated files are kept, {@link #getFiles()} lists them for export and
+ * {@link #decode(File)} reads one back. Callbacks that were overwritten in the ring before a flush reached
+ * them show up in the file as a single {@link #TYPE_DROPPED} record.</p>
+ */
+public final class ConnectivityHistory {
+
+    private static final String TAG = ConnectivityHistory.class.getSimpleName();
+
+    public static final int CAPACITY                = 1024;
+    public static final long FLUSH_INTERVAL_MILLIS  = 30 * 1000;
+    public static final long MAX_FILE_BYTES         = 256 * 1024;
+    public static final int MAX_ROTATED_FILES       = 4;
+
+    public static final int TYPE_AVAILABLE              = 1;
+    public static final int TYPE_LOSING                 = 2;
+    public static final int TYPE_LOST                   = 3;
+    public static final int TYPE_UNAVAILABLE            = 4;
+    public static final int TYPE_CAPABILITIES_CHANGED   = 5;
+    public static final int TYPE_LINK_PROPERTIES_CHANGED = 6;
+    public static final int TYPE_BLOCKED_STATUS_CHANGED = 7;
+    /* CONNECTIVITY_ACTION broadcast, below Lollipop */
+    public static final int TYPE_BROADCAST              = 8;
+    /* records lost before they were flushed, the extra value is their count */
+    public static final int TYPE_DROPPED                = 9;
+
+    static final int RECORD_WORDS = 5;
+
+    /* file format: magic, version, then RECORD_WORDS big-endian longs per record */
+    private static final int MAGIC          = 0x43484953; // "CHIS"
+    private static final int VERSION        = 1;
+    private static final int FILE_HEADER    = 8;
+    private static final int RECORD_BYTES   = RECORD_WORDS * 8;
+
+    private static final String CURRENT_FILE  = "connectivity-history.bin";
+    private static final String ROTATED_PREFIX = "connectivity-history-";
+    private static final String ROTATED_SUFFIX = ".bin";
+
+    /* transports and capabilities are read bit by bit, NetworkCapabilities has no public mask getter */
+    private static final int MAX_TRANSPORT  = 23;
+    private static final int MAX_CAPABILITY = 63;
+
+    private static volatile ConnectivityHistory instance;
+
+    private final Object lock = new Object();
+    private final long[] ring = new long[CAPACITY * RECORD_WORDS];
+    /* total records ever recorded and flushed, the ring slot of record n is n % CAPACITY */
+    private long recorded;
+    private long flushed;
+    private boolean flushScheduled;
+    private File directory;
+
+    /* only touched by flush(), under flushLock */
+    private final Object flushLock = new Object();
+    private final long[] pending = new long[CAPACITY * RECORD_WORDS];
+    private final ByteBuffer buffer = ByteBuffer.allocate((CAPACITY + 1) * RECORD_BYTES);
+
+    private ScheduledThreadPoolExecutor executor;
+
+    private final Runnable scheduledFlush = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (lock) {
+                flushScheduled = false;
+            }
+            flush();
+        }
+    };
+
+    public static ConnectivityHistory getInstance() {
+        if (instance == null) {
+            synchronized (ConnectivityHistory.class) {
+                if (instance == null) {
+                    instance = new ConnectivityHistory();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ConnectivityHistory() {
+    }
+
+    /**
+     * Record a network callback
+     *
+     * @param type                - one of the TYPE_ constants
+     * @param network             - Network the callback is about, {@code null} for onUnavailable()
+     * @param networkCapabilities - capabilities if the callback has them, {@code null} otherwise
+     * @param extra               - callback specific value, e.g. maxMsToLive of onLosing()
+     */
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    void record(int type, @Nullable Network network, @Nullable NetworkCapabilities networkCapabilities, int extra) {
+        int transports = 0;
+        long capabilities = 0;
+        int downstreamKbps = 0;
+        int upstreamKbps = 0;
+        if (networkCapabilities != null) {
+            for (int transport = 0; transport <= MAX_TRANSPORT; transport++) {
+                if (networkCapabilities.hasTransport(transport)) {
+                    transports |= 1 << transport;
+                }
+            }
+            for (int capability = 0; capability <= MAX_CAPABILITY; capability++) {
+                if (networkCapabilities.hasCapability(capability)) {
+                    capabilities |= 1L << capability;
+                }
+            }
+            downstreamKbps = networkCapabilities.getLinkDownstreamBandwidthKbps();
+            upstreamKbps = networkCapabilities.getLinkUpstreamBandwidthKbps();
+        }
+        record(type, networkId(network), transports, capabilities, downstreamKbps, upstreamKbps, extra);
+    }
+
+    /**
+     * Record a connectivity change with its fields already packed
+     *
+     * @param type           - one of the TYPE_ constants
+     * @param networkId      - network handle, 0 when there is no network
+     * @param transports     - bit n set for transport n
+     * @param capabilities   - bit n set for capability n
+     * @param downstreamKbps - link downstream bandwidth
+     * @param upstreamKbps   - link upstream bandwidth
+     * @param extra          - callback specific value
+     */
+    void record(int type, long networkId, int transports, long capabilities, int downstreamKbps, int upstreamKbps, int extra) {
+        long now = System.currentTimeMillis();
+        boolean schedule;
+        synchronized (lock) {
+            int offset = (int) (recorded % CAPACITY) * RECORD_WORDS;
+            ring[offset]     = now;
+            ring[offset + 1] = (long) type << 56 | (transports & 0xFFFFFFL) << 32 | (extra & 0xFFFFFFFFL);
+            ring[offset + 2] = networkId;
+            ring[offset + 3] = capabilities;
+            ring[offset + 4] = (long) downstreamKbps << 32 | (upstreamKbps & 0xFFFFFFFFL);
+            recorded++;
+            schedule = directory != null && !flushScheduled;
+            if (schedule) {
+                flushScheduled = true;
+            }
+        }
+        if (schedule) {
+            getExecutor().schedule(scheduledFlush, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Start writing the history to files in a directory, records still in the ring are written too
+     *
+     * @param directory - directory of the history files, created if needed
+     */
+    public void enablePersistence(@NonNull File directory) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LogcatUtil.warningMessage(TAG, "Cannot create " + directory);
+            return;
+        }
+        synchronized (lock) {
+            this.directory = directory;
+            if (flushed < recorded - CAPACITY) {
+                flushed = recorded - CAPACITY;
+            }
+        }
+        getExecutor().execute(scheduledFlush);
+    }
+
+    /**
+     * Stop writing files, after flushing what was recorded so far. The files are kept.
+     */
+    public void disablePersistence() {
+        flush();
+        synchronized (lock) {
+            directory = null;
+        }
+    }
+
+    /**
+     * Write the records not written yet, on the calling thread
+     *
+     * @return {@code true} if the file is up to date, also when persistence is off and nothing was written
+     */
+    public boolean flush() {
+        synchronized (flushLock) {
+            File directory;
+            long from;
+            long to;
+            synchronized (lock) {
+                directory = this.directory;
+                if (directory == null || flushed == recorded) {
+                    return true;
+                }
+                from = Math.max(flushed, recorded - CAPACITY);
+                to = recorded;
+                for (long n = from; n < to; n++) {
+                    System.arraycopy(ring, (int) (n % CAPACITY) * RECORD_WORDS, pending, (int) (n - from) * RECORD_WORDS, RECORD_WORDS);
+                }
+            }
+            long dropped = from - flushed;
+
+            buffer.clear();
+            if (dropped > 0) {
+                buffer.putLong(pending[0]);
+                buffer.putLong((long) TYPE_DROPPED << 56 | (Math.min(dropped, Integer.MAX_VALUE) & 0xFFFFFFFFL));
+                buffer.putLong(0).putLong(0).putLong(0);
+            }
+            for (int i = 0; i < (to - from) * RECORD_WORDS; i++) {
+                buffer.putLong(pending[i]);
+            }
+            buffer.flip();
+
+            try {
+                write(directory);
+            } catch (IOException e) {
+                LogcatUtil.warningMessage(TAG, "Flush failed", e);
+                return false;
+            }
+            synchronized (lock) {
+                flushed = to;
+            }
+            return true;
+        }
+    }
+
+    private void write(@NonNull File directory) throws IOException {
+        File file = new File(directory, CURRENT_FILE);
+        if (file.length() + buffer.remaining() > MAX_FILE_BYTES) {
+            rotate(directory);
+        }
+        boolean created = !file.exists() || file.length() == 0;
+        FileOutputStream outputStream = new FileOutputStream(file, true);
+        try {
+            FileChannel channel = outputStream.getChannel();
+            if (created) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                channel.write(header);
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Close the current file so it can be exported, the next flush starts a new one
+     *
+     * @return the rotated file, {@code null} if there was nothing to rotate
+     */
+    @Nullable
+    public File rotate() {
+        synchronized (flushLock) {
+            File directory;
+            synchronized (lock) {
+                directory = this.directory;
+            }
+            return directory != null ? rotate(directory) : null;
+        }
+    }
+
+    @Nullable
+    private File rotate(@NonNull File directory) {
+        File file = new File(directory, CURRENT_FILE);
+        if (file.length() <= FILE_HEADER) {
+            return null;
+        }
+        File rotated = new File(directory, ROTATED_PREFIX + System.currentTimeMillis() + ROTATED_SUFFIX);
+        if (!file.renameTo(rotated)) {
+            LogcatUtil.warningMessage(TAG, "Cannot rotate " + file);
+            return null;
+        }
+        List<File> files = rotatedFiles(directory);
+        for (int i = 0; i < files.size() - MAX_ROTATED_FILES; i++) {
+            files.get(i).delete();
+        }
+        return rotated;
+    }
+
+    /**
+     * History files for export, oldest first, the current file last. Call {@link #flush()} first to include
+     * the latest records.
+     *
+     * @return files, empty when persistence is off
+     */
+    @NonNull
+    public List<File> getFiles() {
+        File directory;
+        synchronized (lock) {
+            directory = this.directory;
+        }
+        if (directory == null) {
+            return Collections.emptyList();
+        }
+        synchronized (flushLock) {
+            List<File> files = rotatedFiles(directory);
+            File current = new File(directory, CURRENT_FILE);
+            if (current.exists()) {
+                files.add(current);
+            }
+            return files;
+        }
+    }
+
+    @NonNull
+    private static List<File> rotatedFiles(@NonNull File directory) {
+        List<File> files = new ArrayList<>();
+        File[] all = directory.listFiles();
+        if (all != null) {
+            Arrays.sort(all);
+            for (File file : all) {
+                String name = file.getName();
+                if (name.startsWith(ROTATED_PREFIX) && name.endsWith(ROTATED_SUFFIX)) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Records still in memory, oldest first. Allocates, meant for a debug screen or a bug report.
+     *
+     * @return records
+     */
+    @NonNull
+    public List<Record> getRecords() {
+        synchronized (lock) {
+            long from = Math.max(0, recorded - CAPACITY);
+            List<Record> records = new ArrayList<>((int) (recorded - from));
+            for (long n = from; n < recorded; n++) {
+                int offset = (int) (n % CAPACITY) * RECORD_WORDS;
+                records.add(new Record(ring[offset], ring[offset + 1], ring[offset + 2], ring[offset + 3], ring[offset + 4]));
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Number of records since the process started, including those no longer in memory
+     *
+     * @return record count
+     */
+    public long getRecordedCount() {
+        synchronized (lock) {
+            return recorded;
+        }
+    }
+
+    /**
+     * Read a history file, e.g. one pulled from a device
+     *
+     * @param file - file written by this class
+     * @return records in the order they were recorded, a record torn by a crash ends the list
+     * @throws IOException if the file cannot be read or is not a history file
+     */
+    @NonNull
+    public static List<Record> decode(@NonNull File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            return decode(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Read history records from a stream
+     *
+     * @param inputStream - contents of a history file
+     * @return records in the order they were recorded
+     * @throws IOException if the stream cannot be read or is not a history file
+     */
+    @NonNull
+    public static List<Record> decode(@NonNull InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        if (dataInputStream.readInt() != MAGIC) {
+            throw new IOException("Not a connectivity history file");
+        }
+        int version = dataInputStream.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported connectivity history version " + version);
+        }
+        List<Record> records = new ArrayList<>();
+        long[] words = new long[RECORD_WORDS];
+        while (true) {
+            try {
+                for (int i = 0; i < RECORD_WORDS; i++) {
+                    words[i] = dataInputStream.readLong();
+                }
+            } catch (EOFException e) {
+                return records;
+            }
+            records.add(new Record(words[0], words[1], words[2], words[3], words[4]));
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    private static long networkId(@Nullable Network network) {
+        if (network == null) {
+            return 0;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return network.getNetworkHandle();
+        }
+        /* Network.hashCode() is netId * 11, toString() would allocate */
+        return network.hashCode() / 11;
+    }
+
+    private ScheduledThreadPoolExecutor getExecutor() {
+        synchronized (lock) {
+            if (executor == null) {
+                executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, TAG);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+                executor.allowCoreThreadTimeOut(true);
+            }
+            return executor;
+        }
+    }
+
+    /**
+     * One decoded history record
+     */
+    public static final class Record {
+
+        private final long timeMillis;
+        private final int type;
+        private final int transports;
+        private final int extra;
+        private final long networkId;
+        private final long capabilities;
+        private final int downstreamKbps;
+        private final int upstreamKbps;
+
+        Record(long word0, long word1, long word2, long word3, long word4) {
+            this.timeMillis     = word0;
+            this.type           = (int) (word1 >>> 56);
+            this.transports     = (int) (word1 >>> 32) & 0xFFFFFF;
+            this.extra          = (int) word1;
+            this.networkId      = word2;
+            this.capabilities   = word3;
+            this.downstreamKbps = (int) (word4 >> 32);
+            this.upstreamKbps   = (int) word4;
+        }
+
+        /**
+         * Wall clock time of the callback
+         *
+         * @return {@link System#currentTimeMillis()}
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        /**
+         * @return one of the TYPE_ constants
+         */
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * @return bit n set for NetworkCapabilities transport n
+         */
+        public int getTransports() {
+            return transports;
+        }
+
+        public boolean hasTransport(int transport) {
+            return (transports & (1 << transport)) != 0;
+        }
+
+        /**
+         * @return bit n set for NetworkCapabilities capability n
+         */
+        public long getCapabilities() {
+            return capabilities;
+        }
+
+        public boolean hasCapability(int capability) {
+            return (capabilities & (1L << capability)) != 0;
+        }
+
+        /**
+         * Network handle from Marshmallow, the netId below, 0 without a network
+         *
+         * @return network id
+         */
+        public long getNetworkId() {
+            return networkId;
+        }
+
+        public int getDownstreamKbps() {
+            return downstreamKbps;
+        }
+
+        public int getUpstreamKbps() {
+            return upstreamKbps;
+        }
+
+        /**
+         * Callback specific value: maxMsToLive for {@link #TYPE_LOSING}, the MTU (from Q) for
+         * {@link #TYPE_LINK_PROPERTIES_CHANGED}, 1 if blocked for
+         * {@link #TYPE_BLOCKED_STATUS_CHANGED}, the active {@link ConnectivityBackend} type for
+         * {@link #TYPE_BROADCAST}, the number of lost records for {@link #TYPE_DROPPED}
+         *
+         * @return extra value
+         */
+        public int getExtra() {
+            return extra;
+        }
+
+        @Override
+        public String toString() {
+            return "Record{" +
+                    "timeMillis=" + timeMillis +
+                    ", type=" + typeName(type) +
+                    ", networkId=" + networkId +
+                    ", transports=0x" + Integer.toHexString(transports) +
+                    ", capabilities=0x" + Long.toHexString(capabilities) +
+                    ", downstreamKbps=" + downstreamKbps +
+                    ", upstreamKbps=" + upstreamKbps +
+                    ", extra=" + extra +
+                    '}';
+        }
+    }
+
+    @NonNull
+    public static String typeName(int type) {
+        switch (type) {
+            case TYPE_AVAILABLE:
+                return "AVAILABLE";
+            case TYPE_LOSING:
+                return "LOSING";
+            case TYPE_LOST:
+                return "LOST";
+            case TYPE_UNAVAILABLE:
+                return "UNAVAILABLE";
+            case TYPE_CAPABILITIES_CHANGED:
+                return "CAPABILITIES_CHANGED";
+            case TYPE_LINK_PROPERTIES_CHANGED:
+                return "LINK_PROPERTIES_CHANGED";
+            case TYPE_BLOCKED_STATUS_CHANGED:
+                return "BLOCKED_STATUS_CHANGED";
+            case TYPE_BROADCAST:
+                return "BROADCAST";
+            case TYPE_DROPPED:
+                return "DROPPED";
+            default:
+                return "UNKNOWN(" + type + ")";
+        }
+    }
+}
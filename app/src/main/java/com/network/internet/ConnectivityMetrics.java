@@ -0,0 +1,206 @@
+package com.network.internet;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.network.metrics.Counter;
+import com.network.metrics.Gauge;
+import com.network.metrics.Histogram;
+import com.network.metrics.MetricsRegistry;
+import java.util.Locale;
+
+/**
+ * What the connectivity classes cost and how often the network changes, read with
+ * {@code ConnectivityMetrics.getRegistry().snapshot()}.
+ *
+ * <ul>
+ * <li>{@code binder.*}: microseconds spent in every system service call of {@link NetworkConnectivityUtil}</li>
+ * <li>{@code event.settle}: milliseconds from the first raw callback to the published event</li>
+ * <li>{@code event.delivery}: microseconds from publishing an event to calling a listener</li>
+ * <li>{@code callback.*}: raw callbacks received, per type</li>
+ * <li>{@code transitions}, {@code flaps}: published events, and those that came less than
+ * {@link #FLAP_WINDOW_MILLIS} after the previous one. The {@code .lastHour} gauges count the last hour.</li>
+ * <li>{@code time.*}: milliseconds spent on each network type since the process started</li>
+ * </ul>
+ */
+public final class ConnectivityMetrics {
+
+    public static final long FLAP_WINDOW_MILLIS = 60 * 1000;
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    static final Histogram BINDER_ACTIVE_NETWORK_INFO   = REGISTRY.histogram("binder.activeNetworkInfo", "us");
+    static final Histogram BINDER_ACTIVE_NETWORK_TYPE   = REGISTRY.histogram("binder.activeNetworkType", "us");
+    static final Histogram BINDER_CONNECTED_TYPES       = REGISTRY.histogram("binder.connectedTypes", "us");
+    static final Histogram BINDER_VALIDATED_NETWORK     = REGISTRY.histogram("binder.validatedNetwork", "us");
+    static final Histogram BINDER_DATA_ENABLED          = REGISTRY.histogram("binder.dataEnabled", "us");
+    static final Histogram BINDER_SET_DATA_ENABLED      = REGISTRY.histogram("binder.setDataEnabled", "us");
+    static final Histogram BINDER_WIFI_ENABLED          = REGISTRY.histogram("binder.wifiEnabled", "us");
+    static final Histogram BINDER_SET_WIFI_ENABLED      = REGISTRY.histogram("binder.setWifiEnabled", "us");
+    static final Histogram BINDER_NETWORK_OPERATOR_NAME = REGISTRY.histogram("binder.networkOperatorName", "us");
+    static final Histogram BINDER_PHONE_TYPE            = REGISTRY.histogram("binder.phoneType", "us");
+
+    static final Histogram EVENT_SETTLE   = REGISTRY.histogram("event.settle", "ms");
+    static final Histogram EVENT_DELIVERY = REGISTRY.histogram("event.delivery", "us");
+
+    private static final Counter[] CALLBACKS = new Counter[ConnectivityHistory.TYPE_DROPPED];
+    private static final Counter TRANSITIONS = REGISTRY.counter("transitions");
+    private static final Counter FLAPS       = REGISTRY.counter("flaps");
+
+    private static final HourWindow transitionsLastHour = new HourWindow();
+    private static final HourWindow flapsLastHour       = new HourWindow();
+    private static long lastTransitionMillis = -1;
+
+    /* indexed by ConnectivityBackend.TYPE_, the same values as ConnectivitySnapshot.TYPE_ */
+    private static final String[] NETWORK_TYPE_NAMES = {"none", "mobile", "wifi", "vpn"};
+    private static final long[] timeOnType = new long[NETWORK_TYPE_NAMES.length];
+    private static int currentType = ConnectivityBackend.TYPE_NONE;
+    private static long currentTypeSinceMillis = SystemClock.elapsedRealtime();
+
+    static {
+        /* TYPE_DROPPED is never a callback, TYPE_AVAILABLE is 1 */
+        for (int type = ConnectivityHistory.TYPE_AVAILABLE; type < ConnectivityHistory.TYPE_DROPPED; type++) {
+            CALLBACKS[type] = REGISTRY.counter("callback." + ConnectivityHistory.typeName(type).toLowerCase(Locale.US));
+        }
+        REGISTRY.gauge("transitions.lastHour", new Gauge() {
+            @Override
+            public long getValue() {
+                return transitionsLastHour.sum(SystemClock.elapsedRealtime());
+            }
+        });
+        REGISTRY.gauge("flaps.lastHour", new Gauge() {
+            @Override
+            public long getValue() {
+                return flapsLastHour.sum(SystemClock.elapsedRealtime());
+            }
+        });
+        for (int type = 0; type < NETWORK_TYPE_NAMES.length; type++) {
+            final int index = type;
+            REGISTRY.gauge("time." + NETWORK_TYPE_NAMES[type], new Gauge() {
+                @Override
+                public long getValue() {
+                    return getTimeOnType(index);
+                }
+            });
+        }
+    }
+
+    /**
+     * Registry holding the connectivity metrics, an application may register its own metrics in it
+     *
+     * @return MetricsRegistry
+     */
+    @NonNull
+    public static MetricsRegistry getRegistry() {
+        return REGISTRY;
+    }
+
+    /**
+     * Count one raw callback
+     *
+     * @param type - one of the {@link ConnectivityHistory} TYPE_ constants
+     */
+    static void onCallback(int type) {
+        if (type > 0 && type < CALLBACKS.length) {
+            CALLBACKS[type].increment();
+        }
+    }
+
+    /**
+     * Count one published event
+     *
+     * @param settleMillis - time from the first raw callback to the event
+     */
+    static void onTransition(long settleMillis) {
+        EVENT_SETTLE.record(settleMillis);
+        TRANSITIONS.increment();
+        long now = SystemClock.elapsedRealtime();
+        boolean flap;
+        synchronized (ConnectivityMetrics.class) {
+            flap = lastTransitionMillis >= 0 && now - lastTransitionMillis < FLAP_WINDOW_MILLIS;
+            lastTransitionMillis = now;
+            transitionsLastHour.add(now);
+            if (flap) {
+                flapsLastHour.add(now);
+            }
+        }
+        if (flap) {
+            FLAPS.increment();
+        }
+    }
+
+    /**
+     * Follow the type of the default network, for the time spent on each
+     *
+     * @param type - {@link ConnectivityBackend} TYPE_ constant
+     */
+    static void onNetworkType(int type) {
+        if (type < 0 || type >= NETWORK_TYPE_NAMES.length) {
+            type = ConnectivityBackend.TYPE_NONE;
+        }
+        synchronized (ConnectivityMetrics.class) {
+            if (type == currentType) {
+                return;
+            }
+            long now = SystemClock.elapsedRealtime();
+            timeOnType[currentType] += now - currentTypeSinceMillis;
+            currentType = type;
+            currentTypeSinceMillis = now;
+        }
+    }
+
+    /**
+     * Time spent on a network type, including the current stretch
+     *
+     * @param type - {@link ConnectivityBackend} TYPE_ constant
+     * @return milliseconds
+     */
+    public static long getTimeOnType(int type) {
+        synchronized (ConnectivityMetrics.class) {
+            long time = timeOnType[type];
+            if (type == currentType) {
+                time += SystemClock.elapsedRealtime() - currentTypeSinceMillis;
+            }
+            return time;
+        }
+    }
+
+    /**
+     * Counts of the last 60 minutes, one slot per minute. Guarded by ConnectivityMetrics.class.
+     */
+    private static final class HourWindow {
+
+        private static final int SLOTS = 60;
+        private static final long SLOT_MILLIS = 60 * 1000;
+
+        private final long[] counts = new long[SLOTS];
+        private final long[] minutes = new long[SLOTS];
+
+        void add(long nowMillis) {
+            long minute = nowMillis / SLOT_MILLIS;
+            int slot = (int) (minute % SLOTS);
+            if (minutes[slot] != minute) {
+                minutes[slot] = minute;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+        }
+
+        long sum(long nowMillis) {
+            long minute = nowMillis / SLOT_MILLIS;
+            long sum = 0;
+            synchronized (ConnectivityMetrics.class) {
+                for (int i = 0; i < SLOTS; i++) {
+                    if (minute - minutes[i] < SLOTS) {
+                        sum += counts[i];
+                    }
+                }
+            }
+            return sum;
+        }
+    }
+
+    private ConnectivityMetrics() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
@@ -0,0 +1,175 @@
+package com.network.internet;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresPermission;
+import com.network.util.LogcatUtil;
+
+/**
+ * Process-wide owner of the network callback registration.
+ *
+ * <p>Every consumer (usually an Activity) calls {@link #acquire()} when it starts and {@link #release()} when it
+ * stops. The callback is registered by the first acquire and stays registered while at least one consumer holds
+ * it. When the last one releases it the callback is kept for {@link #getIdleGracePeriodMillis()} more, so a
+ * rotation or a transition to another screen does not unregister and register it again.</p>
+ *
+ * <p>Callbacks are delivered on the monitor thread of {@link ConnectivityExecutors} where the platform
+ * accepts a Handler: from Oreo for the network callback, on every version for the receiver. From Lollipop the
+ * monitor also runs {@link NetworkTracker}, which follows every network and not only the default one.</p>
+ */
+public final class ConnectivityMonitor {
+
+    private static final String TAG = ConnectivityMonitor.class.getSimpleName();
+
+    public static final long DEFAULT_IDLE_GRACE_PERIOD_MILLIS = 5000;
+
+    private static volatile ConnectivityMonitor instance;
+
+    private final Object lock = new Object();
+    private final Context context;
+    private final RegisterAndUnregisterNetworkReceiver registerAndUnregisterNetworkReceiver;
+    private Handler handler;
+
+    private long idleGracePeriodMillis = DEFAULT_IDLE_GRACE_PERIOD_MILLIS;
+    private int consumerCount;
+    private boolean registered;
+    private boolean unregisterPending;
+
+    private final Runnable unregister = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (lock) {
+                unregisterPending = false;
+                if (consumerCount == 0 && registered) {
+                    unregisterLocked();
+                }
+            }
+        }
+    };
+
+    /**
+     * Get the monitor of this process
+     *
+     * @param context - Context, only its application context is kept
+     * @return ConnectivityMonitor
+     */
+    public static ConnectivityMonitor getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (ConnectivityMonitor.class) {
+                if (instance == null) {
+                    Context applicationContext = context.getApplicationContext();
+                    instance = new ConnectivityMonitor(applicationContext != null ? applicationContext : context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ConnectivityMonitor(@NonNull Context context) {
+        this.context = context;
+        this.registerAndUnregisterNetworkReceiver = new RegisterAndUnregisterNetworkReceiver(context, ConnectivityExecutors.monitorHandler());
+    }
+
+    /**
+     * Start using the monitor, registers the network callback if this is the first consumer
+     */
+    @RequiresPermission(android.Manifest.permission.ACCESS_NETWORK_STATE)
+    public void acquire() {
+        synchronized (lock) {
+            consumerCount++;
+            if (unregisterPending) {
+                getHandler().removeCallbacks(unregister);
+                unregisterPending = false;
+            }
+            if (!registered) {
+                LogcatUtil.informationMessage(TAG, "Register, consumers %d", consumerCount);
+                registerAndUnregisterNetworkReceiver.registerNetworkReceiver(context);
+                BandwidthEstimator.getInstance().start();
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    NetworkTracker.getInstance(context).start(getHandler());
+                }
+                registered = true;
+            }
+        }
+    }
+
+    /**
+     * Stop using the monitor, every call must match one {@link #acquire()}.
+     * The network callback is unregistered after the idle grace period once no consumer is left.
+     */
+    public void release() {
+        synchronized (lock) {
+            if (consumerCount == 0) {
+                LogcatUtil.warningMessage(TAG, "release() without acquire()");
+                return;
+            }
+            consumerCount--;
+            if (consumerCount == 0 && registered && !unregisterPending) {
+                if (idleGracePeriodMillis <= 0) {
+                    unregisterLocked();
+                } else {
+                    unregisterPending = true;
+                    getHandler().postDelayed(unregister, idleGracePeriodMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * How long the callback stays registered after the last consumer released it
+     *
+     * @param idleGracePeriodMillis - grace period in milliseconds, 0 unregisters immediately
+     */
+    public void setIdleGracePeriodMillis(long idleGracePeriodMillis) {
+        synchronized (lock) {
+            this.idleGracePeriodMillis = idleGracePeriodMillis;
+        }
+    }
+
+    public long getIdleGracePeriodMillis() {
+        synchronized (lock) {
+            return idleGracePeriodMillis;
+        }
+    }
+
+    /**
+     * Number of consumers holding the monitor
+     *
+     * @return acquire() count minus release() count
+     */
+    public int getConsumerCount() {
+        synchronized (lock) {
+            return consumerCount;
+        }
+    }
+
+    /**
+     * Whether the network callback (or the receiver below Lollipop) is registered right now
+     *
+     * @return true if registered, also during the idle grace period
+     */
+    public boolean isRegistered() {
+        synchronized (lock) {
+            return registered;
+        }
+    }
+
+    private void unregisterLocked() {
+        LogcatUtil.informationMessage(TAG, "Unregister, no consumer left");
+        registerAndUnregisterNetworkReceiver.unregisterNetworkReceiver(context);
+        BandwidthEstimator.getInstance().stop();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            NetworkTracker.getInstance(context).stop();
+        }
+        registered = false;
+    }
+
+    private Handler getHandler() {
+        if (handler == null) {
+            handler = ConnectivityExecutors.monitorHandler();
+        }
+        return handler;
+    }
+}
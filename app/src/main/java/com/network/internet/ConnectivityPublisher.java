@@ -0,0 +1,179 @@
+package com.network.internet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.network.util.LogcatUtil;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Connectivity state as a stream with demand, built on {@link ConnectivityEventBus}.
+ *
+ * <ul>
+ *     <li>Replay: a new subscriber first gets the current state, if anything was published yet.</li>
+ *     <li>Conflation: every subscription keeps one pending event. A newer event replaces it, so a slow
+ *     subscriber only ever gets the latest state and nothing piles up.</li>
+ *     <li>Distinct until changed: an event with the same availability as the last delivered one is
+ *     skipped, so a subscriber that was away while the network went down and up again hears nothing.</li>
+ * </ul>
+ */
+public final class ConnectivityPublisher {
+
+    private static final String TAG = ConnectivityPublisher.class.getSimpleName();
+
+    /**
+     * Subscribe, the subscriber is called on the thread that publishes, the monitor thread of
+     * {@link ConnectivityExecutors}, or on the thread calling {@link ConnectivitySubscription#request(long)}
+     *
+     * @param subscriber - ConnectivitySubscriber
+     * @return the subscription also passed to {@link ConnectivitySubscriber#onSubscribe}
+     */
+    @NonNull
+    public static ConnectivitySubscription subscribe(@NonNull ConnectivitySubscriber subscriber) {
+        return subscribe(subscriber, null);
+    }
+
+    /**
+     * Subscribe with an executor for every call to the subscriber but onSubscribe
+     *
+     * @param subscriber - ConnectivitySubscriber
+     * @param executor   - Executor, e.g. {@link ConnectivityExecutors#mainThread()}, {@code null} for no hop
+     * @return the subscription also passed to {@link ConnectivitySubscriber#onSubscribe}
+     */
+    @NonNull
+    public static ConnectivitySubscription subscribe(@NonNull ConnectivitySubscriber subscriber, @Nullable Executor executor) {
+        ConflatingSubscription subscription = new ConflatingSubscription(subscriber, executor);
+        subscriber.onSubscribe(subscription);
+        if (!subscription.cancelled) {
+            ConnectivityEventBus.subscribe(subscription);
+            /* read after subscribing, an event published in between has a higher sequence and wins */
+            ConnectivityEvent current = ConnectivityEventBus.getLastEvent();
+            if (current != null) {
+                subscription.onConnectivityEvent(current);
+            }
+        }
+        return subscription;
+    }
+
+    private static final class ConflatingSubscription implements ConnectivitySubscription, ConnectivityEventListener, Runnable {
+
+        private final ConnectivitySubscriber subscriber;
+        private final Executor executor;
+
+        private final AtomicReference<ConnectivityEvent> pending = new AtomicReference<>();
+        private final AtomicLong requested = new AtomicLong();
+        /* drain passes still owed, only the caller that moves it from 0 runs the drain */
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        /* only touched by the draining thread */
+        private ConnectivityEvent lastDelivered;
+
+        ConflatingSubscription(@NonNull ConnectivitySubscriber subscriber, @Nullable Executor executor) {
+            this.subscriber = subscriber;
+            this.executor   = executor;
+        }
+
+        @Override
+        public void onConnectivityEvent(@NonNull ConnectivityEvent event) {
+            while (true) {
+                ConnectivityEvent current = pending.get();
+                if (current != null && current.getSequence() >= event.getSequence()) {
+                    return;
+                }
+                if (pending.compareAndSet(current, event)) {
+                    break;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                LogcatUtil.errorMessage(TAG, "request(%d), demand must be positive, cancelling", n);
+                cancel();
+                return;
+            }
+            while (true) {
+                long current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    break;
+                }
+                long updated = current + n;
+                if (updated < 0) {
+                    updated = Long.MAX_VALUE;
+                }
+                if (requested.compareAndSet(current, updated)) {
+                    break;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                ConnectivityEventBus.unsubscribe(this);
+                pending.set(null);
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            if (executor == null) {
+                run();
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                LogcatUtil.errorMessage(TAG, "Executor rejected the subscriber, cancelling", e);
+                cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                while (!cancelled && requested.get() > 0) {
+                    ConnectivityEvent event = pending.getAndSet(null);
+                    if (event == null) {
+                        break;
+                    }
+                    if (lastDelivered != null
+                            && (event.getSequence() <= lastDelivered.getSequence()
+                                || event.isAvailable() == lastDelivered.isAvailable())) {
+                        continue;
+                    }
+                    lastDelivered = event;
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        LogcatUtil.errorMessage(TAG, "Subscriber failed, cancelling", e);
+                        cancel();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private ConnectivityPublisher() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
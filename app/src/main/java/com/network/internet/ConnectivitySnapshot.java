@@ -0,0 +1,270 @@
+package com.network.internet;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.telephony.TelephonyManager;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Immutable picture of the default network, kept current by {@link NetworkCallbackImpl}.
+ *
+ * <p>The static query methods of {@link NetworkConnectivityUtil} answer from {@link #current()}
+ * instead of asking {@link ConnectivityManager} (a binder call into system_server) every time.
+ * Until the first callback arrives, or after the callback is unregistered, {@link #current()}
+ * returns {@code null} and callers fall back to a live query.</p>
+ */
+public final class ConnectivitySnapshot {
+
+    /* Same values as returned by NetworkConnectivityUtil.getNetworkTypeNew() */
+    public static final int TYPE_NONE   = 0;
+    public static final int TYPE_MOBILE = 1;
+    public static final int TYPE_WIFI   = 2;
+    public static final int TYPE_VPN    = 3;
+
+    static final int TRANSPORT_CELLULAR = 1;
+    static final int TRANSPORT_WIFI     = 1 << 1;
+    static final int TRANSPORT_VPN      = 1 << 2;
+
+    public static final ConnectivitySnapshot DISCONNECTED = new ConnectivitySnapshot(
+            null, false, false, false, 0, TelephonyManager.NETWORK_TYPE_UNKNOWN, null,
+            NetworkConnectivityUtil.InternetConnectionType.NETWORK_NO);
+
+    private static volatile ConnectivitySnapshot current;
+
+    private final Network network;
+    private final boolean connected;
+    private final boolean validated;
+    private final boolean metered;
+    private final int transports;
+    private final int subtype;
+    private final String extraInfo;
+    private final NetworkConnectivityUtil.InternetConnectionType internetConnectionType;
+
+    ConnectivitySnapshot(@Nullable Network network, boolean connected, boolean validated, boolean metered,
+                         int transports, int subtype, @Nullable String extraInfo,
+                         @NonNull NetworkConnectivityUtil.InternetConnectionType internetConnectionType) {
+        this.network                = network;
+        this.connected              = connected;
+        this.validated              = validated;
+        this.metered                = metered;
+        this.transports             = transports;
+        this.subtype                = subtype;
+        this.extraInfo              = extraInfo;
+        this.internetConnectionType = internetConnectionType;
+    }
+
+    /**
+     * Build a snapshot from what the framework reported for a network
+     *
+     * @param network      - Network the callback was about
+     * @param capabilities - Capabilities of that network, may be null if it is already gone
+     * @param networkInfo  - Legacy info of that network, used for the mobile subtype
+     * @return ConnectivitySnapshot
+     */
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    static ConnectivitySnapshot from(@NonNull Network network,
+                                     @Nullable NetworkCapabilities capabilities,
+                                     @Nullable NetworkInfo networkInfo) {
+        int transports = 0;
+        boolean connected;
+        boolean validated;
+        boolean metered;
+
+        if (capabilities != null)
+        {
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
+            {
+                transports |= TRANSPORT_CELLULAR;
+            }
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI))
+            {
+                transports |= TRANSPORT_WIFI;
+            }
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN))
+            {
+                transports |= TRANSPORT_VPN;
+            }
+            connected = true;
+            metered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        }
+        else if (networkInfo != null)
+        {
+            if (networkInfo.getType() == ConnectivityManager.TYPE_MOBILE)
+            {
+                transports |= TRANSPORT_CELLULAR;
+            }
+            else if (networkInfo.getType() == ConnectivityManager.TYPE_WIFI)
+            {
+                transports |= TRANSPORT_WIFI;
+            }
+            else if (networkInfo.getType() == ConnectivityManager.TYPE_VPN)
+            {
+                transports |= TRANSPORT_VPN;
+            }
+            connected = networkInfo.isConnected();
+            /* what ConnectivityManager.isActiveNetworkMetered() assumes without capabilities */
+            metered = (transports & TRANSPORT_CELLULAR) != 0;
+        }
+        else
+        {
+            return DISCONNECTED;
+        }
+
+        /* NET_CAPABILITY_VALIDATED only exists from Marshmallow, before that a connected network counts as validated */
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && capabilities != null)
+        {
+            validated = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        }
+        else
+        {
+            validated = connected;
+        }
+
+        int subtype = networkInfo != null ? networkInfo.getSubtype() : TelephonyManager.NETWORK_TYPE_UNKNOWN;
+        String extraInfo = networkInfo != null ? networkInfo.getExtraInfo() : null;
+
+        NetworkConnectivityUtil.InternetConnectionType internetConnectionType;
+        if (!connected)
+        {
+            internetConnectionType = NetworkConnectivityUtil.InternetConnectionType.NETWORK_NO;
+        }
+        else if ((transports & TRANSPORT_WIFI) != 0)
+        {
+            internetConnectionType = NetworkConnectivityUtil.InternetConnectionType.NETWORK_WIFI;
+        }
+        else if ((transports & TRANSPORT_CELLULAR) != 0 && networkInfo != null)
+        {
+            internetConnectionType = NetworkConnectivityUtil.getMobileConnectionType(subtype, networkInfo.getSubtypeName());
+        }
+        else
+        {
+            internetConnectionType = NetworkConnectivityUtil.InternetConnectionType.NETWORK_UNKNOWN;
+        }
+
+        return new ConnectivitySnapshot(network, connected, validated, metered, transports, subtype, extraInfo,
+                internetConnectionType);
+    }
+
+    /**
+     * Get the last published snapshot
+     *
+     * @return ConnectivitySnapshot, or {@code null} if no callback has been received yet
+     */
+    @Nullable
+    public static ConnectivitySnapshot current() {
+        return current;
+    }
+
+    static void publish(@NonNull ConnectivitySnapshot snapshot) {
+        current = snapshot;
+        ConnectivityMetrics.onNetworkType(snapshot.getNetworkType());
+        TrafficAccounting.onNetworkType(snapshot.getNetworkType());
+    }
+
+    static void clear() {
+        current = null;
+    }
+
+    @Nullable
+    public Network getNetwork() {
+        return network;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public boolean isValidated() {
+        return validated;
+    }
+
+    /**
+     * Whether traffic on the network may cost the user money, {@link NetworkCapabilities#NET_CAPABILITY_NOT_METERED} missing
+     *
+     * @return {@code true}: Yes <br>{@code false}: no
+     */
+    public boolean isMetered() {
+        return metered;
+    }
+
+    public boolean isMobile() {
+        return connected && (transports & TRANSPORT_CELLULAR) != 0;
+    }
+
+    public boolean isWifi() {
+        return connected && (transports & TRANSPORT_WIFI) != 0;
+    }
+
+    public boolean isVpn() {
+        return connected && (transports & TRANSPORT_VPN) != 0;
+    }
+
+    /**
+     * Get network type, same order of precedence as {@link NetworkConnectivityUtil#getNetworkTypeNew(android.content.Context)}
+     *
+     * @return 0: none; 1: mobile data; 2: wifi; 3: vpn
+     */
+    public int getNetworkType() {
+        if (isMobile())
+        {
+            return TYPE_MOBILE;
+        }
+        else if (isWifi())
+        {
+            return TYPE_WIFI;
+        }
+        else if (isVpn())
+        {
+            return TYPE_VPN;
+        }
+        return TYPE_NONE;
+    }
+
+    /**
+     * Get the legacy {@link ConnectivityManager} type, used by the subtype tables
+     *
+     * @return {@link ConnectivityManager#TYPE_WIFI}, {@link ConnectivityManager#TYPE_MOBILE} or -1
+     */
+    public int getLegacyType() {
+        if (isWifi())
+        {
+            return ConnectivityManager.TYPE_WIFI;
+        }
+        else if (isMobile())
+        {
+            return ConnectivityManager.TYPE_MOBILE;
+        }
+        return -1;
+    }
+
+    public int getSubtype() {
+        return subtype;
+    }
+
+    @Nullable
+    public String getExtraInfo() {
+        return extraInfo;
+    }
+
+    @NonNull
+    public NetworkConnectivityUtil.InternetConnectionType getInternetConnectionType() {
+        return internetConnectionType;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectivitySnapshot{" +
+                "connected=" + connected +
+                ", validated=" + validated +
+                ", metered=" + metered +
+                ", networkType=" + getNetworkType() +
+                ", subtype=" + subtype +
+                ", internetConnectionType=" + internetConnectionType +
+                '}';
+    }
+}
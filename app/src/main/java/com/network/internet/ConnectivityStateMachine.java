@@ -0,0 +1,253 @@
+package com.network.internet;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.network.util.LogcatUtil;
+
+/**
+ * Turns raw connectivity callbacks into debounced edge transitions on {@link ConnectivityEventBus}.
+ *
+ * <p>During a Wi-Fi / mobile handover the framework calls onLosing, onLost and onAvailable in quick
+ * succession, every one of them used to reach the listeners. Here every raw callback only moves the
+ * current state, and nothing is published until the state has been stable for the settle window. An event
+ * is published only when the settled availability differs from the last published one, everything else is
+ * absorbed and counted.</p>
+ */
+public final class ConnectivityStateMachine {
+
+    private static final String TAG = ConnectivityStateMachine.class.getSimpleName();
+
+    public static final long DEFAULT_SETTLE_WINDOW_MILLIS = 500;
+
+    public enum State {
+        /**
+         * Nothing reported yet
+         */
+        UNKNOWN,
+        /**
+         * Connected and validated, or connected below Marshmallow where validation is not reported
+         */
+        CONNECTED,
+        /**
+         * Connected, the framework has not validated internet access yet
+         */
+        VALIDATING,
+        /**
+         * The framework announced that the network is about to go, usually a replacement follows
+         */
+        LOSING,
+        /**
+         * No usable network
+         */
+        DISCONNECTED;
+
+        public boolean isAvailable() {
+            return this == CONNECTED || this == VALIDATING || this == LOSING;
+        }
+    }
+
+    private static volatile ConnectivityStateMachine instance;
+
+    private final Object lock = new Object();
+    private Handler handler;
+    private long settleWindowMillis = DEFAULT_SETTLE_WINDOW_MILLIS;
+
+    private State state = State.UNKNOWN;
+    private ConnectivitySnapshot snapshot;
+    private State publishedState = State.UNKNOWN;
+    private boolean settlePending;
+    private long lastInputMillis;
+    /* first raw callback of the current settle window */
+    private long windowStartMillis;
+    private int absorbedSincePublish;
+
+    private long rawCallbackCount;
+    private long publishedEventCount;
+
+    private final Runnable settle = new Runnable() {
+        @Override
+        public void run() {
+            settle();
+        }
+    };
+
+    public static ConnectivityStateMachine getInstance() {
+        if (instance == null) {
+            synchronized (ConnectivityStateMachine.class) {
+                if (instance == null) {
+                    instance = new ConnectivityStateMachine();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ConnectivityStateMachine() {
+    }
+
+    /**
+     * How long the state has to stay unchanged before it is published. 0 publishes every edge immediately.
+     *
+     * @param settleWindowMillis - settle window in milliseconds
+     */
+    public void setSettleWindowMillis(long settleWindowMillis) {
+        synchronized (lock) {
+            this.settleWindowMillis = settleWindowMillis;
+        }
+    }
+
+    public long getSettleWindowMillis() {
+        synchronized (lock) {
+            return settleWindowMillis;
+        }
+    }
+
+    /**
+     * Feed one raw callback
+     *
+     * @param rawState - state the callback alone implies
+     * @param snapshot - ConnectivitySnapshot after the callback, may be null
+     */
+    void onRawCallback(@NonNull State rawState, @Nullable ConnectivitySnapshot snapshot) {
+        boolean publishNow;
+        synchronized (lock) {
+            rawCallbackCount++;
+            absorbedSincePublish++;
+            this.state = rawState;
+            this.snapshot = snapshot;
+            lastInputMillis = SystemClock.uptimeMillis();
+
+            publishNow = settleWindowMillis <= 0;
+            if (publishNow || !settlePending) {
+                windowStartMillis = lastInputMillis;
+            }
+            if (!publishNow && !settlePending) {
+                settlePending = true;
+                getHandler().postDelayed(settle, settleWindowMillis);
+            }
+        }
+        if (publishNow) {
+            settle();
+        }
+    }
+
+    /**
+     * Raw state implied by a snapshot
+     *
+     * @param snapshot - ConnectivitySnapshot, may be null
+     * @return State
+     */
+    static State stateOf(@Nullable ConnectivitySnapshot snapshot) {
+        if (snapshot == null || !snapshot.isConnected()) {
+            return State.DISCONNECTED;
+        }
+        return snapshot.isValidated() ? State.CONNECTED : State.VALIDATING;
+    }
+
+    private void settle() {
+        State settledState;
+        ConnectivitySnapshot settledSnapshot;
+        int absorbed;
+        long settleMillis;
+        synchronized (lock) {
+            long quietMillis = SystemClock.uptimeMillis() - lastInputMillis;
+            if (settleWindowMillis > 0 && quietMillis < settleWindowMillis) {
+                /* more callbacks came in while waiting, wait for the rest of the window */
+                getHandler().postDelayed(settle, settleWindowMillis - quietMillis);
+                return;
+            }
+            settlePending = false;
+
+            if (state == State.LOSING || state == State.UNKNOWN) {
+                /* LOSING is resolved by onLost or onAvailable, nothing to tell yet */
+                return;
+            }
+            if (publishedState != State.UNKNOWN && publishedState.isAvailable() == state.isAvailable()) {
+                return;
+            }
+
+            settledState    = state;
+            settledSnapshot = snapshot;
+            absorbed        = absorbedSincePublish;
+            publishedState  = settledState;
+            absorbedSincePublish = 0;
+            publishedEventCount++;
+            settleMillis = SystemClock.uptimeMillis() - windowStartMillis;
+        }
+        ConnectivityMetrics.onTransition(settleMillis);
+        LogcatUtil.informationMessage(TAG, "Publish %s, absorbed %d callbacks", settledState, absorbed);
+        ConnectivityEventBus.publish(settledState, settledSnapshot, absorbed);
+    }
+
+    /**
+     * Forget the published state, the next settled state is published whatever it is.
+     * Used when the callback is registered again.
+     */
+    void reset() {
+        synchronized (lock) {
+            if (settlePending) {
+                getHandler().removeCallbacks(settle);
+                settlePending = false;
+            }
+            state = State.UNKNOWN;
+            snapshot = null;
+            publishedState = State.UNKNOWN;
+            absorbedSincePublish = 0;
+        }
+    }
+
+    /**
+     * Current, not yet necessarily published, state
+     *
+     * @return State
+     */
+    @NonNull
+    public State getState() {
+        synchronized (lock) {
+            return state;
+        }
+    }
+
+    /**
+     * Last state published on {@link ConnectivityEventBus}
+     *
+     * @return State
+     */
+    @NonNull
+    public State getPublishedState() {
+        synchronized (lock) {
+            return publishedState;
+        }
+    }
+
+    /**
+     * Number of raw callbacks received, published or not
+     *
+     * @return count since process start
+     */
+    public long getRawCallbackCount() {
+        synchronized (lock) {
+            return rawCallbackCount;
+        }
+    }
+
+    /**
+     * Number of events published on {@link ConnectivityEventBus}
+     *
+     * @return count since process start
+     */
+    public long getPublishedEventCount() {
+        synchronized (lock) {
+            return publishedEventCount;
+        }
+    }
+
+    private Handler getHandler() {
+        if (handler == null) {
+            handler = ConnectivityExecutors.monitorHandler();
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,28 @@
+package com.network.internet;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives connectivity state from {@link ConnectivityPublisher}, modelled on the Reactive Streams
+ * Subscriber. java.util.concurrent.Flow only exists from API 30.
+ *
+ * <p>Nothing is delivered until {@link ConnectivitySubscription#request(long)} is called. Calls are never
+ * concurrent and always happen on the executor given at subscribe time. The stream never completes, it ends
+ * when the subscription is cancelled.</p>
+ */
+public interface ConnectivitySubscriber {
+
+    /**
+     * Called once, before any other method
+     *
+     * @param subscription - ConnectivitySubscription to request events with, or to cancel
+     */
+    void onSubscribe(@NonNull ConnectivitySubscription subscription);
+
+    /**
+     * Called at most once per requested event, always with a state different from the previous one
+     *
+     * @param event - latest ConnectivityEvent, older ones are skipped if they were not requested in time
+     */
+    void onNext(@NonNull ConnectivityEvent event);
+}
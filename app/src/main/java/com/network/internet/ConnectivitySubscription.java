@@ -0,0 +1,19 @@
+package com.network.internet;
+
+/**
+ * Link between one {@link ConnectivitySubscriber} and {@link ConnectivityPublisher}
+ */
+public interface ConnectivitySubscription {
+
+    /**
+     * Ask for more events, demand adds up. {@link Long#MAX_VALUE} means unbounded.
+     *
+     * @param n - number of events, must be positive
+     */
+    void request(long n);
+
+    /**
+     * Stop delivery, an event already being delivered may still arrive
+     */
+    void cancel();
+}
@@ -0,0 +1,245 @@
+package com.network.internet;
+
+import android.Manifest;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresPermission;
+import com.network.util.LogcatUtil;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process DNS cache used by {@link NetworkConnectivityUtil#getDomainAddress(String)}.
+ *
+ * <p>Entries live in an access-ordered map bounded to {@link #getMaxEntries()}, the least recently used
+ * one is evicted first. Successful lookups are kept for the positive TTL, failures for the shorter negative
+ * TTL so a host that does not resolve does not cost a resolver timeout on every call. An entry that is used
+ * after {@link #REFRESH_AHEAD_FRACTION} of its TTL is resolved again in the background while the old addresses
+ * are still served, so hot hosts never expire on the caller thread.</p>
+ *
+ * <p>Addresses depend on the network (split DNS, NAT64 on cellular), so every entry is dropped on the first
+ * lookup after {@link NetworkEpoch} moved on: a new default network, new DNS servers or routes, or the process
+ * bound to another network.</p>
+ */
+public final class DnsCache {
+
+    private static final String TAG = DnsCache.class.getSimpleName();
+
+    public static final int DEFAULT_MAX_ENTRIES             = 128;
+    public static final long DEFAULT_POSITIVE_TTL_MILLIS    = 60 * 1000;
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS    = 10 * 1000;
+    public static final float REFRESH_AHEAD_FRACTION        = 0.75f;
+
+    private static volatile DnsCache instance;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, CachedHost> entries;
+    private final ThreadPoolExecutor refresher;
+
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long positiveTtlMillis = DEFAULT_POSITIVE_TTL_MILLIS;
+    private long negativeTtlMillis = DEFAULT_NEGATIVE_TTL_MILLIS;
+    /* incremented by invalidateAll(), a lookup started before it must not store its result */
+    private int generation;
+    /* NetworkEpoch the entries were resolved in */
+    private int epoch = NetworkEpoch.current();
+
+    private long hitCount;
+    private long missCount;
+    private long refreshCount;
+
+    public static DnsCache getInstance() {
+        if (instance == null) {
+            synchronized (DnsCache.class) {
+                if (instance == null) {
+                    instance = new DnsCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DnsCache() {
+        entries = new LinkedHashMap<String, CachedHost>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedHost> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        refresher = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, "DnsCache-refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        refresher.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Resolve a host, from the cache when possible. Blocks for the resolver on a miss.
+     *
+     * @param host - host name or literal address
+     * @return every address of the host, never empty
+     * @throws UnknownHostException when the host does not resolve, also when that failure is cached
+     */
+    @RequiresPermission(Manifest.permission.INTERNET)
+    @NonNull
+    public InetAddress[] resolve(@NonNull String host) throws UnknownHostException {
+        long nowMillis = SystemClock.elapsedRealtime();
+        int lookupGeneration;
+        synchronized (lock) {
+            if (!NetworkEpoch.isCurrent(epoch)) {
+                invalidateAllLocked();
+            }
+            CachedHost entry = entries.get(host);
+            if (entry != null && entry.expiresAtMillis > nowMillis) {
+                hitCount++;
+                if (entry.addresses != null && !entry.refreshing && nowMillis >= entry.refreshAtMillis) {
+                    entry.refreshing = true;
+                    scheduleRefresh(host);
+                }
+                if (entry.addresses == null) {
+                    throw new UnknownHostException(host + " (cached)");
+                }
+                return entry.addresses.clone();
+            }
+            missCount++;
+            lookupGeneration = generation;
+        }
+        return lookup(host, lookupGeneration, true).clone();
+    }
+
+    /**
+     * Drop every entry. Network changes do this through {@link NetworkEpoch}, no need to call it for them.
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            invalidateAllLocked();
+        }
+    }
+
+    private void invalidateAllLocked() {
+        entries.clear();
+        generation++;
+        epoch = NetworkEpoch.current();
+    }
+
+    /**
+     * @param maxEntries        - hosts kept, the least recently used are evicted beyond that
+     * @param positiveTtlMillis - how long resolved addresses are used
+     * @param negativeTtlMillis - how long a failed lookup is remembered
+     */
+    public void configure(int maxEntries, long positiveTtlMillis, long negativeTtlMillis) {
+        synchronized (lock) {
+            this.maxEntries         = Math.max(1, maxEntries);
+            this.positiveTtlMillis  = positiveTtlMillis;
+            this.negativeTtlMillis  = negativeTtlMillis;
+            while (entries.size() > this.maxEntries) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+        }
+    }
+
+    public int getMaxEntries() {
+        synchronized (lock) {
+            return maxEntries;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return "DnsCache{" +
+                    "size=" + entries.size() +
+                    ", hits=" + hitCount +
+                    ", misses=" + missCount +
+                    ", refreshes=" + refreshCount +
+                    '}';
+        }
+    }
+
+    private InetAddress[] lookup(@NonNull String host, int lookupGeneration, boolean storeFailure) throws UnknownHostException {
+        long startMillis = SystemClock.elapsedRealtime();
+        try {
+            InetAddress[] addresses = InetAddress.getAllByName(host);
+            store(host, addresses, lookupGeneration, startMillis);
+            return addresses;
+        } catch (UnknownHostException e) {
+            LogcatUtil.warningMessage(TAG, "%s did not resolve in %d ms", host, SystemClock.elapsedRealtime() - startMillis);
+            if (storeFailure) {
+                store(host, null, lookupGeneration, startMillis);
+            }
+            throw e;
+        }
+    }
+
+    private void store(@NonNull String host, InetAddress[] addresses, int lookupGeneration, long startMillis) {
+        synchronized (lock) {
+            if (lookupGeneration != generation || !NetworkEpoch.isCurrent(epoch)) {
+                /* the network changed while resolving, the answer may belong to the old one */
+                return;
+            }
+            long ttlMillis = addresses != null ? positiveTtlMillis : negativeTtlMillis;
+            entries.put(host, new CachedHost(addresses, startMillis + ttlMillis,
+                    startMillis + (long) (ttlMillis * REFRESH_AHEAD_FRACTION)));
+        }
+    }
+
+    private void scheduleRefresh(@NonNull final String host) {
+        final int refreshGeneration = generation;
+        try {
+            refresher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        lookup(host, refreshGeneration, false);
+                        synchronized (lock) {
+                            refreshCount++;
+                        }
+                    } catch (UnknownHostException e) {
+                        /* keep serving the old addresses until they expire, try again on the next hit */
+                        synchronized (lock) {
+                            CachedHost entry = entries.get(host);
+                            if (entry != null) {
+                                entry.refreshing = false;
+                            }
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LogcatUtil.warningMessage(TAG, "Refresh of %s rejected", host);
+        }
+    }
+
+    private static final class CachedHost {
+
+        /* null for a failed lookup */
+        final InetAddress[] addresses;
+        final long expiresAtMillis;
+        final long refreshAtMillis;
+        boolean refreshing;
+
+        CachedHost(InetAddress[] addresses, long expiresAtMillis, long refreshAtMillis) {
+            this.addresses          = addresses;
+            this.expiresAtMillis    = expiresAtMillis;
+            this.refreshAtMillis    = refreshAtMillis;
+        }
+    }
+}
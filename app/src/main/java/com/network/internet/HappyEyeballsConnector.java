@@ -0,0 +1,263 @@
+package com.network.internet;
+
+import android.Manifest;
+import android.net.Network;
+import android.os.Build;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresPermission;
+import com.network.util.LogcatUtil;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Connects to a dual-stack host the Happy Eyeballs way (RFC 8305).
+ *
+ * <p>All addresses of the host are resolved with {@link HostResolver}, ordered so that the two families
+ * alternate, and tried with non-blocking connects on one {@link Selector}. A new attempt starts every
+ * {@link #CONNECTION_ATTEMPT_DELAY_MILLIS} or as soon as the previous one fails, the first connect that
+ * completes wins and every other attempt is closed. A broken IPv6 path therefore costs 250 ms instead of
+ * the whole connect timeout.</p>
+ *
+ * <p>The family that won is remembered per network and tried first next time. For the default network it is
+ * remembered per {@link NetworkEpoch}, a preference learned on Wi-Fi is not carried over to cellular.</p>
+ */
+public final class HappyEyeballsConnector {
+
+    private static final String TAG = HappyEyeballsConnector.class.getSimpleName();
+
+    /* recommended value of RFC 8305 section 5 */
+    public static final long CONNECTION_ATTEMPT_DELAY_MILLIS = 250;
+
+    /* key of the default network, and of every network below Lollipop */
+    private static final Object DEFAULT_NETWORK = new Object();
+
+    /* family that won the last race on that network */
+    private static final ConcurrentHashMap<Object, Preference> preferenceByNetwork = new ConcurrentHashMap<>();
+
+    /**
+     * Resolve and connect, blocks until a connection is up or the timeout passes
+     *
+     * @param host          - host name or literal address
+     * @param port          - port
+     * @param network       - Network to resolve and connect on, {@code null} for the default network.
+     *                        Sockets are only bound to it from Marshmallow.
+     * @param timeoutMillis - deadline of the whole race, resolution included
+     * @return connected Socket in blocking mode
+     * @throws IOException when the host does not resolve, every attempt failed or the timeout passed
+     */
+    @RequiresPermission(Manifest.permission.INTERNET)
+    @NonNull
+    public static Socket connect(@NonNull String host, int port, @Nullable Network network, long timeoutMillis) throws IOException {
+        long deadlineMillis = SystemClock.elapsedRealtime() + timeoutMillis;
+        InetAddress[] addresses = resolve(host, network, deadlineMillis);
+        List<InetAddress> ordered = interleave(addresses, preferIpv6(network, addresses));
+        Socket socket = race(ordered, port, network, deadlineMillis);
+        LogcatUtil.informationMessage(TAG, "%s connected over %s", host, socket.getInetAddress());
+        return socket;
+    }
+
+    /**
+     * Forget the remembered family of a network, called when it is lost
+     *
+     * @param network - Network
+     */
+    static void forget(@Nullable Network network) {
+        preferenceByNetwork.remove(keyOf(network));
+    }
+
+    /* the lookup shares the deadline of the race, a resolver that hangs does not hold the caller past it */
+    private static InetAddress[] resolve(@NonNull String host, @Nullable Network network, long deadlineMillis) throws IOException {
+        long remainingMillis = Math.max(0, deadlineMillis - SystemClock.elapsedRealtime());
+        HostResolution resolution = HostResolver.resolveAll(Collections.singletonList(host), network, remainingMillis).get(host);
+        if (resolution.isResolved()) {
+            List<InetAddress> addresses = resolution.getAddresses();
+            return addresses.toArray(new InetAddress[addresses.size()]);
+        }
+        Exception error = resolution.getError();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof TimeoutException) {
+            throw new SocketTimeoutException("No address for " + host + " in time");
+        }
+        UnknownHostException unknownHost = new UnknownHostException(host);
+        unknownHost.initCause(error);
+        throw unknownHost;
+    }
+
+    /**
+     * Family order of RFC 8305 section 4: start with the preferred family, then alternate
+     */
+    static List<InetAddress> interleave(@NonNull InetAddress[] addresses, boolean preferIpv6) {
+        List<InetAddress> preferred = new ArrayList<>(addresses.length);
+        List<InetAddress> other = new ArrayList<>(addresses.length);
+        for (InetAddress address : addresses) {
+            if ((address instanceof Inet6Address) == preferIpv6) {
+                preferred.add(address);
+            } else {
+                other.add(address);
+            }
+        }
+        List<InetAddress> ordered = new ArrayList<>(addresses.length);
+        for (int i = 0; i < Math.max(preferred.size(), other.size()); i++) {
+            if (i < preferred.size()) {
+                ordered.add(preferred.get(i));
+            }
+            if (i < other.size()) {
+                ordered.add(other.get(i));
+            }
+        }
+        return ordered;
+    }
+
+    private static boolean preferIpv6(@Nullable Network network, @NonNull InetAddress[] addresses) {
+        Object key = keyOf(network);
+        Preference remembered = preferenceByNetwork.get(key);
+        if (remembered != null && (key != DEFAULT_NETWORK || NetworkEpoch.isCurrent(remembered.epoch))) {
+            return remembered.ipv6;
+        }
+        /* the resolver already sorted by RFC 6724, trust its first answer */
+        return addresses.length > 0 && addresses[0] instanceof Inet6Address;
+    }
+
+    private static Socket race(@NonNull List<InetAddress> addresses, int port, @Nullable Network network,
+                               long deadlineMillis) throws IOException {
+        Selector selector = Selector.open();
+        List<SocketChannel> attempts = new ArrayList<>(addresses.size());
+        SocketChannel winner = null;
+        IOException lastFailure = null;
+        int next = 0;
+        int inProgress = 0;
+        long nextAttemptMillis = 0;
+
+        try {
+            while (winner == null) {
+                long nowMillis = SystemClock.elapsedRealtime();
+                if (nowMillis >= deadlineMillis) {
+                    throw new SocketTimeoutException("No connection to " + addresses + " in time");
+                }
+                if (next < addresses.size() && (nowMillis >= nextAttemptMillis || inProgress == 0)) {
+                    InetAddress address = addresses.get(next++);
+                    try {
+                        SocketChannel channel = open(address, port, network);
+                        attempts.add(channel);
+                        if (channel.isConnected()) {
+                            winner = channel;
+                            break;
+                        }
+                        channel.register(selector, SelectionKey.OP_CONNECT, address);
+                        inProgress++;
+                    } catch (IOException e) {
+                        lastFailure = e;
+                    }
+                    nextAttemptMillis = nowMillis + CONNECTION_ATTEMPT_DELAY_MILLIS;
+                    continue;
+                }
+                if (inProgress == 0) {
+                    /* every address has been tried and failed */
+                    throw lastFailure != null ? lastFailure : new ConnectException("No address to connect to");
+                }
+
+                long waitMillis = deadlineMillis - nowMillis;
+                if (next < addresses.size()) {
+                    waitMillis = Math.min(waitMillis, nextAttemptMillis - nowMillis);
+                }
+                selector.select(Math.max(1, waitMillis));
+
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext() && winner == null) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    try {
+                        if (channel.finishConnect()) {
+                            key.cancel();
+                            winner = channel;
+                        }
+                    } catch (IOException e) {
+                        inProgress--;
+                        LogcatUtil.informationMessage(TAG, "%s failed: %s", key.attachment(), e);
+                        lastFailure = e;
+                        key.cancel();
+                        closeQuietly(channel);
+                        /* a failed attempt starts the next one right away */
+                        nextAttemptMillis = 0;
+                    }
+                }
+            }
+        } finally {
+            for (SocketChannel attempt : attempts) {
+                if (attempt != winner) {
+                    closeQuietly(attempt);
+                }
+            }
+            selector.close();
+        }
+
+        /* closing the selector deregistered the winner, it can go back to blocking mode */
+        winner.configureBlocking(true);
+        preferenceByNetwork.put(keyOf(network), new Preference(winner.socket().getInetAddress() instanceof Inet6Address,
+                NetworkEpoch.current()));
+        return winner.socket();
+    }
+
+    private static SocketChannel open(@NonNull InetAddress address, int port, @Nullable Network network) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            if (network != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                network.bindSocket(channel.socket());
+            }
+            channel.configureBlocking(false);
+            channel.connect(new InetSocketAddress(address, port));
+            return channel;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(@NonNull SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static Object keyOf(@Nullable Network network) {
+        return network != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? network : DEFAULT_NETWORK;
+    }
+
+    private static final class Preference {
+
+        final boolean ipv6;
+        /* only checked for the default network, an explicit network keeps its preference until it is lost */
+        final int epoch;
+
+        Preference(boolean ipv6, int epoch) {
+            this.ipv6   = ipv6;
+            this.epoch  = epoch;
+        }
+    }
+
+    private HappyEyeballsConnector() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
@@ -0,0 +1,96 @@
+package com.network.internet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of resolving one host with {@link HostResolver}: every address, or why there is none
+ */
+public final class HostResolution {
+
+    private final String host;
+    private final List<InetAddress> addresses;
+    private final Exception error;
+    private final long elapsedMillis;
+
+    HostResolution(@NonNull String host, @Nullable InetAddress[] addresses, @Nullable Exception error, long elapsedMillis) {
+        this.host           = host;
+        this.addresses      = addresses != null
+                ? Collections.unmodifiableList(Arrays.asList(addresses.clone()))
+                : Collections.<InetAddress>emptyList();
+        this.error          = error;
+        this.elapsedMillis  = elapsedMillis;
+    }
+
+    @NonNull
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Every A and AAAA record, in resolver order
+     *
+     * @return addresses, empty when the host did not resolve
+     */
+    @NonNull
+    public List<InetAddress> getAddresses() {
+        return addresses;
+    }
+
+    public boolean isResolved() {
+        return !addresses.isEmpty();
+    }
+
+    public boolean hasIpv4() {
+        for (InetAddress address : addresses) {
+            if (address instanceof Inet4Address) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasIpv6() {
+        for (InetAddress address : addresses) {
+            if (address instanceof Inet6Address) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Why the host did not resolve
+     *
+     * @return UnknownHostException, TimeoutException when the deadline passed first, or {@code null}
+     */
+    @Nullable
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * Time spent on this host, up to the deadline when it timed out
+     *
+     * @return milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "HostResolution{" +
+                "host=" + host +
+                ", addresses=" + addresses +
+                ", error=" + error +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,146 @@
+package com.network.internet;
+
+import android.Manifest;
+import android.net.Network;
+import android.os.Build;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresPermission;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves many hosts at once, each on the DNS servers of a chosen network.
+ *
+ * <p>Lookups run on a bounded pool of {@link #MAX_THREADS} daemon threads and the whole batch shares one
+ * deadline. A host that is not resolved by then is reported with a TimeoutException, the lookup itself
+ * keeps its thread until the platform resolver gives up. From Lollipop a given {@link Network} is
+ * resolved with {@link Network#getAllByName(String)}, so the answer comes from that network's DNS servers
+ * even while the default network is switching. Without a network the lookup goes through {@link DnsCache}.</p>
+ */
+public final class HostResolver {
+
+    public static final int MAX_THREADS = 4;
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "HostResolver-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Resolve every host in parallel, blocks up to the timeout
+     *
+     * @param hosts         - host names or literal addresses, duplicates are resolved once
+     * @param network       - Network whose DNS servers to use, {@code null} for the default network
+     * @param timeoutMillis - deadline of the whole batch
+     * @return one HostResolution per host, in the order of the collection
+     */
+    @RequiresPermission(Manifest.permission.INTERNET)
+    @NonNull
+    public static Map<String, HostResolution> resolveAll(@NonNull Collection<String> hosts, @Nullable final Network network,
+                                                         long timeoutMillis) {
+        final long startMillis = SystemClock.elapsedRealtime();
+        long deadlineMillis = startMillis + timeoutMillis;
+
+        Map<String, Future<HostResolution>> futures = new LinkedHashMap<>();
+        Map<String, HostResolution> results = new LinkedHashMap<>();
+        for (final String host : hosts) {
+            if (futures.containsKey(host) || results.containsKey(host)) {
+                continue;
+            }
+            try {
+                futures.put(host, executor.submit(new Callable<HostResolution>() {
+                    @Override
+                    public HostResolution call() {
+                        return resolve(host, network);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                results.put(host, new HostResolution(host, null, e, 0));
+            }
+        }
+
+        for (Map.Entry<String, Future<HostResolution>> entry : futures.entrySet()) {
+            String host = entry.getKey();
+            Future<HostResolution> future = entry.getValue();
+            long remainingMillis = deadlineMillis - SystemClock.elapsedRealtime();
+            try {
+                results.put(host, future.get(Math.max(0, remainingMillis), TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                results.put(host, new HostResolution(host, null, e, SystemClock.elapsedRealtime() - startMillis));
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                results.put(host, new HostResolution(host, null, cause, SystemClock.elapsedRealtime() - startMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                results.put(host, new HostResolution(host, null, e, SystemClock.elapsedRealtime() - startMillis));
+            }
+        }
+
+        /* results of rejected hosts were added first, restore the caller's order */
+        Map<String, HostResolution> ordered = new LinkedHashMap<>();
+        for (String host : hosts) {
+            ordered.put(host, results.get(host));
+        }
+        return ordered;
+    }
+
+    /**
+     * Resolve one host on the calling thread
+     *
+     * @param host    - host name or literal address
+     * @param network - Network whose DNS servers to use, {@code null} for the default network
+     * @return every address of the host
+     * @throws UnknownHostException when the host does not resolve
+     */
+    @RequiresPermission(Manifest.permission.INTERNET)
+    @NonNull
+    public static InetAddress[] getAllByName(@NonNull String host, @Nullable Network network) throws UnknownHostException {
+        if (network != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return network.getAllByName(host);
+        }
+        return DnsCache.getInstance().resolve(host);
+    }
+
+    private static HostResolution resolve(@NonNull String host, @Nullable Network network) {
+        long startMillis = SystemClock.elapsedRealtime();
+        try {
+            InetAddress[] addresses = getAllByName(host, network);
+            return new HostResolution(host, addresses, null, SystemClock.elapsedRealtime() - startMillis);
+        } catch (UnknownHostException e) {
+            return new HostResolution(host, null, e, SystemClock.elapsedRealtime() - startMillis);
+        }
+    }
+
+    private HostResolver() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
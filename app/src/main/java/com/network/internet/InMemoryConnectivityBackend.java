@@ -0,0 +1,100 @@
+package com.network.internet;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiManager;
+import android.telephony.TelephonyManager;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Backend whose answers are set by the caller, for JVM tests and benchmarks.
+ * Install it with {@link ConnectivityBackends#install(ConnectivityBackend)}. It has no system services.
+ */
+public final class InMemoryConnectivityBackend implements ConnectivityBackend {
+
+    private volatile NetworkInfo activeNetworkInfo;
+    private volatile int activeNetworkType = TYPE_NONE;
+    private volatile int connectedTypes;
+    private volatile boolean validated;
+
+    /**
+     * Describe the default network
+     *
+     * @param activeNetworkType - {@link #TYPE_NONE}, {@link #TYPE_MOBILE}, {@link #TYPE_WIFI} or {@link #TYPE_VPN}
+     * @param activeNetworkInfo - NetworkInfo returned by {@link #getActiveNetworkInfo()}
+     * @param validated         - whether it reaches the internet
+     * @return this
+     */
+    @NonNull
+    public InMemoryConnectivityBackend setActiveNetwork(int activeNetworkType, @Nullable NetworkInfo activeNetworkInfo,
+                                                        boolean validated) {
+        this.activeNetworkInfo  = activeNetworkInfo;
+        this.activeNetworkType  = activeNetworkType;
+        this.validated          = validated;
+        this.connectedTypes     = activeNetworkType == TYPE_MOBILE || activeNetworkType == TYPE_WIFI ? 1 << activeNetworkType : 0;
+        return this;
+    }
+
+    /**
+     * Override the connected transports, e.g. to describe Wi-Fi and cellular being up together
+     *
+     * @param connectedTypes - {@link #FLAG_MOBILE} and {@link #FLAG_WIFI} bits
+     * @return this
+     */
+    @NonNull
+    public InMemoryConnectivityBackend setConnectedTypes(int connectedTypes) {
+        this.connectedTypes = connectedTypes;
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "in-memory";
+    }
+
+    @Nullable
+    @Override
+    public NetworkInfo getActiveNetworkInfo() {
+        return activeNetworkInfo;
+    }
+
+    @Override
+    public int getActiveNetworkType() {
+        return activeNetworkType;
+    }
+
+    @Override
+    public int getConnectedTypes() {
+        return connectedTypes;
+    }
+
+    @Override
+    public boolean hasValidatedNetwork() {
+        return validated;
+    }
+
+    @Nullable
+    @Override
+    public ConnectivityManager getConnectivityManager() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public TelephonyManager getTelephonyManager() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public WifiManager getWifiManager() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectivityBackend{" + getName() + '}';
+    }
+}
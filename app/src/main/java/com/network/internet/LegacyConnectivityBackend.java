@@ -0,0 +1,53 @@
+package com.network.internet;
+
+import android.content.Context;
+import android.net.NetworkInfo;
+import androidx.annotation.NonNull;
+
+/**
+ * Below Lollipop: only NetworkInfo exists, {@code getAllNetworkInfo()} returns one per network type
+ */
+final class LegacyConnectivityBackend extends SystemConnectivityBackend {
+
+    LegacyConnectivityBackend(@NonNull Context context) {
+        super(context);
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "legacy";
+    }
+
+    @Override
+    public int getActiveNetworkType() {
+        return typeOf(getActiveNetworkInfo());
+    }
+
+    @Override
+    public int getConnectedTypes() {
+        int types = 0;
+        NetworkInfo[] networkInfos = connectivityManager != null ? connectivityManager.getAllNetworkInfo() : null;
+        if (networkInfos != null) {
+            for (NetworkInfo networkInfo : networkInfos) {
+                if (networkInfo != null && networkInfo.getState() == NetworkInfo.State.CONNECTED) {
+                    types |= flagOf(typeOf(networkInfo));
+                }
+            }
+        }
+        return types;
+    }
+
+    @Override
+    public boolean hasValidatedNetwork() {
+        NetworkInfo[] networkInfos = connectivityManager != null ? connectivityManager.getAllNetworkInfo() : null;
+        if (networkInfos != null) {
+            for (NetworkInfo networkInfo : networkInfos) {
+                if (networkInfo != null && networkInfo.getState() == NetworkInfo.State.CONNECTED) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
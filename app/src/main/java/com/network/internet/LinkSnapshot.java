@@ -0,0 +1,189 @@
+package com.network.internet;
+
+import android.net.LinkAddress;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.RouteInfo;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of the routing relevant parts of the {@link LinkProperties} of one network, kept by
+ * {@link NetworkTracker}.
+ */
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+public final class LinkSnapshot {
+
+    /* LinkProperties.getMtu() returns 0 when the network does not report one, and is only there from Q */
+    public static final int UNKNOWN_MTU = 0;
+    /* Ethernet and Wi-Fi, a safe guess for sizing buffers when the MTU is unknown */
+    public static final int DEFAULT_MTU = 1500;
+
+    private final Network network;
+    private final String interfaceName;
+    private final List<LinkAddress> linkAddresses;
+    private final List<InetAddress> dnsServers;
+    private final List<RouteInfo> routes;
+    private final String domains;
+    private final int mtu;
+    private final boolean privateDnsActive;
+    private final String privateDnsServerName;
+
+    LinkSnapshot(@NonNull Network network, @NonNull LinkProperties linkProperties) {
+        this.network        = network;
+        this.interfaceName  = linkProperties.getInterfaceName();
+        this.linkAddresses  = copyOf(linkProperties.getLinkAddresses());
+        this.dnsServers     = copyOf(linkProperties.getDnsServers());
+        this.routes         = copyOf(linkProperties.getRoutes());
+        this.domains        = linkProperties.getDomains();
+        this.mtu            = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? linkProperties.getMtu() : UNKNOWN_MTU;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            this.privateDnsActive       = linkProperties.isPrivateDnsActive();
+            this.privateDnsServerName   = linkProperties.getPrivateDnsServerName();
+        } else {
+            this.privateDnsActive       = false;
+            this.privateDnsServerName   = null;
+        }
+    }
+
+    @NonNull
+    public Network getNetwork() {
+        return network;
+    }
+
+    @Nullable
+    public String getInterfaceName() {
+        return interfaceName;
+    }
+
+    @NonNull
+    public List<LinkAddress> getLinkAddresses() {
+        return linkAddresses;
+    }
+
+    @NonNull
+    public List<InetAddress> getDnsServers() {
+        return dnsServers;
+    }
+
+    @NonNull
+    public List<RouteInfo> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * DNS search domains
+     *
+     * @return space separated domains, {@code null} if there are none
+     */
+    @Nullable
+    public String getDomains() {
+        return domains;
+    }
+
+    /**
+     * MTU of the network
+     *
+     * @return MTU in bytes, {@link #UNKNOWN_MTU} below Q or when the network does not report it
+     */
+    public int getMtu() {
+        return mtu;
+    }
+
+    /**
+     * MTU to size I/O buffers with
+     *
+     * @return MTU in bytes, {@link #DEFAULT_MTU} when it is unknown
+     */
+    public int getMtuOrDefault() {
+        return mtu > 0 ? mtu : DEFAULT_MTU;
+    }
+
+    /**
+     * Whether DNS goes over TLS, Pie and above
+     *
+     * @return {@code true}: Yes <br>{@code false}: no, or below Pie
+     */
+    public boolean isPrivateDnsActive() {
+        return privateDnsActive;
+    }
+
+    /**
+     * Host name of the private DNS server when it is set explicitly, {@code null} in automatic mode
+     *
+     * @return host name
+     */
+    @Nullable
+    public String getPrivateDnsServerName() {
+        return privateDnsServerName;
+    }
+
+    /**
+     * Whether traffic is routed the same way under both snapshots. Addresses are compared by address and prefix
+     * length only, flags and lifetimes change with every IPv6 router advertisement.
+     *
+     * @param other - snapshot to compare with
+     * @return {@code true} if every routing relevant field is equal
+     */
+    public boolean hasSameRouting(@NonNull LinkSnapshot other) {
+        return equal(interfaceName, other.interfaceName)
+                && sameAddresses(linkAddresses, other.linkAddresses)
+                && dnsServers.equals(other.dnsServers)
+                && routes.equals(other.routes)
+                && equal(domains, other.domains)
+                && mtu == other.mtu
+                && privateDnsActive == other.privateDnsActive
+                && equal(privateDnsServerName, other.privateDnsServerName);
+    }
+
+    private static boolean sameAddresses(@NonNull List<LinkAddress> a, @NonNull List<LinkAddress> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (LinkAddress address : a) {
+            if (!containsAddress(b, address)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsAddress(@NonNull List<LinkAddress> addresses, @NonNull LinkAddress address) {
+        for (LinkAddress candidate : addresses) {
+            if (candidate.getPrefixLength() == address.getPrefixLength() && equal(candidate.getAddress(), address.getAddress())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equal(@Nullable Object a, @Nullable Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @NonNull
+    private static <T> List<T> copyOf(@Nullable List<T> list) {
+        return list == null || list.isEmpty()
+                ? Collections.<T>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    @Override
+    public String toString() {
+        return "LinkSnapshot{" +
+                "network=" + network +
+                ", interfaceName=" + interfaceName +
+                ", linkAddresses=" + linkAddresses +
+                ", dnsServers=" + dnsServers +
+                ", routes=" + routes.size() +
+                ", mtu=" + mtu +
+                ", privateDnsActive=" + privateDnsActive +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package com.network.internet;
+
+import android.content.Context;
+import android.net.Network;
+import android.net.NetworkInfo;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Lollipop: there is no active Network yet, every network is looked at through {@code getAllNetworks()}
+ */
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+final class LollipopConnectivityBackend extends SystemConnectivityBackend {
+
+    LollipopConnectivityBackend(@NonNull Context context) {
+        super(context);
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "lollipop";
+    }
+
+    @Override
+    public int getActiveNetworkType() {
+        return typeOf(getActiveNetworkInfo());
+    }
+
+    @Override
+    public int getConnectedTypes() {
+        int types = 0;
+        Network[] networks = connectivityManager != null ? connectivityManager.getAllNetworks() : null;
+        if (networks != null) {
+            for (Network network : networks) {
+                NetworkInfo networkInfo = connectivityManager.getNetworkInfo(network);
+                if (networkInfo != null && networkInfo.getState() == NetworkInfo.State.CONNECTED) {
+                    types |= flagOf(typeOf(networkInfo));
+                }
+            }
+        }
+        return types;
+    }
+
+    @Override
+    public boolean hasValidatedNetwork() {
+        Network[] networks = connectivityManager != null ? connectivityManager.getAllNetworks() : null;
+        if (networks != null) {
+            for (Network network : networks) {
+                NetworkInfo networkInfo = connectivityManager.getNetworkInfo(network);
+                if (networkInfo != null && networkInfo.getState() == NetworkInfo.State.CONNECTED) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
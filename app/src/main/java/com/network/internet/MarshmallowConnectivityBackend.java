@@ -0,0 +1,59 @@
+package com.network.internet;
+
+import android.content.Context;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Marshmallow and above: everything is read from the capabilities of the default network
+ */
+@RequiresApi(api = Build.VERSION_CODES.M)
+final class MarshmallowConnectivityBackend extends SystemConnectivityBackend {
+
+    MarshmallowConnectivityBackend(@NonNull Context context) {
+        super(context);
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "marshmallow";
+    }
+
+    @Override
+    public int getActiveNetworkType() {
+        NetworkCapabilities capabilities = getActiveCapabilities();
+        if (capabilities == null) {
+            return TYPE_NONE;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return TYPE_MOBILE;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return TYPE_WIFI;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
+            return TYPE_VPN;
+        }
+        return TYPE_NONE;
+    }
+
+    @Override
+    public int getConnectedTypes() {
+        return flagOf(getActiveNetworkType());
+    }
+
+    @Override
+    public boolean hasValidatedNetwork() {
+        NetworkCapabilities capabilities = getActiveCapabilities();
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+
+    @Nullable
+    private NetworkCapabilities getActiveCapabilities() {
+        return connectivityManager != null
+                ? connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork())
+                : null;
+    }
+}
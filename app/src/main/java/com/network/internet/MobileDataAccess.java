@@ -0,0 +1,293 @@
+package com.network.internet;
+
+import android.Manifest;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Build;
+import android.telephony.TelephonyManager;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.RequiresPermission;
+import com.network.util.LogcatUtil;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Reads and toggles the mobile data setting, resolving the hidden APIs this needs only once.
+ *
+ * <p>Every reflective handle is looked up lazily on first use and kept, including a failed lookup, so a
+ * device without the hidden method pays for {@code getDeclaredMethod} once and not on every poll. From Oreo
+ * the public {@link TelephonyManager#isDataEnabled()} is used for queries, unless it was refused once for lack
+ * of READ_PHONE_STATE, then the hidden method answers for the rest of the process. {@link #getCapabilities(Context)}
+ * tells which mechanism is in use.</p>
+ */
+public final class MobileDataAccess {
+
+    private static final String TAG = MobileDataAccess.class.getSimpleName();
+
+    public enum Mechanism {
+        /**
+         * TelephonyManager.isDataEnabled(), API 26 and above
+         */
+        PUBLIC_API,
+        /**
+         * Hidden TelephonyManager.getDataEnabled() / setDataEnabled(boolean)
+         */
+        TELEPHONY_REFLECTION,
+        /**
+         * Hidden IConnectivityManager.setMobileDataEnabled(boolean) behind ConnectivityManager.mService, below Lollipop
+         */
+        CONNECTIVITY_REFLECTION,
+        /**
+         * Nothing usable on this device
+         */
+        UNSUPPORTED
+    }
+
+    /**
+     * Which mechanism answers queries and which one toggles, resolved once per process
+     */
+    public static final class Capabilities {
+
+        private final Mechanism queryMechanism;
+        private final Mechanism toggleMechanism;
+
+        Capabilities(@NonNull Mechanism queryMechanism, @NonNull Mechanism toggleMechanism) {
+            this.queryMechanism  = queryMechanism;
+            this.toggleMechanism = toggleMechanism;
+        }
+
+        @NonNull
+        public Mechanism getQueryMechanism() {
+            return queryMechanism;
+        }
+
+        @NonNull
+        public Mechanism getToggleMechanism() {
+            return toggleMechanism;
+        }
+
+        public boolean canQuery() {
+            return queryMechanism != Mechanism.UNSUPPORTED;
+        }
+
+        public boolean canToggle() {
+            return toggleMechanism != Mechanism.UNSUPPORTED;
+        }
+
+        @Override
+        public String toString() {
+            return "Capabilities{" +
+                    "query=" + queryMechanism +
+                    ", toggle=" + toggleMechanism +
+                    '}';
+        }
+    }
+
+    /* holder classes: the JVM initialises each one once, on first use, under its own class lock */
+
+    private static final class GetDataEnabledHolder {
+        static final Method METHOD = findMethod(TelephonyManager.class, "getDataEnabled");
+    }
+
+    private static final class SetDataEnabledHolder {
+        static final Method METHOD = findMethod(TelephonyManager.class, "setDataEnabled", boolean.class);
+    }
+
+    private static final class ConnectivityServiceHolder {
+        static final Field FIELD = findField(ConnectivityManager.class, "mService");
+    }
+
+    /* the IConnectivityManager implementation class is only known once we hold an instance */
+    private static volatile boolean setMobileDataEnabledResolved;
+    private static volatile Method setMobileDataEnabledMethod;
+
+    private static volatile Capabilities capabilities;
+    /* isDataEnabled() threw a SecurityException, the manifest does not ask for READ_PHONE_STATE */
+    private static volatile boolean publicApiDenied;
+
+    /**
+     * Whether mobile data is enabled
+     *
+     * @param context - Context
+     * @return {@code true}: Yes <br>{@code false}: no, or it cannot be told on this device
+     */
+    public static boolean isEnabled(@NonNull Context context) {
+        TelephonyManager telephonyManager = ConnectivityBackends.get(context).getTelephonyManager();
+        if (telephonyManager == null) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && !publicApiDenied) {
+            Boolean enabled = isDataEnabled(telephonyManager);
+            if (enabled != null) {
+                return enabled;
+            }
+        }
+        Method method = GetDataEnabledHolder.METHOD;
+        if (method == null) {
+            return false;
+        }
+        Object result = invoke(method, telephonyManager);
+        return result instanceof Boolean && (Boolean) result;
+    }
+
+    /* null when the public API is refused, that is remembered and not tried again */
+    @Nullable
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private static Boolean isDataEnabled(@NonNull TelephonyManager telephonyManager) {
+        try {
+            return telephonyManager.isDataEnabled();
+        } catch (SecurityException e) {
+            /* needs READ_PHONE_STATE, the hidden method may not */
+            LogcatUtil.debuggingMessage(TAG, "isDataEnabled() not allowed, using getDataEnabled() from now on");
+            publicApiDenied = true;
+            capabilities = null;
+            return null;
+        }
+    }
+
+    /**
+     * Turn mobile data on or off, only works for system applications
+     *
+     * @param context - Context
+     * @param enabled - {@code true}: turn on <br>{@code false}: shut down
+     * @return {@code true} if a mechanism accepted the call
+     */
+    @RequiresPermission(Manifest.permission.MODIFY_PHONE_STATE)
+    public static boolean setEnabled(@NonNull Context context, boolean enabled) {
+        if (SetDataEnabledHolder.METHOD != null) {
+            TelephonyManager telephonyManager = ConnectivityBackends.get(context).getTelephonyManager();
+            if (telephonyManager != null && invoke(SetDataEnabledHolder.METHOD, telephonyManager, enabled) != FAILED) {
+                return true;
+            }
+        }
+        return setMobileDataEnabled(context, enabled);
+    }
+
+    /**
+     * Turn mobile data on or off through IConnectivityManager, the mechanism of Gingerbread to KitKat
+     *
+     * @param context - Context
+     * @param enabled - {@code true}: turn on <br>{@code false}: shut down
+     * @return {@code true} if the call went through
+     */
+    static boolean setMobileDataEnabled(@NonNull Context context, boolean enabled) {
+        Object connectivityService = getConnectivityService(context);
+        if (connectivityService == null) {
+            return false;
+        }
+        Method method = getSetMobileDataEnabledMethod(connectivityService);
+        return method != null && invoke(method, connectivityService, enabled) != FAILED;
+    }
+
+    /**
+     * Which mechanisms this device supports, resolved on the first call
+     *
+     * @param context - Context
+     * @return Capabilities
+     */
+    @NonNull
+    public static Capabilities getCapabilities(@NonNull Context context) {
+        Capabilities result = capabilities;
+        if (result == null) {
+            Mechanism query;
+            TelephonyManager telephonyManager = ConnectivityBackends.get(context).getTelephonyManager();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && !publicApiDenied
+                    && telephonyManager != null && isDataEnabled(telephonyManager) != null) {
+                query = Mechanism.PUBLIC_API;
+            } else if (GetDataEnabledHolder.METHOD != null) {
+                query = Mechanism.TELEPHONY_REFLECTION;
+            } else {
+                query = Mechanism.UNSUPPORTED;
+            }
+
+            Mechanism toggle;
+            if (SetDataEnabledHolder.METHOD != null) {
+                toggle = Mechanism.TELEPHONY_REFLECTION;
+            } else {
+                Object connectivityService = getConnectivityService(context);
+                toggle = connectivityService != null && getSetMobileDataEnabledMethod(connectivityService) != null
+                        ? Mechanism.CONNECTIVITY_REFLECTION
+                        : Mechanism.UNSUPPORTED;
+            }
+            result = new Capabilities(query, toggle);
+            capabilities = result;
+            LogcatUtil.informationMessage(TAG, "%s", result);
+        }
+        return result;
+    }
+
+    @Nullable
+    private static Object getConnectivityService(@NonNull Context context) {
+        Field field = ConnectivityServiceHolder.FIELD;
+        ConnectivityManager connectivityManager = ConnectivityBackends.get(context).getConnectivityManager();
+        if (field == null || connectivityManager == null) {
+            return null;
+        }
+        try {
+            return field.get(connectivityManager);
+        } catch (IllegalAccessException e) {
+            LogcatUtil.warningMessage(TAG, "ConnectivityManager.mService not readable", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Method getSetMobileDataEnabledMethod(@NonNull Object connectivityService) {
+        if (!setMobileDataEnabledResolved) {
+            synchronized (MobileDataAccess.class) {
+                if (!setMobileDataEnabledResolved) {
+                    setMobileDataEnabledMethod = findMethod(connectivityService.getClass(), "setMobileDataEnabled", boolean.class);
+                    setMobileDataEnabledResolved = true;
+                }
+            }
+        }
+        return setMobileDataEnabledMethod;
+    }
+
+    /* returned by invoke() when the call failed, a void method returns null */
+    private static final Object FAILED = new Object();
+
+    private static Object invoke(@NonNull Method method, @NonNull Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            LogcatUtil.warningMessage(TAG, method.getName() + " not accessible", e);
+        } catch (InvocationTargetException e) {
+            /* usually a SecurityException, the caller is not a system application */
+            LogcatUtil.warningMessage(TAG, method.getName() + " failed", e.getCause());
+        }
+        return FAILED;
+    }
+
+    @Nullable
+    private static Method findMethod(@NonNull Class<?> type, @NonNull String name, Class<?>... parameterTypes) {
+        try {
+            Method method = type.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException | RuntimeException e) {
+            LogcatUtil.informationMessage(TAG, "%s.%s not available: %s", type.getSimpleName(), name, e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Field findField(@NonNull Class<?> type, @NonNull String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException | RuntimeException e) {
+            LogcatUtil.informationMessage(TAG, "%s.%s not available: %s", type.getSimpleName(), name, e);
+            return null;
+        }
+    }
+
+    private MobileDataAccess() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
@@ -6,26 +6,43 @@ import android.net.ConnectivityManager;
 import android.net.LinkProperties;
 import android.net.Network;
 import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
 import android.os.Build;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import com.network.util.LogcatUtil;
 
+/**
+ * From Nougat the callback is registered with registerDefaultNetworkCallback and only hears about the default
+ * network. Below Nougat it is registered for any Wi-Fi or cellular network, so callbacks of a network that is
+ * not the active one only go into {@link ConnectivityHistory} and do not touch {@link ConnectivitySnapshot}.
+ */
 @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
 public class NetworkCallbackImpl extends ConnectivityManager.NetworkCallback {
 
     private static final String TAG = NetworkCallbackImpl.class.getSimpleName();
-    private Context context;
+    private ConnectivityManager connectivityManager;
+    private Network lastNetwork;
+    private NetworkInfo lastNetworkInfo;
 
     NetworkCallbackImpl(@NonNull Context context) {
-        this.context = context;
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
     }
 
     @Override
     public void onAvailable(@NonNull Network network) {
         super.onAvailable(network);
         LogcatUtil.informationMessage(TAG,"Network Available (CONNECTED)");
-        context.sendBroadcast(getNetworkAvailabilityIntent(true));
+        NetworkCapabilities networkCapabilities = connectivityManager.getNetworkCapabilities(network);
+        record(ConnectivityHistory.TYPE_AVAILABLE, network, networkCapabilities, 0);
+        if (!isDefaultNetwork(network))
+        {
+            return;
+        }
+        publishSnapshot(network, networkCapabilities);
+        ConnectivityStateMachine.getInstance().onRawCallback(ConnectivityStateMachine.stateOf(ConnectivitySnapshot.current()), ConnectivitySnapshot.current());
+        NetworkTaskScheduler.onNetworkChanged();
     }
 
     @Override
@@ -36,14 +53,40 @@ public class NetworkCallbackImpl extends ConnectivityManager.NetworkCallback {
          * new replacement network,
          */
         LogcatUtil.informationMessage(TAG,"Network Losing");
-        context.sendBroadcast(getNetworkAvailabilityIntent(false));
+        record(ConnectivityHistory.TYPE_LOSING, network, null, maxMsToLive);
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot == null || network.equals(snapshot.getNetwork()))
+        {
+            ConnectivityStateMachine.getInstance().onRawCallback(ConnectivityStateMachine.State.LOSING, snapshot);
+        }
     }
 
     @Override
     public void onLost(@NonNull Network network) {
         super.onLost(network);
         LogcatUtil.informationMessage(TAG,"Network Lost (DISCONNECTED)");
-        context.sendBroadcast(getNetworkAvailabilityIntent(false));
+        record(ConnectivityHistory.TYPE_LOST, network, null, 0);
+        ReachabilityProber.getInstance().invalidate(network);
+        HappyEyeballsConnector.forget(network);
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot == null || network.equals(snapshot.getNetwork()))
+        {
+            /* below Nougat another network the callback already saw may have taken over */
+            Network activeNetwork = Build.VERSION.SDK_INT < Build.VERSION_CODES.N ? getActiveNetwork() : null;
+            if (activeNetwork != null && !activeNetwork.equals(network))
+            {
+                publishSnapshot(activeNetwork, connectivityManager.getNetworkCapabilities(activeNetwork));
+            }
+            else
+            {
+                ConnectivitySnapshot.publish(ConnectivitySnapshot.DISCONNECTED);
+                NetworkConstraints.onNoNetwork();
+                TransferPolicy.onNetwork(false, ConnectivityBackend.TYPE_NONE, 0, 0);
+            }
+        }
+        /* another network may still be up, the snapshot says which state we are in */
+        ConnectivityStateMachine.getInstance().onRawCallback(ConnectivityStateMachine.stateOf(ConnectivitySnapshot.current()), ConnectivitySnapshot.current());
+        NetworkTaskScheduler.onNetworkChanged();
     }
 
     @Override
@@ -53,7 +96,12 @@ public class NetworkCallbackImpl extends ConnectivityManager.NetworkCallback {
          * If the network is not found within the specified timeout period, call
          */
         LogcatUtil.informationMessage(TAG,"Network Unavailable");
-        context.sendBroadcast(getNetworkAvailabilityIntent(false));
+        record(ConnectivityHistory.TYPE_UNAVAILABLE, null, null, 0);
+        ConnectivitySnapshot.publish(ConnectivitySnapshot.DISCONNECTED);
+        NetworkConstraints.onNoNetwork();
+        TransferPolicy.onNetwork(false, ConnectivityBackend.TYPE_NONE, 0, 0);
+        ConnectivityStateMachine.getInstance().onRawCallback(ConnectivityStateMachine.State.DISCONNECTED, ConnectivitySnapshot.DISCONNECTED);
+        NetworkTaskScheduler.onNetworkChanged();
     }
 
     @Override
@@ -63,21 +111,15 @@ public class NetworkCallbackImpl extends ConnectivityManager.NetworkCallback {
          * Called when the network is connected to the requested framework* to change the function but still meets the specified requirements.
          */
         boolean isInternet = networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);//Get whether you can connect to the Internet
-        LogcatUtil.informationMessage(TAG,"onCapabilitiesChanged : isInternet = " + isInternet);
-
-        /*if(networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET))
+        LogcatUtil.informationMessage(TAG, "onCapabilitiesChanged : isInternet = %s", isInternet);
+        record(ConnectivityHistory.TYPE_CAPABILITIES_CHANGED, network, networkCapabilities, 0);
+        if (!isDefaultNetwork(network))
         {
-            if(networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
-            {
-                LogcatUtil.errorMessage("Network", "getAllNetworks() : MOBILE");
-                context.sendBroadcast(getNetworkAvailabilityIntent(true
-            }
-            else if (networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI))
-            {
-                LogcatUtil.errorMessage("Network", "getAllNetworks() : WIFI");
-                context.sendBroadcast(getNetworkAvailabilityIntent(true));
-            }
-        }*/
+            return;
+        }
+        publishSnapshot(network, networkCapabilities);
+        ConnectivityStateMachine.getInstance().onRawCallback(ConnectivityStateMachine.stateOf(ConnectivitySnapshot.current()), ConnectivitySnapshot.current());
+        NetworkTaskScheduler.onNetworkChanged();
     }
 
     @Override
@@ -87,6 +129,8 @@ public class NetworkCallbackImpl extends ConnectivityManager.NetworkCallback {
          * Called when the framework network connected to the request changes.
          */
         LogcatUtil.informationMessage(TAG,"onLinkPropertiesChanged");
+        record(ConnectivityHistory.TYPE_LINK_PROPERTIES_CHANGED, network, null,
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? linkProperties.getMtu() : 0);
     }
 
     @Override
@@ -96,8 +140,84 @@ public class NetworkCallbackImpl extends ConnectivityManager.NetworkCallback {
          * Called when access to the specified network is blocked or unblocked
          */
         LogcatUtil.informationMessage(TAG,"onBlockedStatusChanged");
+        record(ConnectivityHistory.TYPE_BLOCKED_STATUS_CHANGED, network, null, blocked ? 1 : 0);
+        NetworkConstraints.onBlocked(blocked);
+    }
+
+    /**
+     * Every callback goes into {@link ConnectivityHistory} and is counted by {@link ConnectivityMetrics}
+     */
+    private static void record(int type, @Nullable Network network, @Nullable NetworkCapabilities networkCapabilities, int extra) {
+        ConnectivityHistory.getInstance().record(type, network, networkCapabilities, extra);
+        ConnectivityMetrics.onCallback(type);
+    }
+
+    /**
+     * Whether a callback is about the network the system uses by default
+     */
+    private boolean isDefaultNetwork(@NonNull Network network) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+        {
+            return true;
+        }
+        return network.equals(getActiveNetwork());
+    }
+
+    /**
+     * Active network below Nougat. Lollipop has no getActiveNetwork(), there the connected network of the type
+     * of getActiveNetworkInfo() is used.
+     */
+    @Nullable
+    private Network getActiveNetwork() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
+        {
+            return connectivityManager.getActiveNetwork();
+        }
+        NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
+        if (activeNetworkInfo == null || !activeNetworkInfo.isConnected())
+        {
+            return null;
+        }
+        for (Network network : connectivityManager.getAllNetworks())
+        {
+            NetworkInfo networkInfo = connectivityManager.getNetworkInfo(network);
+            if (networkInfo != null && networkInfo.isConnected() && networkInfo.getType() == activeNetworkInfo.getType())
+            {
+                return network;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keep {@link ConnectivitySnapshot} current so queries do not need a binder call.
+     * The legacy NetworkInfo is only fetched when the network changes, it is needed for the mobile subtype.
+     */
+    private void publishSnapshot(@NonNull Network network, @Nullable NetworkCapabilities networkCapabilities) {
+        if (!network.equals(lastNetwork) || lastNetworkInfo == null)
+        {
+            if (lastNetwork != null && !network.equals(lastNetwork))
+            {
+                BandwidthEstimator.getInstance().onDefaultNetworkChanged();
+                NetworkEpoch.advance("default network changed");
+            }
+            lastNetworkInfo = connectivityManager.getNetworkInfo(network);
+            lastNetwork = network;
+        }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.from(network, networkCapabilities, lastNetworkInfo);
+        ConnectivitySnapshot.publish(snapshot);
+        NetworkConstraints.onDefaultNetwork(networkCapabilities, lastNetworkInfo);
+        if (networkCapabilities != null)
+        {
+            TransferPolicy.onNetwork(true, snapshot.getNetworkType(),
+                    networkCapabilities.getLinkDownstreamBandwidthKbps(), networkCapabilities.getLinkUpstreamBandwidthKbps());
+        }
     }
 
+    /**
+     * Connectivity changes are delivered in-process by {@link ConnectivityEventBus}, this intent is only kept
+     * for code that still listens for {@link RegisterAndUnregisterNetworkReceiver#NETWORK_AVAILABILITY_ACTION}.
+     */
     public Intent getNetworkAvailabilityIntent(boolean isNetworkAvailable) {
         Intent intent = new Intent(RegisterAndUnregisterNetworkReceiver.NETWORK_AVAILABILITY_ACTION);
         intent.putExtra(ConnectivityManager.EXTRA_NO_CONNECTIVITY, !isNetworkAvailable);
@@ -1,14 +1,12 @@
 package com.network.internet;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.Network;
-import android.net.NetworkCapabilities;
 import android.net.NetworkInfo;
 import android.net.wifi.WifiManager;
 import android.os.Build;
@@ -16,10 +14,6 @@ import android.telephony.TelephonyManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresPermission;
 import com.network.util.LogcatUtil;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.net.InetAddress;
 import java.net.UnknownHostException;
 
 public class NetworkConnectivityUtil {
@@ -69,21 +63,16 @@ public class NetworkConnectivityUtil {
 
     /**
      * Determine whether mobile data is open
+     * <p>Hidden methods are resolved once, see {@link MobileDataAccess}</p>
      *
      * @param context - Context
      * @return {@code true}: Yes <br>{@code false}: no
      */
     public static boolean getDataEnabled(@NonNull Context context) {
-        try {
-            TelephonyManager telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
-            Method getMobileDataEnabledMethod = telephonyManager.getClass().getDeclaredMethod("getDataEnabled");
-            if (null != getMobileDataEnabledMethod) {
-                return (boolean) getMobileDataEnabledMethod.invoke(telephonyManager);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
+        long start = System.nanoTime();
+        boolean enabled = MobileDataAccess.isEnabled(context);
+        ConnectivityMetrics.BINDER_DATA_ENABLED.recordMicrosSince(start);
+        return enabled;
     }
 
     /**
@@ -95,47 +84,20 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.MODIFY_PHONE_STATE)
     public static void setDataEnabled(@NonNull Context context, final boolean enabled) {
-        try {
-            TelephonyManager telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
-            Method setMobileDataEnabledMethod = telephonyManager.getClass().getDeclaredMethod("setDataEnabled", boolean.class);
-            if (null != setMobileDataEnabledMethod) {
-                setMobileDataEnabledMethod.invoke(telephonyManager, enabled);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        long start = System.nanoTime();
+        MobileDataAccess.setEnabled(context, enabled);
+        ConnectivityMetrics.BINDER_SET_DATA_ENABLED.recordMicrosSince(start);
     }
 
-    private void setMobileDataEnabled(Context context, boolean enabled) {
-        final ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        try
-        {
-            final Class conmanClass = Class.forName(connectivityManager.getClass().getName());
-            final Field iConnectivityManagerField = conmanClass.getDeclaredField("mService");
-            iConnectivityManagerField.setAccessible(true);
-            final Object iConnectivityManager = iConnectivityManagerField.get(connectivityManager);
-            final Class iConnectivityManagerClass = Class.forName(iConnectivityManager.getClass().getName());
-            final Method setMobileDataEnabledMethod = iConnectivityManagerClass.getDeclaredMethod("setMobileDataEnabled", Boolean.TYPE);
-            setMobileDataEnabledMethod.setAccessible(true);
-            setMobileDataEnabledMethod.invoke(iConnectivityManager, enabled);
-        }
-        catch (ClassNotFoundException e)
-        {
-            e.printStackTrace();
-        }
-        catch (InvocationTargetException e)
-        {
-            e.printStackTrace();
-        }
-        catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        catch (IllegalAccessException e) {
-            e.printStackTrace();
-        }
-        catch (NoSuchFieldException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Which mechanism reads and toggles mobile data on this device
+     *
+     * @param context - Context
+     * @return MobileDataAccess.Capabilities
+     */
+    @NonNull
+    public static MobileDataAccess.Capabilities getMobileDataCapabilities(@NonNull Context context) {
+        return MobileDataAccess.getCapabilities(context);
     }
 
     /**
@@ -146,9 +108,15 @@ public class NetworkConnectivityUtil {
      * @return {@code true}: Yes <br>{@code false}: no
      */
     public static boolean getWifiEnabled(@NonNull Context context) {
-        @SuppressLint("WifiManagerLeak")
-        WifiManager wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
-        return wifiManager.isWifiEnabled();
+        WifiManager wifiManager = ConnectivityBackends.get(context).getWifiManager();
+        return wifiManager != null && isWifiEnabled(wifiManager);
+    }
+
+    private static boolean isWifiEnabled(@NonNull WifiManager wifiManager) {
+        long start = System.nanoTime();
+        boolean enabled = wifiManager.isWifiEnabled();
+        ConnectivityMetrics.BINDER_WIFI_ENABLED.recordMicrosSince(start);
+        return enabled;
     }
 
     /**
@@ -159,16 +127,14 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.CHANGE_WIFI_STATE)
     public static void setWifiEnabled(@NonNull Context context, boolean enabled) {
-        @SuppressLint("WifiManagerLeak")
-        WifiManager wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
-        if (enabled) {
-            if (!wifiManager.isWifiEnabled()) {
-                wifiManager.setWifiEnabled(true);
-            }
-        } else {
-            if (wifiManager.isWifiEnabled()) {
-                wifiManager.setWifiEnabled(false);
-            }
+        WifiManager wifiManager = ConnectivityBackends.get(context).getWifiManager();
+        if (wifiManager == null) {
+            return;
+        }
+        if (isWifiEnabled(wifiManager) != enabled) {
+            long start = System.nanoTime();
+            wifiManager.setWifiEnabled(enabled);
+            ConnectivityMetrics.BINDER_SET_WIFI_ENABLED.recordMicrosSince(start);
         }
     }
 
@@ -180,8 +146,14 @@ public class NetworkConnectivityUtil {
      * @return Operator name
      */
     public static String getNetworkOperatorName(@NonNull Context context) {
-        TelephonyManager telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
-        return telephonyManager != null ? telephonyManager.getNetworkOperatorName() : null;
+        TelephonyManager telephonyManager = ConnectivityBackends.get(context).getTelephonyManager();
+        if (telephonyManager == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        String networkOperatorName = telephonyManager.getNetworkOperatorName();
+        ConnectivityMetrics.BINDER_NETWORK_OPERATOR_NAME.recordMicrosSince(start);
+        return networkOperatorName;
     }
 
     /**
@@ -197,24 +169,29 @@ public class NetworkConnectivityUtil {
      * </ul>
      */
     public static int getPhoneType(@NonNull Context context) {
-        TelephonyManager telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
-        return telephonyManager != null ? telephonyManager.getPhoneType() : -1;
+        TelephonyManager telephonyManager = ConnectivityBackends.get(context).getTelephonyManager();
+        if (telephonyManager == null) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        int phoneType = telephonyManager.getPhoneType();
+        ConnectivityMetrics.BINDER_PHONE_TYPE.recordMicrosSince(start);
+        return phoneType;
     }
 
     /**
      * Get domain name ip address
+     * <p>Answered by {@link DnsCache}, only a miss blocks for the resolver.</p>
      *
      * @param domain domain name
-     * @return ip address
+     * @return ip address, {@code null} if the domain does not resolve
      */
     @RequiresPermission(Manifest.permission.INTERNET)
     public static String getDomainAddress(final String domain) {
-        InetAddress inetAddress;
         try {
-            inetAddress = InetAddress.getByName(domain);
-            return inetAddress.getHostAddress();
+            return DnsCache.getInstance().resolve(domain)[0].getHostAddress();
         } catch (UnknownHostException e) {
-            e.printStackTrace();
+            LogcatUtil.warningMessage("Network", "getDomainAddress(%s) : %s", domain, e.getMessage());
             return null;
         }
     }
@@ -228,14 +205,35 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.ACCESS_NETWORK_STATE)
     private static NetworkInfo getActiveNetworkInfo(@NonNull Context context) {
-        NetworkInfo networkInfo = null;
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        if (connectivityManager != null) {
-            networkInfo = connectivityManager.getActiveNetworkInfo();
-        }
+        long start = System.nanoTime();
+        NetworkInfo networkInfo = ConnectivityBackends.get(context).getActiveNetworkInfo();
+        ConnectivityMetrics.BINDER_ACTIVE_NETWORK_INFO.recordMicrosSince(start);
         return networkInfo;
     }
 
+    /* the other backend queries, timed the same way, each is one or more binder calls on a platform backend */
+
+    private static int getActiveNetworkType(@NonNull Context context) {
+        long start = System.nanoTime();
+        int type = ConnectivityBackends.get(context).getActiveNetworkType();
+        ConnectivityMetrics.BINDER_ACTIVE_NETWORK_TYPE.recordMicrosSince(start);
+        return type;
+    }
+
+    private static int getConnectedTypes(@NonNull Context context) {
+        long start = System.nanoTime();
+        int types = ConnectivityBackends.get(context).getConnectedTypes();
+        ConnectivityMetrics.BINDER_CONNECTED_TYPES.recordMicrosSince(start);
+        return types;
+    }
+
+    private static boolean hasValidatedNetwork(@NonNull Context context) {
+        long start = System.nanoTime();
+        boolean validated = ConnectivityBackends.get(context).hasValidatedNetwork();
+        ConnectivityMetrics.BINDER_VALIDATED_NETWORK.recordMicrosSince(start);
+        return validated;
+    }
+
     /**
      * Is there a network
      * <p>Need to add permissions {@code <uses-permission android:name="android.permission.ACCESS_NETWORK_STATE"/>}</p>
@@ -245,6 +243,11 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.ACCESS_NETWORK_STATE)
     public static boolean isNetWorkAvailable(@NonNull Context context) {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isConnected();
+        }
+
         NetworkInfo networkInfo = getActiveNetworkInfo(context);
         if (networkInfo == null || !networkInfo.isAvailable()) {
             return false;
@@ -262,6 +265,11 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.ACCESS_NETWORK_STATE)
     public static boolean isConnected(@NonNull Context context) {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isConnected();
+        }
+
         NetworkInfo networkInfo = getActiveNetworkInfo(context);
         return (networkInfo != null && networkInfo.isAvailable() && networkInfo.isConnectedOrConnecting());
     }
@@ -277,6 +285,14 @@ public class NetworkConnectivityUtil {
      * 3: net network (TYPE_MOBILE)
      */
     public static int getNetworkType(@NonNull Context context) {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            if (snapshot.isMobile()) {
+                return "cmnet".equalsIgnoreCase(snapshot.getExtraInfo()) ? 3 : 2;
+            }
+            return snapshot.isWifi() ? 1 : -1;
+        }
+
         int netType = -1;
         NetworkInfo networkInfo = getActiveNetworkInfo(context);
         if (networkInfo == null) {
@@ -303,6 +319,11 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.ACCESS_NETWORK_STATE)
     public static boolean isMobileConnected(@NonNull Context context) {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isMobile();
+        }
+
         NetworkInfo networkInfo = getActiveNetworkInfo(context);
         return (networkInfo != null && networkInfo.isAvailable() && networkInfo.isConnected() && networkInfo.getType() == ConnectivityManager.TYPE_MOBILE);
     }
@@ -316,12 +337,20 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.ACCESS_NETWORK_STATE)
     public static boolean isWifiConnected(@NonNull Context context) {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isWifi();
+        }
+
         NetworkInfo networkInfo = getActiveNetworkInfo(context);
         return (networkInfo != null && networkInfo.isAvailable() && networkInfo.isConnected() && networkInfo.getType() == ConnectivityManager.TYPE_WIFI);
     }
 
     /**
      * Determine fast connectivity is available or not
+     * <p>Fast when the throughput measured by {@link BandwidthEstimator} is confidently fast, from the subtype
+     * table of {@link #isConnectionFast(int, int)} otherwise. The measurement is a lower bound, light traffic
+     * never shows a fast link, so it can only turn a slow answer into a fast one.</p>
      * <p>Need to add permissions {@code <uses-permission android:name="android.permission.ACCESS_NETWORK_STATE"/>}</p>
      *
      * @param context - Context
@@ -329,12 +358,26 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.ACCESS_NETWORK_STATE)
     public static boolean isConnectedFast(@NonNull Context context) {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isConnected() && isFast(snapshot.getLegacyType(), snapshot.getSubtype());
+        }
+
         NetworkInfo networkInfo = getActiveNetworkInfo(context);
-        return (networkInfo != null && networkInfo.isAvailable() && networkInfo.isConnected() && isConnectionFast(networkInfo.getType(),networkInfo.getSubtype()));
+        return (networkInfo != null && networkInfo.isAvailable() && networkInfo.isConnected() && isFast(networkInfo.getType(),networkInfo.getSubtype()));
+    }
+
+    private static boolean isFast(int type, int subType) {
+        BandwidthEstimator bandwidthEstimator = BandwidthEstimator.getInstance();
+        if (bandwidthEstimator.getConfidence() >= BandwidthEstimator.CONFIDENT && bandwidthEstimator.isFast()) {
+            return true;
+        }
+        return isConnectionFast(type, subType);
     }
 
     /**
-     * Determine connection speed fast or not
+     * Determine connection speed fast or not from the network type alone, every Wi-Fi counts as fast.
+     * {@link #isConnectedFast(Context)} prefers the measured throughput of {@link BandwidthEstimator}.
      *
      * @param type
      * @param subType
@@ -478,6 +521,10 @@ public class NetworkConnectivityUtil {
      */
     @RequiresPermission(Manifest.permission.ACCESS_NETWORK_STATE)
     public static InternetConnectionType getInternetConnectionType(@NonNull Context context) {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getInternetConnectionType();
+        }
 
         InternetConnectionType internetConnectionType = InternetConnectionType.NETWORK_NO;
 
@@ -491,48 +538,7 @@ public class NetworkConnectivityUtil {
             }
             else if (networkInfo.getType() == ConnectivityManager.TYPE_MOBILE)
             {
-                switch (networkInfo.getSubtype())
-                {
-                    case NETWORK_TYPE_GSM:
-                    case TelephonyManager.NETWORK_TYPE_GPRS:
-                    case TelephonyManager.NETWORK_TYPE_CDMA:
-                    case TelephonyManager.NETWORK_TYPE_EDGE:
-                    case TelephonyManager.NETWORK_TYPE_1xRTT:
-                    case TelephonyManager.NETWORK_TYPE_IDEN:
-                        internetConnectionType = InternetConnectionType.NETWORK_2G;
-                        break;
-
-                    case NETWORK_TYPE_TD_SCDMA:
-                    case TelephonyManager.NETWORK_TYPE_EVDO_A:
-                    case TelephonyManager.NETWORK_TYPE_UMTS:
-                    case TelephonyManager.NETWORK_TYPE_EVDO_0:
-                    case TelephonyManager.NETWORK_TYPE_HSDPA:
-                    case TelephonyManager.NETWORK_TYPE_HSUPA:
-                    case TelephonyManager.NETWORK_TYPE_HSPA:
-                    case TelephonyManager.NETWORK_TYPE_EVDO_B:
-                    case TelephonyManager.NETWORK_TYPE_EHRPD:
-                    case TelephonyManager.NETWORK_TYPE_HSPAP:
-                        internetConnectionType = InternetConnectionType.NETWORK_3G;
-                        break;
-
-                    case NETWORK_TYPE_IWLAN:
-                    case TelephonyManager.NETWORK_TYPE_LTE:
-                        internetConnectionType = InternetConnectionType.NETWORK_4G;
-                        break;
-
-                    default:
-                        String subtypeName = networkInfo.getSubtypeName();
-                        if (subtypeName.equalsIgnoreCase("TD-SCDMA")
-                                || subtypeName.equalsIgnoreCase("WCDMA")
-                                || subtypeName.equalsIgnoreCase("CDMA2000")) {
-                            internetConnectionType = InternetConnectionType.NETWORK_3G;
-                        }
-                        else
-                        {
-                            internetConnectionType = InternetConnectionType.NETWORK_UNKNOWN;
-                        }
-                        break;
-                }
+                internetConnectionType = getMobileConnectionType(networkInfo.getSubtype(), networkInfo.getSubtypeName());
             }
             else
             {
@@ -542,6 +548,51 @@ public class NetworkConnectivityUtil {
         return internetConnectionType;
     }
 
+    /**
+     * Map a mobile network subtype to 2G, 3G or 4G
+     *
+     * @param subtype     - {@link NetworkInfo#getSubtype()}
+     * @param subtypeName - {@link NetworkInfo#getSubtypeName()}, used when the subtype is not known
+     * @return Internet Connection Type
+     */
+    static InternetConnectionType getMobileConnectionType(int subtype, String subtypeName) {
+        switch (subtype)
+        {
+            case NETWORK_TYPE_GSM:
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return InternetConnectionType.NETWORK_2G;
+
+            case NETWORK_TYPE_TD_SCDMA:
+            case TelephonyManager.NETWORK_TYPE_EVDO_A:
+            case TelephonyManager.NETWORK_TYPE_UMTS:
+            case TelephonyManager.NETWORK_TYPE_EVDO_0:
+            case TelephonyManager.NETWORK_TYPE_HSDPA:
+            case TelephonyManager.NETWORK_TYPE_HSUPA:
+            case TelephonyManager.NETWORK_TYPE_HSPA:
+            case TelephonyManager.NETWORK_TYPE_EVDO_B:
+            case TelephonyManager.NETWORK_TYPE_EHRPD:
+            case TelephonyManager.NETWORK_TYPE_HSPAP:
+                return InternetConnectionType.NETWORK_3G;
+
+            case NETWORK_TYPE_IWLAN:
+            case TelephonyManager.NETWORK_TYPE_LTE:
+                return InternetConnectionType.NETWORK_4G;
+
+            default:
+                if (subtypeName != null
+                        && (subtypeName.equalsIgnoreCase("TD-SCDMA")
+                        || subtypeName.equalsIgnoreCase("WCDMA")
+                        || subtypeName.equalsIgnoreCase("CDMA2000"))) {
+                    return InternetConnectionType.NETWORK_3G;
+                }
+                return InternetConnectionType.NETWORK_UNKNOWN;
+        }
+    }
+
     /**
      * Determine whether the network is 4G
      * <p>Need to add permissions {@code <uses-permission android:name="android.permission.ACCESS_NETWORK_STATE"/>}</p>
@@ -550,6 +601,11 @@ public class NetworkConnectivityUtil {
      * @return {@code true}: Yes <br>{@code false}: no
      */
     public static boolean is4G(@NonNull Context context) {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isMobile() && snapshot.getSubtype() == TelephonyManager.NETWORK_TYPE_LTE;
+        }
+
         NetworkInfo info = getActiveNetworkInfo(context);
         return info != null && info.isAvailable() && info.getSubtype() == TelephonyManager.NETWORK_TYPE_LTE;
     }
@@ -567,361 +623,59 @@ public class NetworkConnectivityUtil {
      * @return {@code true}: connected <br>{@code false}: not connected ( IF RETURN TYPE BOOLEAN )
      */
     public static boolean isConnectedAll(@NonNull Context context) {
-
-        boolean connectedBoolean = false;
-        int connectedInt         = 0;
-
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
-        {
-            if (connectivityManager != null)
-            {
-                NetworkCapabilities networkCapabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
-                if(networkCapabilities != null)
-                {
-                    if(networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
-                    {
-                        LogcatUtil.errorMessage("Network", "getNetworkCapabilities(connectivityManager.getActiveNetwork()) : MOBILE");
-                        connectedBoolean    = true;
-                        connectedInt        = 1;
-                    }
-                    else if (networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI))
-                    {
-                        LogcatUtil.errorMessage("Network", "getNetworkCapabilities(connectivityManager.getActiveNetwork()) : WIFI");
-                        connectedBoolean    = true;
-                        connectedInt        = 2;
-                    }
-                }
-            }
-        }
-        else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
-        {
-            if (connectivityManager != null)
-            {
-                Network[] networks = connectivityManager.getAllNetworks();
-                Network network;
-
-                if (networks != null)
-                    for (int i = 0; i < networks.length; i++)
-                    {
-                        network = networks[i];
-                        NetworkCapabilities networkCapabilities = connectivityManager.getNetworkCapabilities(network);
-                        if(networkCapabilities != null)
-                        {
-                            if(networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
-                            {
-                                LogcatUtil.errorMessage("Network", "getAllNetworks() : MOBILE");
-                                connectedBoolean    = true;
-                                connectedInt        = 1;
-                                break;
-                            }
-                            else if (networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI))
-                            {
-                                LogcatUtil.errorMessage("Network", "getAllNetworks() : WIFI");
-                                connectedBoolean    = true;
-                                connectedInt        = 2;
-                                break;
-                            }
-                        }
-                    }
-            }
-        }
-        else
-        {
-            if (connectivityManager != null)
-            {
-                /*
-                 * Android 6.0 Marshmallow
-                 *
-                 * public NetworkInfo[] getAllNetworkInfo() :
-                 *                                           Added in API level 1
-                 *                                           Deprecated in API level 23
-                 * This method does not support multiple connected networks of the same type.
-                 *
-                 * Use
-                 *     public Network[] getAllNetworks() :
-                 *                                        Added in API level 21
-                 *     and
-                 *
-                 *     public NetworkInfo getNetworkInfo (Network network) :
-                 *                                                          Added in API level 21
-                 */
-                NetworkInfo[] networkInfos = connectivityManager.getAllNetworkInfo();
-                if (networkInfos != null)
-                {
-                    for (int i = 0; i < networkInfos.length; i++)
-                    {
-                        if (networkInfos[i].getState() == NetworkInfo.State.CONNECTED)
-                        {
-                            if (networkInfos[i].getType() == ConnectivityManager.TYPE_MOBILE)
-                            {
-                                LogcatUtil.errorMessage("Network", "getAllNetworkInfo() : MOBILE");
-                                connectedBoolean    = true;
-                                connectedInt        = 1;
-                                break;
-                            }
-                            else if (networkInfos[i].getType() == ConnectivityManager.TYPE_WIFI)
-                            {
-                                LogcatUtil.errorMessage("Network", "getAllNetworkInfo() : WIFI");
-                                connectedBoolean    = true;
-                                connectedInt        = 2;
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isMobile() || snapshot.isWifi();
         }
 
-        return connectedBoolean;
-        //return connectedInt;
+        return (getConnectedTypes(context)
+                & (ConnectivityBackend.FLAG_MOBILE | ConnectivityBackend.FLAG_WIFI)) != 0;
     }
 
     /**
      * Method to checking internet is connected or disconnected all the device
      * For kitkat,lollipop,marshmallow,Nougat or higher or lower version of Api.
+     * <p>Below Marshmallow the framework does not validate networks, the cached verdict of
+     * {@link ReachabilityProber} is used when there is one, and a probe is started in the background when
+     * there is none. Never blocks.</p>
      *
      * @param context - Context
      * @return {@code true}: connected <br>{@code false}: not connected
      */
     public static boolean hasInternetConnection(@NonNull Context context) {
-
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        Network network;
-
-        NetworkCapabilities capabilities = null;
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
-        {
-            network = connectivityManager.getActiveNetwork();
-            capabilities = connectivityManager.getNetworkCapabilities(network);
-            return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
-        }
-        if (Build.VERSION.SDK_INT == Build.VERSION_CODES.LOLLIPOP)
-        {
-            Network[] networks = connectivityManager.getAllNetworks();
-            NetworkInfo networkInfo;
-            for (Network mNetwork : networks)
-            {
-                networkInfo =connectivityManager.getNetworkInfo(mNetwork);
-                if (networkInfo.getState().equals(NetworkInfo.State.CONNECTED))
-                {
-                    return true;
-                }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M && (snapshot == null || snapshot.isConnected())) {
+            ReachabilityProber reachabilityProber = ReachabilityProber.getInstance();
+            Network network = snapshot != null ? snapshot.getNetwork() : null;
+            ReachabilityProber.Verdict verdict = reachabilityProber.getCachedVerdict(network);
+            if (verdict != ReachabilityProber.Verdict.UNKNOWN) {
+                return verdict == ReachabilityProber.Verdict.VALIDATED;
             }
+            reachabilityProber.probe(network);
         }
-        else
-        {
-            if (connectivityManager != null)
-            {
-                NetworkInfo[] info = connectivityManager.getAllNetworkInfo();
-                if (info != null)
-                    for (int i = 0; i < info.length; i++)
-                        if (info[i].getState() == NetworkInfo.State.CONNECTED)
-                        {
-                            return true;
-                        }
-            }
+        if (snapshot != null) {
+            return snapshot.isValidated();
         }
-        return false;
+
+        return hasValidatedNetwork(context);
     }
 
     public static boolean isMobileConnectAll(@NonNull Context context) {
-        boolean connectedBoolean = false;
-
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
-        {
-            if (connectivityManager != null)
-            {
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
-                if (capabilities != null)
-                {
-                    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
-                    {
-                        LogcatUtil.errorMessage("Network", "getNetworkCapabilities(connectivityManager.getActiveNetwork()) : MOBILE");
-                        connectedBoolean    = true;
-                    }
-                }
-            }
-        }
-        else if (Build.VERSION.SDK_INT == Build.VERSION_CODES.LOLLIPOP)
-        {
-            if (connectivityManager != null)
-            {
-                Network[] networks = connectivityManager.getAllNetworks();
-                Network network;
-
-                /*
-                 * Android 10
-                 * public class NetworkInfo :
-                 *                              Added in API level 21
-                 *                              This class was deprecated in API level 29.
-                 */
-                NetworkInfo networkInfo;
-
-                if (networks != null)
-                    for (int i = 0; i < networks.length; i++)
-                    {
-                        network = networks[i];
-                        networkInfo = connectivityManager.getNetworkInfo(network);
-
-                        if(networkInfo != null)
-                        {
-                            if (networkInfo.getState().equals(NetworkInfo.State.CONNECTED))
-                            {
-
-                                if (networkInfo.getType() == ConnectivityManager.TYPE_MOBILE)
-                                {
-                                    LogcatUtil.errorMessage("Network", "getAllNetworks() : MOBILE");
-                                    connectedBoolean    = true;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-            }
-        }
-        else
-        {
-            if (connectivityManager != null)
-            {
-                /*
-                 * Android 6.0 Marshmallow
-                 *
-                 * public NetworkInfo[] getAllNetworkInfo() :
-                 *                                           Added in API level 1
-                 *                                           Deprecated in API level 23
-                 * This method does not support multiple connected networks of the same type.
-                 *
-                 * Use
-                 *     public Network[] getAllNetworks() :
-                 *                                        Added in API level 21
-                 *     and
-                 *
-                 *     public NetworkInfo getNetworkInfo (Network network) :
-                 *                                                          Added in API level 21
-                 */
-                NetworkInfo[] networkInfos = connectivityManager.getAllNetworkInfo();
-                if (networkInfos != null)
-                {
-                    for (int i = 0; i < networkInfos.length; i++)
-                    {
-                        if (networkInfos[i].getState() == NetworkInfo.State.CONNECTED)
-                        {
-                            if (networkInfos[i].getType() == ConnectivityManager.TYPE_MOBILE)
-                            {
-                                LogcatUtil.errorMessage("Network", "getAllNetworkInfo() : MOBILE");
-                                connectedBoolean    = true;
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isMobile();
         }
 
-        return connectedBoolean;
+        return (getConnectedTypes(context) & ConnectivityBackend.FLAG_MOBILE) != 0;
     }
 
     public static boolean isWifiConnectAll(@NonNull Context context) {
-        boolean connectedBoolean = false;
-
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
-        {
-            if (connectivityManager != null)
-            {
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
-                if (capabilities != null)
-                {
-                    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI))
-                    {
-                        LogcatUtil.errorMessage("Network", "getNetworkCapabilities(connectivityManager.getActiveNetwork()) : WIFI");
-                        connectedBoolean    = true;
-                    }
-                }
-            }
-        }
-        else if (Build.VERSION.SDK_INT == Build.VERSION_CODES.LOLLIPOP)
-        {
-            if (connectivityManager != null)
-            {
-                Network[] networks = connectivityManager.getAllNetworks();
-                Network network;
-
-                /*
-                 * Android 10
-                 * public class NetworkInfo :
-                 *                              Added in API level 21
-                 *                              This class was deprecated in API level 29.
-                 */
-                NetworkInfo networkInfo;
-
-                if (networks != null)
-                    for (int i = 0; i < networks.length; i++)
-                    {
-                        network = networks[i];
-                        networkInfo = connectivityManager.getNetworkInfo(network);
-
-                        if(networkInfo != null)
-                        {
-                            if (networkInfo.getState().equals(NetworkInfo.State.CONNECTED))
-                            {
-                                if (networkInfo.getType() == ConnectivityManager.TYPE_WIFI)
-                                {
-                                    LogcatUtil.errorMessage("Network", "getAllNetworks() : WIFI");
-                                    connectedBoolean    = true;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-            }
-        }
-        else
-        {
-            if (connectivityManager != null)
-            {
-                /*
-                 * Android 6.0 Marshmallow
-                 *
-                 * public NetworkInfo[] getAllNetworkInfo() :
-                 *                                           Added in API level 1
-                 *                                           Deprecated in API level 23
-                 * This method does not support multiple connected networks of the same type.
-                 *
-                 * Use
-                 *     public Network[] getAllNetworks() :
-                 *                                        Added in API level 21
-                 *     and
-                 *
-                 *     public NetworkInfo getNetworkInfo (Network network) :
-                 *                                                          Added in API level 21
-                 */
-                NetworkInfo[] networkInfos = connectivityManager.getAllNetworkInfo();
-                if (networkInfos != null)
-                {
-                    for (int i = 0; i < networkInfos.length; i++)
-                    {
-                        if (networkInfos[i].getState() == NetworkInfo.State.CONNECTED)
-                        {
-                            if (networkInfos[i].getType() == ConnectivityManager.TYPE_WIFI)
-                            {
-                                LogcatUtil.errorMessage("Network", "getAllNetworkInfo() : WIFI");
-                                connectedBoolean    = true;
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isWifi();
         }
 
-        return connectedBoolean;
+        return (getConnectedTypes(context) & ConnectivityBackend.FLAG_WIFI) != 0;
     }
 
     /***********************************************************************************************
@@ -935,46 +689,13 @@ public class NetworkConnectivityUtil {
      * @return true or false
      */
     public static boolean isConnectedNew(@NonNull Context context) {
-
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
-        {
-            if (connectivityManager != null)
-            {
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
-                if (capabilities != null)
-                {
-                    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
-                    {
-                        return true;
-                    }
-                    else if(capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI))
-                    {
-                        return true;
-                    }
-                }
-            }
-        }
-        else
-        {
-            if (connectivityManager != null)
-            {
-                NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
-                if (activeNetwork != null)
-                {
-                    if (activeNetwork.getType() == ConnectivityManager.TYPE_MOBILE)
-                    {
-                        return true;
-                    }
-                    else if (activeNetwork.getType() == ConnectivityManager.TYPE_WIFI)
-                    {
-                        return true;
-                    }
-                }
-            }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isMobile() || snapshot.isWifi();
         }
-        return false;
+
+        int type = getActiveNetworkType(context);
+        return type == ConnectivityBackend.TYPE_MOBILE || type == ConnectivityBackend.TYPE_WIFI;
     }
 
     /**
@@ -984,120 +705,30 @@ public class NetworkConnectivityUtil {
      * @return Returns connection type. 0: none; 1: mobile data; 2: wifi etc.,
      */
     public static int getNetworkTypeNew(Context context) {
-
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
-        {
-            if (connectivityManager != null)
-            {
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
-                if (capabilities != null)
-                {
-                    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
-                    {
-                        return 1;
-                    }
-                    else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI))
-                    {
-                        return 2;
-                    }
-                    else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
-                        return 3;
-                    }
-                }
-            }
-        }
-        else
-        {
-            if (connectivityManager != null)
-            {
-                NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
-                if (activeNetwork != null)
-                {
-                    if (activeNetwork.getType() == ConnectivityManager.TYPE_MOBILE)
-                    {
-                        return 1;
-                    }
-                    else if (activeNetwork.getType() == ConnectivityManager.TYPE_WIFI)
-                    {
-                        return 2;
-                    }
-                    else if (activeNetwork.getType() == ConnectivityManager.TYPE_VPN)
-                    {
-                        return 3;
-                    }
-                }
-            }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getNetworkType();
         }
-        return 0;
+
+        return getActiveNetworkType(context);
     }
 
     public static boolean isMobileConnectedNew(Context context) {
-
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
-        {
-            if (connectivityManager != null)
-            {
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
-                if (capabilities != null)
-                {
-                    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
-                    {
-                        return true;
-                    }
-                }
-            }
-        }
-        else
-        {
-            if (connectivityManager != null)
-            {
-                NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
-                if (activeNetwork != null)
-                {
-                    if (activeNetwork.getType() == ConnectivityManager.TYPE_MOBILE)
-                    {
-                        return true;
-                    }
-                }
-            }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isMobile();
         }
-        return false;
+
+        return getActiveNetworkType(context) == ConnectivityBackend.TYPE_MOBILE;
     }
 
     public static boolean isWifiConnectedNew(Context context) {
-
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
-        {
-            if (connectivityManager != null)
-            {
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
-                if (capabilities != null) {
-                    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
-                        return true;
-                    }
-                }
-            }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            return snapshot.isWifi();
         }
-        else
-        {
-            if (connectivityManager != null)
-            {
-                NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
-                if (activeNetwork != null)
-                {
-                    if (activeNetwork.getType() == ConnectivityManager.TYPE_WIFI) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+
+        return getActiveNetworkType(context) == ConnectivityBackend.TYPE_WIFI;
     }
 
     private NetworkConnectivityUtil() {
@@ -0,0 +1,274 @@
+package com.network.internet;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import com.network.util.LogcatUtil;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * What limits traffic on the default network right now, as one bitset: metered, roaming, suspended, blocked
+ * for this application, and Data Saver.
+ *
+ * <p>{@link #get()} is a single volatile read. The bits are kept current by {@link NetworkCallbackImpl} from
+ * the capabilities of the default network and onBlockedStatusChanged, and by {@link NetworkStateChangeReceiver}
+ * below Lollipop and for {@link ConnectivityManager#ACTION_RESTRICT_BACKGROUND_CHANGED}. Listeners are told
+ * about every change on the thread that saw it, {@link TransferPolicy} is recomputed and {@link NetworkTaskScheduler}
+ * re-checks its waiting jobs. Changes come from the monitor thread and the main thread, so they are delivered
+ * under the class lock, in the order they were made: a listener must not wait for another thread that updates
+ * the constraints.</p>
+ */
+public final class NetworkConstraints {
+
+    private static final String TAG = NetworkConstraints.class.getSimpleName();
+
+    /**
+     * Traffic may cost the user money
+     */
+    public static final int FLAG_METERED                = 1;
+    /**
+     * The device is roaming on the default network
+     */
+    public static final int FLAG_ROAMING                = 1 << 1;
+    /**
+     * The network is temporarily unable to carry traffic, e.g. cellular during a voice call on 2G
+     */
+    public static final int FLAG_SUSPENDED              = 1 << 2;
+    /**
+     * Traffic of this application is blocked, e.g. by battery saver or a background restriction, Q and above
+     */
+    public static final int FLAG_BLOCKED                = 1 << 3;
+    /**
+     * Data Saver is on and this application is not exempt, background traffic on metered networks is blocked.
+     * Only set while {@link #FLAG_METERED} is, Data Saver does not restrict unmetered networks.
+     */
+    public static final int FLAG_BACKGROUND_RESTRICTED  = 1 << 4;
+    /**
+     * Data Saver is on but the user exempted this application, it may transfer as with Data Saver off.
+     * Only set while {@link #FLAG_METERED} is.
+     */
+    public static final int FLAG_DATA_SAVER_EXEMPTED    = 1 << 5;
+
+    /**
+     * Any of these means a bulk transfer should wait or be scaled down
+     */
+    public static final int BULK_TRANSFER_CONSTRAINTS = FLAG_METERED | FLAG_ROAMING | FLAG_SUSPENDED
+            | FLAG_BLOCKED | FLAG_BACKGROUND_RESTRICTED;
+
+    /* bits that describe the default network, cleared when it goes away */
+    private static final int NETWORK_FLAGS = FLAG_METERED | FLAG_ROAMING | FLAG_SUSPENDED | FLAG_BLOCKED;
+    private static final int DATA_SAVER_FLAGS = FLAG_BACKGROUND_RESTRICTED | FLAG_DATA_SAVER_EXEMPTED;
+
+    /**
+     * Told whenever a bit changes
+     */
+    public interface Listener {
+        void onConstraintsChanged(int previous, int current);
+    }
+
+    private static volatile int constraints;
+    /* every bit as reported, the Data Saver bits are published only on metered networks. Guarded by NetworkConstraints.class */
+    private static int reported;
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Current constraints
+     *
+     * @return FLAG_ bits, 0 when nothing limits traffic or nothing is known yet
+     */
+    public static int get() {
+        return constraints;
+    }
+
+    /**
+     * Whether any of some constraints applies
+     *
+     * @param flags - FLAG_ bits
+     * @return {@code true} if at least one of them is set
+     */
+    public static boolean hasAny(int flags) {
+        return (constraints & flags) != 0;
+    }
+
+    /**
+     * Whether a large transfer can go ahead now without costing the user or failing
+     *
+     * @return {@code true} if none of {@link #BULK_TRANSFER_CONSTRAINTS} is set
+     */
+    public static boolean allowsBulkTransfer() {
+        return (constraints & BULK_TRANSFER_CONSTRAINTS) == 0;
+    }
+
+    public static void addListener(@NonNull Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public static void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * The default network or its capabilities changed
+     *
+     * @param networkCapabilities - capabilities of the default network, may be null
+     * @param networkInfo         - NetworkInfo of the default network, for roaming and suspended below the
+     *                              versions that report them as capabilities
+     */
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    static void onDefaultNetwork(@Nullable NetworkCapabilities networkCapabilities, @Nullable NetworkInfo networkInfo) {
+        if (networkCapabilities == null) {
+            return;
+        }
+        int flags = 0;
+        if (!networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)) {
+            flags |= FLAG_METERED;
+        }
+        int legacyFlags = networkInfoFlags(networkInfo);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            if (!networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_ROAMING)) {
+                flags |= FLAG_ROAMING;
+            }
+        } else {
+            flags |= legacyFlags & FLAG_ROAMING;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            if (!networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_SUSPENDED)) {
+                flags |= FLAG_SUSPENDED;
+            }
+        } else {
+            flags |= legacyFlags & FLAG_SUSPENDED;
+        }
+        /* the blocked bit only comes from onBlockedStatusChanged, keep it */
+        update(NETWORK_FLAGS & ~FLAG_BLOCKED, flags);
+    }
+
+    /**
+     * The active network changed below Lollipop, where there is no NetworkCapabilities
+     *
+     * @param connectivityManager - ConnectivityManager, may be null
+     */
+    static void onActiveNetwork(@Nullable ConnectivityManager connectivityManager) {
+        NetworkInfo networkInfo = connectivityManager != null ? connectivityManager.getActiveNetworkInfo() : null;
+        if (networkInfo == null || !networkInfo.isConnectedOrConnecting()) {
+            onNoNetwork();
+            return;
+        }
+        int flags = networkInfoFlags(networkInfo);
+        if (connectivityManager.isActiveNetworkMetered()) {
+            flags |= FLAG_METERED;
+        }
+        update(NETWORK_FLAGS, flags);
+    }
+
+    /**
+     * onBlockedStatusChanged() of the default network
+     *
+     * @param blocked - whether traffic of this application is blocked
+     */
+    static void onBlocked(boolean blocked) {
+        update(FLAG_BLOCKED, blocked ? FLAG_BLOCKED : 0);
+    }
+
+    /**
+     * The default network is gone, nothing is known about the next one
+     */
+    static void onNoNetwork() {
+        update(NETWORK_FLAGS, 0);
+    }
+
+    /**
+     * Read the Data Saver state again, on registration and on {@link ConnectivityManager#ACTION_RESTRICT_BACKGROUND_CHANGED}
+     *
+     * @param connectivityManager - ConnectivityManager, may be null
+     */
+    static void refreshRestrictBackground(@Nullable ConnectivityManager connectivityManager) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N || connectivityManager == null) {
+            return;
+        }
+        int flags;
+        switch (connectivityManager.getRestrictBackgroundStatus()) {
+            case ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED:
+                flags = FLAG_BACKGROUND_RESTRICTED;
+                break;
+            case ConnectivityManager.RESTRICT_BACKGROUND_STATUS_WHITELISTED:
+                flags = FLAG_DATA_SAVER_EXEMPTED;
+                break;
+            default:
+                flags = 0;
+                break;
+        }
+        update(DATA_SAVER_FLAGS, flags);
+    }
+
+    private static int networkInfoFlags(@Nullable NetworkInfo networkInfo) {
+        if (networkInfo == null) {
+            return 0;
+        }
+        int flags = 0;
+        if (networkInfo.isRoaming()) {
+            flags |= FLAG_ROAMING;
+        }
+        if (networkInfo.getState() == NetworkInfo.State.SUSPENDED) {
+            flags |= FLAG_SUSPENDED;
+        }
+        return flags;
+    }
+
+    private static void update(int mask, int flags) {
+        /* delivered under the lock too, an older change racing a newer one must not be delivered last */
+        synchronized (NetworkConstraints.class) {
+            reported = (reported & ~mask) | (flags & mask);
+            int previous = constraints;
+            int current = (reported & FLAG_METERED) != 0 ? reported : reported & ~DATA_SAVER_FLAGS;
+            if (current == previous) {
+                return;
+            }
+            constraints = current;
+            LogcatUtil.informationMessage(TAG, "Constraints %s -> %s", toString(previous), toString(current));
+            for (Listener listener : listeners) {
+                listener.onConstraintsChanged(previous, current);
+            }
+            TransferPolicy.onConstraints();
+            NetworkTaskScheduler.onNetworkChanged();
+        }
+    }
+
+    /**
+     * Readable form of a bitset, e.g. for logs
+     *
+     * @param flags - FLAG_ bits
+     * @return names of the set bits
+     */
+    @NonNull
+    public static String toString(int flags) {
+        if (flags == 0) {
+            return "[]";
+        }
+        StringBuilder builder = new StringBuilder("[");
+        append(builder, flags, FLAG_METERED, "METERED");
+        append(builder, flags, FLAG_ROAMING, "ROAMING");
+        append(builder, flags, FLAG_SUSPENDED, "SUSPENDED");
+        append(builder, flags, FLAG_BLOCKED, "BLOCKED");
+        append(builder, flags, FLAG_BACKGROUND_RESTRICTED, "BACKGROUND_RESTRICTED");
+        append(builder, flags, FLAG_DATA_SAVER_EXEMPTED, "DATA_SAVER_EXEMPTED");
+        return builder.append(']').toString();
+    }
+
+    private static void append(@NonNull StringBuilder builder, int flags, int flag, @NonNull String name) {
+        if ((flags & flag) != 0) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(name);
+        }
+    }
+
+    private NetworkConstraints() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
@@ -0,0 +1,56 @@
+package com.network.internet;
+
+import androidx.annotation.NonNull;
+import com.network.util.LogcatUtil;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counter that moves forward whenever something routing relevant changes: the default network, the process
+ * binding, or the interface, addresses, routes, DNS servers, private DNS or MTU of the default network.
+ *
+ * <p>A cache of anything that depends on the network (resolved addresses, pooled connections, bandwidth
+ * estimates) remembers {@link #current()} when it fills an entry and compares it on use, one volatile read
+ * and an int comparison instead of a network callback of its own.</p>
+ */
+public final class NetworkEpoch {
+
+    private static final String TAG = NetworkEpoch.class.getSimpleName();
+
+    private static final AtomicInteger epoch = new AtomicInteger();
+
+    /**
+     * Current epoch, only ever grows (it wraps after 2^32 changes, compare with == and not with &lt;)
+     *
+     * @return epoch
+     */
+    public static int current() {
+        return epoch.get();
+    }
+
+    /**
+     * Whether nothing routing relevant changed since an epoch was read
+     *
+     * @param epoch - value of {@link #current()} when the cached data was produced
+     * @return {@code true} if the data is still valid
+     */
+    public static boolean isCurrent(int epoch) {
+        return NetworkEpoch.epoch.get() == epoch;
+    }
+
+    /**
+     * Start a new epoch
+     *
+     * @param reason - what changed, logged
+     * @return new epoch
+     */
+    static int advance(@NonNull String reason) {
+        int next = epoch.incrementAndGet();
+        LogcatUtil.debuggingMessage(TAG, "Epoch %d: %s", next, reason);
+        return next;
+    }
+
+    private NetworkEpoch() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}
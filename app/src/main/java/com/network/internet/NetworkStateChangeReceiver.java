@@ -4,12 +4,14 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.net.ConnectivityManager;
+import androidx.annotation.NonNull;
 import com.network.util.LogcatUtil;
 
 public class NetworkStateChangeReceiver extends BroadcastReceiver {
 
     private static final String TAG = NetworkStateChangeReceiver.class.getSimpleName();
     public static NetworkStateChangeListener networkStateChangeListener;
+    private static ConnectivityEventListener networkStateChangeListenerAdapter;
 
     @Override
     public void onReceive(final Context context, final Intent intent) {
@@ -17,36 +19,64 @@ public class NetworkStateChangeReceiver extends BroadcastReceiver {
         final String action = intent.getAction();
 
         if (action != null) {
-            if (networkStateChangeListener != null) {
 
-                if (action.equals(ConnectivityManager.CONNECTIVITY_ACTION)) {
-                    if (NetworkConnectivityUtil.isConnectedAll(context))
-                    {
-                        LogcatUtil.errorMessage(TAG,"ConnectivityManager.CONNECTIVITY_ACTION - 1");
-                        networkStateChangeListener.networkAvailable();
-                    }
-                    else
-                    {
-                        LogcatUtil.errorMessage(TAG,"ConnectivityManager.CONNECTIVITY_ACTION - 2");
-                        networkStateChangeListener.networkUnavailable();
-                    }
-                }
-
-                if (!intent.getBooleanExtra(ConnectivityManager.EXTRA_NO_CONNECTIVITY,false))
+            /* only CONNECTIVITY_ACTION says what the active network is, other broadcasts must not reach the state machine */
+            if (action.equals(ConnectivityManager.CONNECTIVITY_ACTION)) {
+                /* the active network may have changed, measured throughput belongs to the old one */
+                BandwidthEstimator.getInstance().onDefaultNetworkChanged();
+                ReachabilityProber.getInstance().invalidate(null);
+                NetworkEpoch.advance("CONNECTIVITY_ACTION");
+                int activeNetworkType = ConnectivityBackends.get(context).getActiveNetworkType();
+                ConnectivityHistory.getInstance().record(ConnectivityHistory.TYPE_BROADCAST, 0, 0, 0, 0, 0, activeNetworkType);
+                ConnectivityMetrics.onCallback(ConnectivityHistory.TYPE_BROADCAST);
+                ConnectivityMetrics.onNetworkType(activeNetworkType);
+                TrafficAccounting.onNetworkType(activeNetworkType);
+                NetworkConstraints.onActiveNetwork(ConnectivityBackends.get(context).getConnectivityManager());
+                TransferPolicy.onActiveNetworkInfo(ConnectivityBackends.get(context).getActiveNetworkInfo(), activeNetworkType);
+                if (NetworkConnectivityUtil.isConnectedAll(context))
                 {
-                    LogcatUtil.errorMessage(TAG,"RegisterAndUnregisterNetworkReceiver.NETWORK_AVAILABILITY_ACTION - 1");
-                    networkStateChangeListener.networkAvailable();
+                    LogcatUtil.errorMessage(TAG,"ConnectivityManager.CONNECTIVITY_ACTION - 1");
+                    ConnectivityStateMachine.getInstance().onRawCallback(ConnectivityStateMachine.State.CONNECTED, ConnectivitySnapshot.current());
                 }
                 else
                 {
-                    LogcatUtil.errorMessage(TAG,"RegisterAndUnregisterNetworkReceiver.NETWORK_AVAILABILITY_ACTION - 2");
-                    networkStateChangeListener.networkUnavailable();
+                    LogcatUtil.errorMessage(TAG,"ConnectivityManager.CONNECTIVITY_ACTION - 2");
+                    ConnectivityStateMachine.getInstance().onRawCallback(ConnectivityStateMachine.State.DISCONNECTED, ConnectivitySnapshot.current());
                 }
+                NetworkTaskScheduler.onNetworkChanged();
+            }
+            else if (action.equals(ConnectivityManager.ACTION_RESTRICT_BACKGROUND_CHANGED))
+            {
+                /* Data Saver toggled, or this application was exempted from it */
+                NetworkConstraints.refreshRestrictBackground(ConnectivityBackends.get(context).getConnectivityManager());
             }
         }
     }
 
-    public static void setNetworkStateChangeListener(NetworkStateChangeListener listener) {
+    /**
+     * Single listener kept for existing callers, it is subscribed to {@link ConnectivityEventBus}.
+     * New code should subscribe to the bus directly, it supports any number of subscribers.
+     *
+     * @param listener - NetworkStateChangeListener, {@code null} to remove the current one
+     */
+    public static synchronized void setNetworkStateChangeListener(final NetworkStateChangeListener listener) {
+        if (networkStateChangeListenerAdapter != null) {
+            ConnectivityEventBus.unsubscribe(networkStateChangeListenerAdapter);
+            networkStateChangeListenerAdapter = null;
+        }
         NetworkStateChangeReceiver.networkStateChangeListener = listener;
+        if (listener != null) {
+            networkStateChangeListenerAdapter = new ConnectivityEventListener() {
+                @Override
+                public void onConnectivityEvent(@NonNull ConnectivityEvent event) {
+                    if (event.isAvailable()) {
+                        listener.networkAvailable();
+                    } else {
+                        listener.networkUnavailable();
+                    }
+                }
+            };
+            ConnectivityEventBus.subscribe(networkStateChangeListenerAdapter);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,546 @@
+package com.network.internet;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.network.util.LogcatUtil;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs network jobs only when the default network suits them.
+ *
+ * <p>A job is submitted with its {@link Requirements} and a priority. It waits while the current network does
+ * not meet the requirements and is released, highest priority first, as soon as {@link NetworkCallbackImpl}
+ * (or the receiver below Lollipop) reports a network that does. A job that cannot run yet does not hold up
+ * the ones behind it: an unmetered-only upload waits for Wi-Fi while small requests go out on cellular.</p>
+ *
+ * <p>Released jobs run on a pool of {@link #MAX_THREADS} daemon threads, and no more of them run at once than
+ * the limit of the current {@link BandwidthClass}, so a 2G link is not split between four downloads. A job
+ * that is running when the network changes is not stopped, it finishes or fails on its own.</p>
+ */
+public final class NetworkTaskScheduler {
+
+    private static final String TAG = NetworkTaskScheduler.class.getSimpleName();
+
+    public static final int MAX_THREADS = 4;
+
+    /* downstream rate at which a network counts as HIGH, about where HSPA+ and LTE start */
+    public static final long HIGH_BANDWIDTH_KBPS = 2000;
+
+    private static volatile NetworkTaskScheduler instance;
+
+    /**
+     * Rough capacity of a network, from the connection type, raised by the measured throughput when
+     * {@link BandwidthEstimator} is confident it is higher
+     */
+    public enum BandwidthClass {
+        NONE,
+        /* 2G */
+        LOW,
+        /* 3G, or an unknown transport such as Ethernet */
+        MODERATE,
+        /* Wi-Fi, 4G */
+        HIGH
+    }
+
+    /**
+     * What a job needs from the default network, a connected network at the least
+     */
+    public static final class Requirements {
+
+        private boolean validated;
+        private boolean unmetered;
+        private boolean bulkTransfer;
+        private BandwidthClass minBandwidthClass = BandwidthClass.LOW;
+
+        public static Requirements anyNetwork() {
+            return new Requirements();
+        }
+
+        public Requirements requireValidated() {
+            this.validated = true;
+            return this;
+        }
+
+        public Requirements requireUnmetered() {
+            this.unmetered = true;
+            return this;
+        }
+
+        /**
+         * Wait while any of {@link NetworkConstraints#BULK_TRANSFER_CONSTRAINTS} applies: metered, roaming,
+         * suspended, blocked or Data Saver
+         */
+        public Requirements requireBulkTransferAllowed() {
+            this.bulkTransfer = true;
+            return this;
+        }
+
+        public Requirements requireBandwidth(@NonNull BandwidthClass minBandwidthClass) {
+            this.minBandwidthClass = minBandwidthClass.compareTo(BandwidthClass.LOW) < 0 ? BandwidthClass.LOW : minBandwidthClass;
+            return this;
+        }
+
+        boolean isMetBy(@NonNull Conditions conditions) {
+            return conditions.bandwidthClass.compareTo(minBandwidthClass) >= 0
+                    && (!validated || conditions.validated)
+                    && (!unmetered || !conditions.metered)
+                    && (!bulkTransfer || (conditions.constraints & NetworkConstraints.BULK_TRANSFER_CONSTRAINTS) == 0);
+        }
+
+        @Override
+        public String toString() {
+            return "Requirements{" +
+                    "validated=" + validated +
+                    ", unmetered=" + unmetered +
+                    ", bulkTransfer=" + bulkTransfer +
+                    ", minBandwidthClass=" + minBandwidthClass +
+                    '}';
+        }
+    }
+
+    /**
+     * Handle of a submitted job
+     */
+    public final class Task {
+
+        private static final int PENDING   = 0;
+        private static final int RUNNING   = 1;
+        private static final int DONE      = 2;
+        private static final int CANCELLED = 3;
+
+        private final Runnable runnable;
+        private final Requirements requirements;
+        private final int priority;
+        private final long sequence;
+        private final long submittedMillis;
+        /* guarded by the scheduler lock */
+        private int state = PENDING;
+
+        Task(@NonNull Runnable runnable, @NonNull Requirements requirements, int priority, long sequence) {
+            this.runnable           = runnable;
+            this.requirements       = requirements;
+            this.priority           = priority;
+            this.sequence           = sequence;
+            this.submittedMillis    = SystemClock.elapsedRealtime();
+        }
+
+        /**
+         * Remove the job from the queue, a job that already started is not stopped
+         *
+         * @return {@code true} if the job was still waiting
+         */
+        public boolean cancel() {
+            synchronized (lock) {
+                if (state != PENDING) {
+                    return false;
+                }
+                pending.remove(this);
+                state = CANCELLED;
+                cancelledCount++;
+                return true;
+            }
+        }
+
+        public boolean isPending() {
+            synchronized (lock) {
+                return state == PENDING;
+            }
+        }
+
+        public boolean isDone() {
+            synchronized (lock) {
+                return state == DONE || state == CANCELLED;
+            }
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        @NonNull
+        public Requirements getRequirements() {
+            return requirements;
+        }
+    }
+
+    /**
+     * Counters of the scheduler at one point in time
+     */
+    public static final class Stats {
+
+        private final int queueDepth;
+        private final int running;
+        private final long completed;
+        private final long failed;
+        private final long cancelled;
+        private final long totalWaitMillis;
+        private final long maxWaitMillis;
+        private final long totalRunMillis;
+        private final long maxRunMillis;
+        private final long started;
+
+        Stats(int queueDepth, int running, long started, long completed, long failed, long cancelled,
+              long totalWaitMillis, long maxWaitMillis, long totalRunMillis, long maxRunMillis) {
+            this.queueDepth         = queueDepth;
+            this.running            = running;
+            this.started            = started;
+            this.completed          = completed;
+            this.failed             = failed;
+            this.cancelled          = cancelled;
+            this.totalWaitMillis    = totalWaitMillis;
+            this.maxWaitMillis      = maxWaitMillis;
+            this.totalRunMillis     = totalRunMillis;
+            this.maxRunMillis       = maxRunMillis;
+        }
+
+        /**
+         * @return jobs waiting for a suitable network or a free slot
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return jobs that threw
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return mean time from submit to start, 0 before the first start
+         */
+        public long getAverageWaitMillis() {
+            return started > 0 ? totalWaitMillis / started : 0;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        /**
+         * @return mean time a job ran, 0 before the first one finished
+         */
+        public long getAverageRunMillis() {
+            return completed + failed > 0 ? totalRunMillis / (completed + failed) : 0;
+        }
+
+        public long getMaxRunMillis() {
+            return maxRunMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "queueDepth=" + queueDepth +
+                    ", running=" + running +
+                    ", completed=" + completed +
+                    ", failed=" + failed +
+                    ", cancelled=" + cancelled +
+                    ", averageWaitMillis=" + getAverageWaitMillis() +
+                    ", maxWaitMillis=" + maxWaitMillis +
+                    ", averageRunMillis=" + getAverageRunMillis() +
+                    ", maxRunMillis=" + maxRunMillis +
+                    '}';
+        }
+    }
+
+    /* what the default network offers, read once per dispatch */
+    static final class Conditions {
+
+        final boolean validated;
+        final boolean metered;
+        final int constraints;
+        final BandwidthClass bandwidthClass;
+
+        Conditions(boolean validated, boolean metered, int constraints, @NonNull BandwidthClass bandwidthClass) {
+            this.validated      = validated;
+            this.metered        = metered;
+            this.constraints    = constraints;
+            this.bandwidthClass = bandwidthClass;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final Context context;
+    private final ThreadPoolExecutor executor;
+    /* highest priority first, then in submit order */
+    private final TreeSet<Task> pending = new TreeSet<>(new Comparator<Task>() {
+        @Override
+        public int compare(Task a, Task b) {
+            if (a.priority != b.priority) {
+                return a.priority > b.priority ? -1 : 1;
+            }
+            return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+        }
+    });
+    private final int[] concurrencyLimits = new int[BandwidthClass.values().length];
+
+    private long sequence;
+    private int running;
+    private long startedCount;
+    private long completedCount;
+    private long failedCount;
+    private long cancelledCount;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+    private long totalRunMillis;
+    private long maxRunMillis;
+
+    /**
+     * Get the scheduler of this process
+     *
+     * @param context - Context, only its application context is kept
+     * @return NetworkTaskScheduler
+     */
+    public static NetworkTaskScheduler getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (NetworkTaskScheduler.class) {
+                if (instance == null) {
+                    Context applicationContext = context.getApplicationContext();
+                    instance = new NetworkTaskScheduler(applicationContext != null ? applicationContext : context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private NetworkTaskScheduler(@NonNull Context context) {
+        this.context = context;
+        concurrencyLimits[BandwidthClass.NONE.ordinal()]        = 0;
+        concurrencyLimits[BandwidthClass.LOW.ordinal()]         = 1;
+        concurrencyLimits[BandwidthClass.MODERATE.ordinal()]    = 2;
+        concurrencyLimits[BandwidthClass.HIGH.ordinal()]        = MAX_THREADS;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "NetworkTask-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Called when the default network changed, releases the jobs it can run now
+     */
+    static void onNetworkChanged() {
+        NetworkTaskScheduler scheduler = instance;
+        if (scheduler != null) {
+            scheduler.dispatch();
+        }
+    }
+
+    /**
+     * Queue a job, it starts right away if the current network meets its requirements and a slot is free
+     *
+     * @param runnable     - the job, runs on a scheduler thread
+     * @param requirements - what it needs from the network
+     * @param priority     - higher runs first
+     * @return Task to cancel it
+     */
+    @NonNull
+    public Task submit(@NonNull Runnable runnable, @NonNull Requirements requirements, int priority) {
+        Task task;
+        synchronized (lock) {
+            task = new Task(runnable, requirements, priority, sequence++);
+            pending.add(task);
+        }
+        dispatch();
+        return task;
+    }
+
+    /**
+     * Most jobs that may run at once while the default network is of a class
+     *
+     * @param bandwidthClass - class of the default network
+     * @param limit          - between 0 and {@link #MAX_THREADS}
+     */
+    public void setConcurrencyLimit(@NonNull BandwidthClass bandwidthClass, int limit) {
+        synchronized (lock) {
+            concurrencyLimits[bandwidthClass.ordinal()] = Math.max(0, Math.min(MAX_THREADS, limit));
+        }
+        dispatch();
+    }
+
+    public int getConcurrencyLimit(@NonNull BandwidthClass bandwidthClass) {
+        synchronized (lock) {
+            return concurrencyLimits[bandwidthClass.ordinal()];
+        }
+    }
+
+    @NonNull
+    public Stats getStats() {
+        synchronized (lock) {
+            return new Stats(pending.size(), running, startedCount, completedCount, failedCount, cancelledCount,
+                    totalWaitMillis, maxWaitMillis, totalRunMillis, maxRunMillis);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkTaskScheduler{" + getStats() + '}';
+    }
+
+    /**
+     * Class of the default network right now
+     *
+     * @param context - Context
+     * @return BandwidthClass, {@link BandwidthClass#NONE} when not connected
+     */
+    @NonNull
+    public static BandwidthClass currentBandwidthClass(@NonNull Context context) {
+        if (!NetworkConnectivityUtil.isConnected(context)) {
+            return BandwidthClass.NONE;
+        }
+        BandwidthClass typeClass = typeBandwidthClass(context);
+        BandwidthEstimator bandwidthEstimator = BandwidthEstimator.getInstance();
+        if (typeClass == BandwidthClass.NONE || bandwidthEstimator.getConfidence() < BandwidthEstimator.CONFIDENT) {
+            return typeClass;
+        }
+        /* the measurement is a lower bound, light traffic on a fast link looks slow, so it only raises the class */
+        long downstreamKbps = bandwidthEstimator.getEstimatedDownstreamKbps();
+        BandwidthClass measuredClass = downstreamKbps >= HIGH_BANDWIDTH_KBPS ? BandwidthClass.HIGH
+                : downstreamKbps >= BandwidthEstimator.FAST_DOWNSTREAM_KBPS ? BandwidthClass.MODERATE : BandwidthClass.LOW;
+        return measuredClass.ordinal() > typeClass.ordinal() ? measuredClass : typeClass;
+    }
+
+    private static BandwidthClass typeBandwidthClass(@NonNull Context context) {
+        switch (NetworkConnectivityUtil.getInternetConnectionType(context)) {
+            case NETWORK_WIFI:
+            case NETWORK_4G:
+                return BandwidthClass.HIGH;
+            case NETWORK_2G:
+                return BandwidthClass.LOW;
+            case NETWORK_NO:
+                return BandwidthClass.NONE;
+            default:
+                return BandwidthClass.MODERATE;
+        }
+    }
+
+    private Conditions currentConditions() {
+        BandwidthClass bandwidthClass = currentBandwidthClass(context);
+        int constraints = NetworkConstraints.get();
+        if (bandwidthClass == BandwidthClass.NONE || (constraints & NetworkConstraints.FLAG_BLOCKED) != 0) {
+            /* a job started now would only fail */
+            return new Conditions(false, true, constraints, BandwidthClass.NONE);
+        }
+        boolean metered;
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        if (snapshot != null) {
+            metered = snapshot.isMetered();
+        } else {
+            ConnectivityManager connectivityManager = ConnectivityBackends.get(context).getConnectivityManager();
+            metered = connectivityManager == null || connectivityManager.isActiveNetworkMetered();
+        }
+        return new Conditions(NetworkConnectivityUtil.hasInternetConnection(context), metered, constraints, bandwidthClass);
+    }
+
+    private void dispatch() {
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+        /* may ask ConnectivityManager, keep that out of the lock */
+        Conditions conditions = currentConditions();
+
+        List<Task> released = null;
+        synchronized (lock) {
+            int limit = concurrencyLimits[conditions.bandwidthClass.ordinal()];
+            long nowMillis = SystemClock.elapsedRealtime();
+            Iterator<Task> iterator = pending.iterator();
+            while (running < limit && iterator.hasNext()) {
+                Task task = iterator.next();
+                if (!task.requirements.isMetBy(conditions)) {
+                    continue;
+                }
+                iterator.remove();
+                task.state = Task.RUNNING;
+                running++;
+                startedCount++;
+                long waitMillis = nowMillis - task.submittedMillis;
+                totalWaitMillis += waitMillis;
+                maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+                if (released == null) {
+                    released = new ArrayList<>();
+                }
+                released.add(task);
+            }
+        }
+        if (released != null) {
+            for (Task task : released) {
+                execute(task);
+            }
+        }
+    }
+
+    private void execute(@NonNull final Task task) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long startMillis = SystemClock.elapsedRealtime();
+                    boolean failed = false;
+                    try {
+                        task.runnable.run();
+                    } catch (RuntimeException e) {
+                        failed = true;
+                        LogcatUtil.errorMessage(TAG, "Task failed", e);
+                    } finally {
+                        finished(task, SystemClock.elapsedRealtime() - startMillis, failed);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LogcatUtil.errorMessage(TAG, "Task rejected", e);
+            finished(task, 0, true);
+        }
+    }
+
+    private void finished(@NonNull Task task, long runMillis, boolean failed) {
+        synchronized (lock) {
+            task.state = Task.DONE;
+            running--;
+            if (failed) {
+                failedCount++;
+            } else {
+                completedCount++;
+            }
+            totalRunMillis += runMillis;
+            maxRunMillis = Math.max(maxRunMillis, runMillis);
+        }
+        /* a slot is free */
+        dispatch();
+    }
+}
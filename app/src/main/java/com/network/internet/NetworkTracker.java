@@ -0,0 +1,484 @@
+package com.network.internet;
+
+import android.Manifest;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.RequiresPermission;
+import com.network.util.LogcatUtil;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Live view of every network that can reach the internet, not only the default one.
+ *
+ * <p>While {@link ConnectivityMonitor} holds the network callback a second callback watches all networks with
+ * {@link NetworkCapabilities#NET_CAPABILITY_INTERNET}: Wi-Fi and cellular are both listed while the device
+ * keeps the two up. Each entry is a {@link TrackedNetwork} with its transports, validation, metered flag, link
+ * bandwidth and a stability score. Losing a network, losing validation or getting {@code onLosing} counts as a
+ * flap and penalises its transport, so a Wi-Fi that keeps dropping ranks below a steady cellular link even
+ * after it comes back as a new Network.</p>
+ *
+ * <p>{@link #selectBest(Criteria)} picks a network for a job, {@link #bindProcessToNetwork(TrackedNetwork)},
+ * {@link #createSocket(TrackedNetwork)} and {@link #bindSocket(Socket, TrackedNetwork)} route traffic over it.</p>
+ *
+ * <p>The {@link LinkProperties} of every network are kept as a {@link LinkSnapshot}. When the routing relevant
+ * part of them changes, or a network that had them is lost, {@link NetworkEpoch} moves forward.</p>
+ */
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+public final class NetworkTracker {
+
+    private static final String TAG = NetworkTracker.class.getSimpleName();
+
+    public static final long FLAP_HALF_LIFE_MILLIS = 10 * 60 * 1000;
+
+    /* TRANSPORT_* values go up to 8 on current releases, anything above shares the last slot */
+    private static final int TRANSPORT_SLOTS = 10;
+
+    private static volatile NetworkTracker instance;
+
+    /**
+     * Told whenever a network appears, changes or goes away
+     */
+    public interface Listener {
+        void onNetworksChanged(@NonNull NetworkTracker networkTracker);
+    }
+
+    /**
+     * What a job needs from a network, everything is optional
+     */
+    public static final class Criteria {
+
+        private boolean validated;
+        private boolean unmetered;
+        private long minDownstreamKbps;
+        private int transport = -1;
+
+        public static Criteria any() {
+            return new Criteria();
+        }
+
+        public Criteria requireValidated() {
+            this.validated = true;
+            return this;
+        }
+
+        public Criteria requireUnmetered() {
+            this.unmetered = true;
+            return this;
+        }
+
+        /**
+         * @param minDownstreamKbps - least downstream bandwidth, see {@link TrackedNetwork#getDownstreamKbps()}
+         */
+        public Criteria requireDownstreamKbps(long minDownstreamKbps) {
+            this.minDownstreamKbps = minDownstreamKbps;
+            return this;
+        }
+
+        /**
+         * @param transport - e.g. {@link NetworkCapabilities#TRANSPORT_WIFI}
+         */
+        public Criteria requireTransport(int transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        public boolean matches(@NonNull TrackedNetwork trackedNetwork) {
+            return (!validated || trackedNetwork.isValidated())
+                    && (!unmetered || !trackedNetwork.isMetered())
+                    && (transport < 0 || trackedNetwork.hasTransport(transport))
+                    && (minDownstreamKbps <= 0 || trackedNetwork.getDownstreamKbps() >= minDownstreamKbps);
+        }
+
+        @Override
+        public String toString() {
+            return "Criteria{" +
+                    "validated=" + validated +
+                    ", unmetered=" + unmetered +
+                    ", minDownstreamKbps=" + minDownstreamKbps +
+                    ", transport=" + transport +
+                    '}';
+        }
+    }
+
+    private final Object lock = new Object();
+    private final ConnectivityManager connectivityManager;
+    private final ConcurrentHashMap<Network, TrackedNetwork> networks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Network, LinkSnapshot> links = new ConcurrentHashMap<>();
+    /* network the process was bound to with bindProcessToNetwork, null for the default network */
+    private volatile Network boundNetwork;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /* flap penalty per transport, a new Network of that transport starts with it */
+    private final double[] transportPenalty = new double[TRANSPORT_SLOTS];
+    private final long[] transportPenaltyMillis = new long[TRANSPORT_SLOTS];
+
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    /**
+     * Get the tracker of this process
+     *
+     * @param context - Context, only its application context is used
+     * @return NetworkTracker
+     */
+    public static NetworkTracker getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (NetworkTracker.class) {
+                if (instance == null) {
+                    instance = new NetworkTracker(ConnectivityBackends.get(context).getConnectivityManager());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private NetworkTracker(@Nullable ConnectivityManager connectivityManager) {
+        this.connectivityManager = connectivityManager;
+    }
+
+    /**
+     * Start tracking, called by {@link ConnectivityMonitor} when it registers the network callback
+     *
+     * @param handler - Handler callbacks are delivered on from Oreo
+     */
+    @RequiresPermission(Manifest.permission.ACCESS_NETWORK_STATE)
+    void start(@Nullable Handler handler) {
+        synchronized (lock) {
+            if (networkCallback != null || connectivityManager == null) {
+                return;
+            }
+            networkCallback = new TrackerCallback();
+            NetworkRequest networkRequest = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && handler != null) {
+                connectivityManager.registerNetworkCallback(networkRequest, networkCallback, handler);
+            } else {
+                connectivityManager.registerNetworkCallback(networkRequest, networkCallback);
+            }
+        }
+    }
+
+    /**
+     * Stop tracking, called by {@link ConnectivityMonitor} when it unregisters the network callback
+     */
+    void stop() {
+        synchronized (lock) {
+            if (networkCallback == null) {
+                return;
+            }
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+            networkCallback = null;
+            networks.clear();
+            links.clear();
+        }
+        notifyListeners();
+    }
+
+    /**
+     * Every tracked network
+     *
+     * @return copy, empty while the tracker is stopped
+     */
+    @NonNull
+    public List<TrackedNetwork> getNetworks() {
+        return new ArrayList<>(networks.values());
+    }
+
+    @Nullable
+    public TrackedNetwork get(@NonNull Network network) {
+        return networks.get(network);
+    }
+
+    /**
+     * Link properties of a network
+     *
+     * @param network - Network
+     * @return LinkSnapshot, {@code null} if the network is not tracked or has not reported them yet
+     */
+    @Nullable
+    public LinkSnapshot getLinkSnapshot(@Nullable Network network) {
+        return network != null ? links.get(network) : null;
+    }
+
+    /**
+     * Link properties of the default network
+     *
+     * @return LinkSnapshot, {@code null} without a default network
+     */
+    @Nullable
+    public LinkSnapshot getDefaultLinkSnapshot() {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        return snapshot != null ? getLinkSnapshot(snapshot.getNetwork()) : null;
+    }
+
+    /**
+     * MTU of the default network, to size I/O buffers with
+     *
+     * @return MTU in bytes, {@link LinkSnapshot#DEFAULT_MTU} when it is unknown
+     */
+    public int getDefaultMtu() {
+        LinkSnapshot linkSnapshot = getDefaultLinkSnapshot();
+        return linkSnapshot != null ? linkSnapshot.getMtuOrDefault() : LinkSnapshot.DEFAULT_MTU;
+    }
+
+    /**
+     * The network that fits a job best: among those matching the criteria, validated before not validated,
+     * unmetered before metered, then the more stable, then the faster, then the default network
+     *
+     * @param criteria - what the job needs
+     * @return TrackedNetwork, {@code null} if no network matches
+     */
+    @Nullable
+    public TrackedNetwork selectBest(@NonNull Criteria criteria) {
+        TrackedNetwork best = null;
+        for (TrackedNetwork candidate : networks.values()) {
+            if (criteria.matches(candidate) && (best == null || compare(candidate, best) > 0)) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Send all traffic of the process that is not bound otherwise over a network
+     *
+     * @param trackedNetwork - network to use, {@code null} to go back to the default network
+     * @return {@code true} if the platform accepted it
+     */
+    public boolean bindProcessToNetwork(@Nullable TrackedNetwork trackedNetwork) {
+        Network network = trackedNetwork != null ? trackedNetwork.getNetwork() : null;
+        boolean bound;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            bound = connectivityManager != null && connectivityManager.bindProcessToNetwork(network);
+        } else {
+            bound = ConnectivityManager.setProcessDefaultNetwork(network);
+        }
+        if (bound) {
+            boundNetwork = network;
+            /* host names now resolve on the DNS servers of that network */
+            NetworkEpoch.advance("process binding changed");
+        }
+        LogcatUtil.informationMessage(TAG, "Process bound to %s : %s", network, bound);
+        return bound;
+    }
+
+    /**
+     * Unconnected socket whose traffic goes over a network, from the socket factory of the network so it also
+     * works before Marshmallow
+     *
+     * @param trackedNetwork - network to use
+     * @return Socket, connect it with {@link Socket#connect(java.net.SocketAddress, int)}
+     * @throws IOException when the socket cannot be created
+     */
+    @NonNull
+    public static Socket createSocket(@NonNull TrackedNetwork trackedNetwork) throws IOException {
+        return trackedNetwork.getNetwork().getSocketFactory().createSocket();
+    }
+
+    /**
+     * Send the traffic of one socket over a network, call it before connecting. Below Marshmallow use
+     * {@link #createSocket(TrackedNetwork)}.
+     *
+     * @param socket         - unconnected Socket
+     * @param trackedNetwork - network to use
+     * @throws IOException when the socket cannot be bound, e.g. the network is gone
+     */
+    @RequiresApi(api = Build.VERSION_CODES.M)
+    public static void bindSocket(@NonNull Socket socket, @NonNull TrackedNetwork trackedNetwork) throws IOException {
+        trackedNetwork.getNetwork().bindSocket(socket);
+    }
+
+    public void addListener(@NonNull Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkTracker{" +
+                "networks=" + networks.values() +
+                '}';
+    }
+
+    private static int compare(@NonNull TrackedNetwork a, @NonNull TrackedNetwork b) {
+        if (a.isValidated() != b.isValidated()) {
+            return a.isValidated() ? 1 : -1;
+        }
+        if (a.isMetered() != b.isMetered()) {
+            return a.isMetered() ? -1 : 1;
+        }
+        /* stability within 0.1 counts as equal, small penalties should not beat a much faster link */
+        double stability = a.getStability() - b.getStability();
+        if (Math.abs(stability) > 0.1) {
+            return stability > 0 ? 1 : -1;
+        }
+        long downstream = a.getDownstreamKbps() - b.getDownstreamKbps();
+        if (downstream != 0) {
+            return downstream > 0 ? 1 : -1;
+        }
+        return a.isDefault() == b.isDefault() ? 0 : (a.isDefault() ? 1 : -1);
+    }
+
+    private void onCapabilities(@NonNull Network network, @Nullable NetworkCapabilities networkCapabilities) {
+        if (networkCapabilities == null) {
+            return;
+        }
+        synchronized (lock) {
+            long nowMillis = SystemClock.elapsedRealtime();
+            int transports = transportsOf(networkCapabilities);
+            boolean validated = Build.VERSION.SDK_INT < Build.VERSION_CODES.M
+                    || networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+
+            TrackedNetwork previous = networks.get(network);
+            long availableSinceMillis = previous != null ? previous.getAvailableSinceMillis() : nowMillis;
+            int flapCount = previous != null ? previous.getFlapCount() : 0;
+            if (previous != null && previous.isValidated() && !validated) {
+                flapCount++;
+                addPenalty(transports, 1, nowMillis);
+            }
+            int slot = slotOf(transports);
+            networks.put(network, new TrackedNetwork(network, transports, validated,
+                    !networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+                    networkCapabilities.getLinkDownstreamBandwidthKbps(),
+                    networkCapabilities.getLinkUpstreamBandwidthKbps(),
+                    availableSinceMillis, flapCount, transportPenalty[slot], transportPenaltyMillis[slot]));
+        }
+        notifyListeners();
+    }
+
+    private void onFlap(@NonNull Network network, double penalty, boolean lost) {
+        synchronized (lock) {
+            TrackedNetwork previous = lost ? networks.remove(network) : networks.get(network);
+            if (previous == null) {
+                return;
+            }
+            long nowMillis = SystemClock.elapsedRealtime();
+            addPenalty(previous.getTransports(), penalty, nowMillis);
+            if (!lost) {
+                int slot = slotOf(previous.getTransports());
+                networks.put(network, new TrackedNetwork(network, previous.getTransports(), previous.isValidated(),
+                        previous.isMetered(), previous.getLinkDownstreamKbps(), previous.getLinkUpstreamKbps(),
+                        previous.getAvailableSinceMillis(), previous.getFlapCount() + 1,
+                        transportPenalty[slot], transportPenaltyMillis[slot]));
+            }
+        }
+        notifyListeners();
+    }
+
+    private void onLinkProperties(@NonNull Network network, @Nullable LinkProperties linkProperties) {
+        if (linkProperties == null) {
+            return;
+        }
+        LinkSnapshot linkSnapshot = new LinkSnapshot(network, linkProperties);
+        LinkSnapshot previous = links.put(network, linkSnapshot);
+        /*
+         * a network showing up does not move existing traffic, the default network switching to it is handled by
+         * NetworkCallbackImpl. Changes of a background network do not touch the traffic of the default one either.
+         */
+        if (previous != null && isDefaultForProcess(network) && !previous.hasSameRouting(linkSnapshot)) {
+            NetworkEpoch.advance("default link properties changed");
+        }
+    }
+
+    /* the default network, or the network the process is bound to */
+    private boolean isDefaultForProcess(@NonNull Network network) {
+        if (network.equals(boundNetwork)) {
+            return true;
+        }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        return snapshot != null && network.equals(snapshot.getNetwork());
+    }
+
+    /* caller holds the lock */
+    private void addPenalty(int transports, double penalty, long nowMillis) {
+        int slot = slotOf(transports);
+        double elapsedHalfLives = (double) (nowMillis - transportPenaltyMillis[slot]) / FLAP_HALF_LIFE_MILLIS;
+        transportPenalty[slot] = transportPenalty[slot] * Math.pow(0.5, elapsedHalfLives) + penalty;
+        transportPenaltyMillis[slot] = nowMillis;
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            listener.onNetworksChanged(this);
+        }
+    }
+
+    private static int transportsOf(@NonNull NetworkCapabilities networkCapabilities) {
+        int transports = 0;
+        for (int transport = 0; transport < TRANSPORT_SLOTS; transport++) {
+            if (networkCapabilities.hasTransport(transport)) {
+                transports |= 1 << transport;
+            }
+        }
+        return transports;
+    }
+
+    /* the penalty slot of a network is its lowest transport, a VPN over Wi-Fi counts as Wi-Fi */
+    private static int slotOf(int transports) {
+        return transports == 0 ? TRANSPORT_SLOTS - 1 : Math.min(Integer.numberOfTrailingZeros(transports), TRANSPORT_SLOTS - 1);
+    }
+
+    private final class TrackerCallback extends ConnectivityManager.NetworkCallback {
+
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            /* before Oreo onCapabilitiesChanged does not follow onAvailable */
+            onCapabilities(network, connectivityManager.getNetworkCapabilities(network));
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+                onLinkProperties(network, connectivityManager.getLinkProperties(network));
+            }
+        }
+
+        @Override
+        public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
+            onCapabilities(network, networkCapabilities);
+        }
+
+        @Override
+        public void onLosing(@NonNull Network network, int maxMsToLive) {
+            onFlap(network, 0.5, false);
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            LogcatUtil.informationMessage(TAG, "%s lost", network);
+            onFlap(network, 1, true);
+            if (links.remove(network) == null) {
+                return;
+            }
+            if (network.equals(boundNetwork)) {
+                boundNetwork = null;
+                NetworkEpoch.advance("bound network lost");
+                return;
+            }
+            /* NetworkCallbackImpl may have published the loss already, then there is no default network left */
+            ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+            if (snapshot == null || snapshot.getNetwork() == null || network.equals(snapshot.getNetwork())) {
+                NetworkEpoch.advance("default network lost");
+            }
+        }
+
+        @Override
+        public void onLinkPropertiesChanged(@NonNull Network network, @NonNull LinkProperties linkProperties) {
+            onLinkProperties(network, linkProperties);
+        }
+    }
+}
@@ -0,0 +1,652 @@
+package com.network.internet;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.network.util.LogcatUtil;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent queue of payloads to send once the network is back, safe across process death and reboots.
+ *
+ * <p>Payloads are appended to a journal of memory-mapped segment files, {@link #SEGMENT_SIZE} bytes each. A
+ * record is its length, a CRC32 of length, sequence number and payload, its sequence number and the payload.
+ * {@link #enqueue(byte[])} only copies into the mapping, which the kernel keeps even if the process dies; the
+ * pages are forced to disk in batches at most {@link #FLUSH_INTERVAL_MILLIS} later, or by {@link #flush()}.
+ * Enqueueing therefore takes microseconds however many payloads are waiting, nothing about them is kept on the
+ * heap.</p>
+ *
+ * <p>When {@link ConnectivityEventBus} reports the network available, and after each enqueue while it is, the
+ * records are handed to the {@link Sender} in order. What the sender accepts is acknowledged in a small separate file, and segments
+ * whose records are all acknowledged are deleted in the background. Delivery is at least once: a record sent
+ * just before a crash may be sent again.</p>
+ *
+ * <p>On {@link #open(File, Sender)} every segment is scanned. The first record with a bad length, checksum or
+ * sequence marks a torn write: it and everything after it is zeroed and appending resumes there. The space after
+ * the last record is zeroed as well, so records written after a length that never reached the disk cannot come
+ * back once new appends fill the gap.</p>
+ */
+public final class OfflineOutbox {
+
+    private static final String TAG = OfflineOutbox.class.getSimpleName();
+
+    public static final int SEGMENT_SIZE            = 1024 * 1024;
+    public static final long FLUSH_INTERVAL_MILLIS  = 50;
+    public static final long RETRY_DELAY_MILLIS     = 30 * 1000;
+
+    private static final int MAGIC          = 0x4f424f58; // "OBOX"
+    private static final int VERSION        = 1;
+    private static final int SEGMENT_HEADER = 16;
+    /* length, crc, sequence */
+    private static final int RECORD_HEADER  = 16;
+    public static final int MAX_PAYLOAD     = SEGMENT_SIZE - SEGMENT_HEADER - RECORD_HEADER;
+
+    private static final String SEGMENT_SUFFIX  = ".seg";
+    private static final String ACK_FILE        = "outbox.ack";
+    /* two slots of sequence and its complement, written alternately so one is always whole */
+    private static final int ACK_SIZE           = 32;
+
+    /**
+     * Delivers one payload, called on an outbox thread in sequence order
+     */
+    public interface Sender {
+
+        /**
+         * @param sequence - sequence number of the record, always higher than the one before
+         * @param payload  - what was enqueued
+         * @return {@code true} when the payload was delivered and can be dropped,
+         *         {@code false} to stop and try again later
+         * @throws IOException treated like {@code false}
+         */
+        boolean send(long sequence, @NonNull byte[] payload) throws IOException;
+    }
+
+    private final Object lock = new Object();
+    private final File directory;
+    private final Sender sender;
+    private final ScheduledThreadPoolExecutor executor;
+    private final List<Segment> segments = new ArrayList<>();
+    private final CRC32 crc32 = new CRC32();
+    private final MappedByteBuffer ackBuffer;
+
+    /* guarded by lock */
+    private long lastSequence;
+    private long ackedSequence;
+    private int ackSlot;
+    private boolean flushScheduled;
+    private boolean ackDirty;
+    private boolean replaying;
+    private boolean closed;
+    /* first record not acknowledged yet, found again after open */
+    private int cursorSegment;
+    private int cursorPosition = -1;
+    private byte[] scratch = new byte[256];
+    private final ByteBuffer header = ByteBuffer.allocate(12);
+
+    private final ConnectivityEventListener connectivityEventListener = new ConnectivityEventListener() {
+        @Override
+        public void onConnectivityEvent(@NonNull ConnectivityEvent event) {
+            if (event.isAvailable()) {
+                replay();
+            }
+        }
+    };
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (IOException e) {
+                LogcatUtil.errorMessage(TAG, "Flush failed", e);
+            }
+        }
+    };
+
+    private final Runnable replayTask = new Runnable() {
+        @Override
+        public void run() {
+            replayPending();
+        }
+    };
+
+    /**
+     * Open the outbox in a directory, recovering what a previous process left
+     *
+     * @param directory - directory of its own, e.g. {@code new File(context.getFilesDir(), "outbox")}
+     * @param sender    - delivers the payloads
+     * @return OfflineOutbox, replaying right away if the network is available
+     * @throws IOException when the directory or a segment cannot be opened
+     */
+    @NonNull
+    public static OfflineOutbox open(@NonNull File directory, @NonNull Sender sender) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        OfflineOutbox offlineOutbox = new OfflineOutbox(directory, sender);
+        ConnectivityEventBus.subscribe(offlineOutbox.connectivityEventListener);
+        ConnectivityEvent lastEvent = ConnectivityEventBus.getLastEvent();
+        if (lastEvent != null && lastEvent.isAvailable()) {
+            offlineOutbox.replay();
+        }
+        return offlineOutbox;
+    }
+
+    private OfflineOutbox(@NonNull File directory, @NonNull Sender sender) throws IOException {
+        this.directory  = directory;
+        this.sender     = sender;
+        this.executor   = new ScheduledThreadPoolExecutor(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "OfflineOutbox");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+
+        ackBuffer = map(new File(directory, ACK_FILE), ACK_SIZE);
+        ackedSequence = readAck();
+        lastSequence = ackedSequence;
+        recover();
+        LogcatUtil.informationMessage(TAG, "Opened, %d pending", getPendingCount());
+    }
+
+    /**
+     * Append a payload, never blocks on the disk or the network. While the network is available a replay
+     * is started to send it.
+     *
+     * @param payload - up to {@link #MAX_PAYLOAD} bytes
+     * @return sequence number of the record
+     * @throws IOException when a new segment cannot be created, or the outbox is closed
+     */
+    public long enqueue(@NonNull byte[] payload) throws IOException {
+        if (payload.length == 0 || payload.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Payload of " + payload.length + " bytes, 1 to " + MAX_PAYLOAD + " allowed");
+        }
+        long sequence;
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("Outbox closed");
+            }
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.writePosition + RECORD_HEADER + payload.length > SEGMENT_SIZE) {
+                segment = createSegment(lastSequence + 1);
+            }
+            sequence = lastSequence + 1;
+            crc32.reset();
+            updateHeader(payload.length, sequence);
+            crc32.update(payload, 0, payload.length);
+
+            /* the length goes in last, a record without it reads as the end of the journal */
+            MappedByteBuffer buffer = segment.buffer;
+            int position = segment.writePosition;
+            buffer.putInt(position + 4, (int) crc32.getValue());
+            buffer.putLong(position + 8, sequence);
+            ByteBuffer body = buffer.duplicate();
+            body.position(position + RECORD_HEADER);
+            body.put(payload);
+            buffer.putInt(position, payload.length);
+
+            segment.writePosition = position + RECORD_HEADER + payload.length;
+            segment.lastSequence = sequence;
+            segment.dirty = true;
+            lastSequence = sequence;
+            scheduleFlushLocked();
+        }
+        ConnectivityEvent lastEvent = ConnectivityEventBus.getLastEvent();
+        if (lastEvent != null && lastEvent.isAvailable()) {
+            replay();
+        }
+        return sequence;
+    }
+
+    /**
+     * Force every record and the acknowledgements to disk now
+     *
+     * @throws IOException never thrown by the mapping itself, kept for callers that close over files
+     */
+    public void flush() throws IOException {
+        List<Segment> dirty = new ArrayList<>();
+        boolean forceAck;
+        synchronized (lock) {
+            flushScheduled = false;
+            for (Segment segment : segments) {
+                if (segment.dirty) {
+                    segment.dirty = false;
+                    dirty.add(segment);
+                }
+            }
+            forceAck = ackDirty;
+            ackDirty = false;
+        }
+        for (Segment segment : dirty) {
+            segment.buffer.force();
+        }
+        if (forceAck) {
+            ackBuffer.force();
+        }
+    }
+
+    /**
+     * Send what is pending now, e.g. after the sender's server came back. Also done on every network event.
+     */
+    public void replay() {
+        synchronized (lock) {
+            if (closed || replaying) {
+                return;
+            }
+            replaying = true;
+        }
+        try {
+            executor.execute(replayTask);
+        } catch (RejectedExecutionException e) {
+            synchronized (lock) {
+                replaying = false;
+            }
+        }
+    }
+
+    /**
+     * Records enqueued and not acknowledged yet
+     *
+     * @return count
+     */
+    public long getPendingCount() {
+        synchronized (lock) {
+            return lastSequence - ackedSequence;
+        }
+    }
+
+    /**
+     * Number of segment files on disk
+     *
+     * @return count
+     */
+    public int getSegmentCount() {
+        synchronized (lock) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * Flush and stop, records left are replayed by the next {@link #open(File, Sender)}
+     */
+    public void close() {
+        ConnectivityEventBus.unsubscribe(connectivityEventListener);
+        synchronized (lock) {
+            closed = true;
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            LogcatUtil.errorMessage(TAG, "Flush on close failed", e);
+        }
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return "OfflineOutbox{" +
+                    "directory=" + directory +
+                    ", pending=" + (lastSequence - ackedSequence) +
+                    ", lastSequence=" + lastSequence +
+                    ", ackedSequence=" + ackedSequence +
+                    ", segments=" + segments.size() +
+                    '}';
+        }
+    }
+
+    private void replayPending() {
+        long startMillis = SystemClock.elapsedRealtime();
+        int sent = 0;
+        boolean stopped = false;
+        boolean drained = false;
+        try {
+            while (true) {
+                long sequence;
+                byte[] payload;
+                synchronized (lock) {
+                    if (closed || !seekCursorLocked()) {
+                        /* in the same critical section as the check, an enqueue after it starts a new replay */
+                        replaying = false;
+                        drained = true;
+                        break;
+                    }
+                    Segment segment = segments.get(cursorSegment);
+                    int length = segment.buffer.getInt(cursorPosition);
+                    sequence = segment.buffer.getLong(cursorPosition + 8);
+                    payload = new byte[length];
+                    ByteBuffer body = segment.buffer.duplicate();
+                    body.position(cursorPosition + RECORD_HEADER);
+                    body.get(payload);
+                }
+
+                boolean delivered;
+                try {
+                    delivered = sender.send(sequence, payload);
+                } catch (IOException e) {
+                    LogcatUtil.warningMessage(TAG, "Send of %d failed: %s", sequence, e);
+                    delivered = false;
+                }
+                if (!delivered) {
+                    stopped = true;
+                    break;
+                }
+                acknowledge(sequence);
+                sent++;
+            }
+        } catch (RuntimeException e) {
+            LogcatUtil.errorMessage(TAG, "Sender failed", e);
+            stopped = true;
+        } finally {
+            if (!drained) {
+                synchronized (lock) {
+                    replaying = false;
+                }
+            }
+        }
+        if (sent > 0) {
+            LogcatUtil.informationMessage(TAG, "Replayed %d in %d ms", sent, SystemClock.elapsedRealtime() - startMillis);
+            compact();
+        }
+        if (stopped) {
+            scheduleRetry();
+        }
+    }
+
+    private void scheduleRetry() {
+        try {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ConnectivityEvent lastEvent = ConnectivityEventBus.getLastEvent();
+                    if (lastEvent == null || lastEvent.isAvailable()) {
+                        replay();
+                    }
+                }
+            }, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            /* closed */
+        }
+    }
+
+    private void acknowledge(long sequence) {
+        synchronized (lock) {
+            if (sequence <= ackedSequence) {
+                return;
+            }
+            ackedSequence = sequence;
+            ackSlot ^= 1;
+            ackBuffer.putLong(ackSlot * 16, sequence);
+            ackBuffer.putLong(ackSlot * 16 + 8, ~sequence);
+            ackDirty = true;
+            Segment segment = segments.get(cursorSegment);
+            cursorPosition += RECORD_HEADER + segment.buffer.getInt(cursorPosition);
+            scheduleFlushLocked();
+        }
+    }
+
+    /**
+     * Delete the segments every record of which has been acknowledged, never the one being written
+     */
+    private void compact() {
+        List<Segment> deleted = new ArrayList<>();
+        synchronized (lock) {
+            while (segments.size() > 1 && segments.get(0).lastSequence <= ackedSequence) {
+                deleted.add(segments.remove(0));
+                if (cursorSegment > 0) {
+                    cursorSegment--;
+                } else {
+                    /* the cursor was at the end of the deleted segment */
+                    cursorPosition = SEGMENT_HEADER;
+                }
+            }
+        }
+        for (Segment segment : deleted) {
+            if (!segment.file.delete()) {
+                LogcatUtil.warningMessage(TAG, "Cannot delete %s", segment.file);
+            }
+        }
+    }
+
+    /**
+     * Move the cursor to the first record after the acknowledged one
+     *
+     * @return {@code false} when there is no such record yet
+     */
+    private boolean seekCursorLocked() {
+        if (ackedSequence >= lastSequence) {
+            return false;
+        }
+        if (cursorPosition < 0) {
+            cursorSegment = 0;
+            cursorPosition = SEGMENT_HEADER;
+        }
+        while (cursorSegment < segments.size()) {
+            Segment segment = segments.get(cursorSegment);
+            while (cursorPosition < segment.writePosition) {
+                if (segment.buffer.getLong(cursorPosition + 8) > ackedSequence) {
+                    return true;
+                }
+                cursorPosition += RECORD_HEADER + segment.buffer.getInt(cursorPosition);
+            }
+            if (cursorSegment == segments.size() - 1) {
+                return false;
+            }
+            cursorSegment++;
+            cursorPosition = SEGMENT_HEADER;
+        }
+        return false;
+    }
+
+    private void scheduleFlushLocked() {
+        if (flushScheduled || closed) {
+            return;
+        }
+        flushScheduled = true;
+        try {
+            executor.schedule(flushTask, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            flushScheduled = false;
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long indexA = indexOf(a);
+                long indexB = indexOf(b);
+                return indexA < indexB ? -1 : (indexA == indexB ? 0 : 1);
+            }
+        });
+
+        /* sequences only grow, gaps are fine: records lost to a torn write may have been acknowledged */
+        long previous = -1;
+        boolean torn = false;
+        for (File file : files) {
+            if (torn) {
+                /* written after the torn record, cannot be trusted */
+                deleteSegmentFile(file);
+                continue;
+            }
+            MappedByteBuffer buffer = map(file, SEGMENT_SIZE);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                LogcatUtil.warningMessage(TAG, "%s has no valid header or an unknown version, dropped", file.getName());
+                deleteSegmentFile(file);
+                continue;
+            }
+            Segment segment = new Segment(file, indexOf(file), buffer);
+            int position = SEGMENT_HEADER;
+            while (position + RECORD_HEADER <= SEGMENT_SIZE) {
+                int length = buffer.getInt(position);
+                if (length == 0) {
+                    break;
+                }
+                long sequence = buffer.getLong(position + 8);
+                if (length < 0 || position + RECORD_HEADER + length > SEGMENT_SIZE
+                        || sequence <= previous
+                        || buffer.getInt(position + 4) != checksum(segment, position, length, sequence)) {
+                    LogcatUtil.warningMessage(TAG, "Torn record in %s at %d, truncated", file.getName(), position);
+                    torn = true;
+                    break;
+                }
+                segment.lastSequence = sequence;
+                previous = sequence;
+                position += RECORD_HEADER + length;
+            }
+            /* a torn record, or records behind a length that was lost, must not be read again later */
+            if (zeroFrom(buffer, position)) {
+                segment.dirty = true;
+            }
+            segment.writePosition = position;
+            segments.add(segment);
+            if (segment.lastSequence > lastSequence) {
+                lastSequence = segment.lastSequence;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Zero a segment from a position to its end, only touching what is not zero already
+     *
+     * @return {@code true} if anything was written
+     */
+    private static boolean zeroFrom(@NonNull MappedByteBuffer buffer, int position) {
+        boolean written = false;
+        int i = position;
+        for (; i < SEGMENT_SIZE && (i & 7) != 0; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                written = true;
+            }
+        }
+        for (; i < SEGMENT_SIZE; i += 8) {
+            if (buffer.getLong(i) != 0) {
+                buffer.putLong(i, 0);
+                written = true;
+            }
+        }
+        return written;
+    }
+
+    /* checksum of the record at a position */
+    private int checksum(@NonNull Segment segment, int position, int length, long sequence) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        ByteBuffer body = segment.buffer.duplicate();
+        body.position(position + RECORD_HEADER);
+        body.get(scratch, 0, length);
+        crc32.reset();
+        updateHeader(length, sequence);
+        crc32.update(scratch, 0, length);
+        return (int) crc32.getValue();
+    }
+
+    /* a length or sequence that only half reached the disk fails the checksum too */
+    private void updateHeader(int length, long sequence) {
+        header.clear();
+        header.putInt(length);
+        header.putLong(sequence);
+        crc32.update(header.array(), 0, header.position());
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        long index = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).index + 1;
+        File file = new File(directory, String.format("%016x%s", index, SEGMENT_SUFFIX));
+        Segment segment = new Segment(file, index, map(file, SEGMENT_SIZE));
+        segment.buffer.putLong(8, firstSequence);
+        segment.buffer.putInt(4, VERSION);
+        segment.buffer.putInt(0, MAGIC);
+        segment.lastSequence = firstSequence - 1;
+        segment.writePosition = SEGMENT_HEADER;
+        segment.dirty = true;
+        segments.add(segment);
+        return segment;
+    }
+
+    private long readAck() {
+        long best = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            long sequence = ackBuffer.getLong(slot * 16);
+            if (ackBuffer.getLong(slot * 16 + 8) == ~sequence && sequence >= best) {
+                best = sequence;
+                ackSlot = slot;
+            }
+        }
+        return best;
+    }
+
+    private static MappedByteBuffer map(@NonNull File file, int size) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            if (randomAccessFile.length() < size) {
+                randomAccessFile.setLength(size);
+            }
+            /* the mapping stays valid once the file is closed */
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static long indexOf(@NonNull File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()), 16);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static void deleteSegmentFile(@Nullable File file) {
+        if (file != null && !file.delete()) {
+            LogcatUtil.warningMessage(TAG, "Cannot delete %s", file);
+        }
+    }
+
+    private static final class Segment {
+
+        final File file;
+        final long index;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        long lastSequence;
+        boolean dirty;
+
+        Segment(@NonNull File file, long index, @NonNull MappedByteBuffer buffer) {
+            this.file       = file;
+            this.index      = index;
+            this.buffer     = buffer;
+        }
+    }
+}
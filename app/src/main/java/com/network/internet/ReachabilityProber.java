@@ -0,0 +1,370 @@
+package com.network.internet;
+
+import android.Manifest;
+import android.net.Network;
+import android.os.Build;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresPermission;
+import com.network.util.LogcatUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that a network really reaches the internet, the way the framework validates networks from Marshmallow.
+ *
+ * <p>Below Marshmallow a network counts as usable as soon as it is CONNECTED, so a hotel or airport captive
+ * portal looks online. The prober fetches an HTTP endpoint that answers 204 with an empty body, through the
+ * given {@link Network} from Lollipop. A 204 means {@link Verdict#VALIDATED}, any other 2xx/3xx answer comes
+ * from something in between ({@link Verdict#CAPTIVE}), no answer at all means {@link Verdict#NO_INTERNET}.
+ * Endpoints of the form {@code tcp://host:port} are only connected to, they can tell VALIDATED from
+ * NO_INTERNET but cannot see a portal.</p>
+ *
+ * <p>Verdicts are cached per network for a TTL, and concurrent callers asking about the same network share
+ * one probe. A verdict about the default network ({@code null}) is only valid for the {@link NetworkEpoch} it
+ * was probed in, and a probe that was running while its network was invalidated does not cache its result.</p>
+ */
+public final class ReachabilityProber {
+
+    private static final String TAG = ReachabilityProber.class.getSimpleName();
+
+    public enum Verdict {
+        /**
+         * Not probed yet, or the cached verdict expired
+         */
+        UNKNOWN,
+        /**
+         * The probe endpoint answered as expected
+         */
+        VALIDATED,
+        /**
+         * Something answered in place of the probe endpoint, usually a captive portal
+         */
+        CAPTIVE,
+        /**
+         * No endpoint could be reached
+         */
+        NO_INTERNET
+    }
+
+    public static final List<String> DEFAULT_ENDPOINTS = Collections.unmodifiableList(Arrays.asList(
+            "http://connectivitycheck.gstatic.com/generate_204",
+            "http://clients3.google.com/generate_204"));
+
+    public static final long DEFAULT_VALIDATED_TTL_MILLIS = 60 * 1000;
+    public static final long DEFAULT_FAILED_TTL_MILLIS    = 15 * 1000;
+    public static final int DEFAULT_TIMEOUT_MILLIS        = 5000;
+
+    /* key of the default network below Lollipop, where there is no Network object */
+    private static final Object DEFAULT_NETWORK = new Object();
+    private static final int MAX_PROBE_THREADS = 2;
+
+    private static volatile ReachabilityProber instance;
+
+    private final ConcurrentHashMap<Object, CachedVerdict> verdicts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, FutureTask<Verdict>> inFlight = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    /* moves on every invalidation, a probe started before one does not cache its verdict */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private volatile List<String> endpoints = DEFAULT_ENDPOINTS;
+    private volatile long validatedTtlMillis = DEFAULT_VALIDATED_TTL_MILLIS;
+    private volatile long failedTtlMillis = DEFAULT_FAILED_TTL_MILLIS;
+    private volatile int timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+    public static ReachabilityProber getInstance() {
+        if (instance == null) {
+            synchronized (ReachabilityProber.class) {
+                if (instance == null) {
+                    instance = new ReachabilityProber();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ReachabilityProber() {
+        executor = new ThreadPoolExecutor(MAX_PROBE_THREADS, MAX_PROBE_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "ReachabilityProber");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Endpoints tried in order until one gives a definite answer
+     *
+     * @param endpoints - http(s) URLs answering 204, or {@code tcp://host:port}
+     */
+    public void setEndpoints(@NonNull List<String> endpoints) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is needed");
+        }
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+    }
+
+    /**
+     * How long verdicts are reused
+     *
+     * @param validatedTtlMillis - TTL of {@link Verdict#VALIDATED}
+     * @param failedTtlMillis    - TTL of {@link Verdict#CAPTIVE} and {@link Verdict#NO_INTERNET}
+     */
+    public void setTtlMillis(long validatedTtlMillis, long failedTtlMillis) {
+        this.validatedTtlMillis = validatedTtlMillis;
+        this.failedTtlMillis    = failedTtlMillis;
+    }
+
+    /**
+     * Connect and read timeout of one endpoint
+     *
+     * @param timeoutMillis - timeout in milliseconds
+     */
+    public void setTimeoutMillis(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Cached verdict, never blocks
+     *
+     * @param network - Network, {@code null} for the default network
+     * @return Verdict, {@link Verdict#UNKNOWN} when there is none or it expired
+     */
+    @NonNull
+    public Verdict getCachedVerdict(@Nullable Network network) {
+        Object key = keyOf(network);
+        CachedVerdict cached = verdicts.get(key);
+        if (cached == null || cached.expiresAtMillis <= SystemClock.elapsedRealtime()
+                || (key == DEFAULT_NETWORK && !NetworkEpoch.isCurrent(cached.epoch))) {
+            return Verdict.UNKNOWN;
+        }
+        return cached.verdict;
+    }
+
+    /**
+     * Probe a network in the background, or join the probe already running for it
+     *
+     * @param network - Network, {@code null} for the default network
+     * @return Future of the Verdict, already done when a cached verdict is still valid
+     */
+    @RequiresPermission(Manifest.permission.INTERNET)
+    @NonNull
+    public Future<Verdict> probe(@Nullable final Network network) {
+        final Object key = keyOf(network);
+        final Verdict cached = getCachedVerdict(network);
+        if (cached != Verdict.UNKNOWN) {
+            FutureTask<Verdict> done = new FutureTask<>(new Callable<Verdict>() {
+                @Override
+                public Verdict call() {
+                    return cached;
+                }
+            });
+            done.run();
+            return done;
+        }
+
+        FutureTask<Verdict> task = inFlight.get(key);
+        if (task != null) {
+            return task;
+        }
+        final int startGeneration = generation.get();
+        final int startEpoch = NetworkEpoch.current();
+        FutureTask<Verdict> created = new FutureTask<Verdict>(new Callable<Verdict>() {
+            @Override
+            public Verdict call() {
+                Verdict verdict = runProbe(network);
+                /* the network may have been lost or replaced while probing, that verdict is about the old one */
+                if (generation.get() == startGeneration && (key != DEFAULT_NETWORK || NetworkEpoch.isCurrent(startEpoch))) {
+                    long ttlMillis = verdict == Verdict.VALIDATED ? validatedTtlMillis : failedTtlMillis;
+                    verdicts.put(key, new CachedVerdict(verdict, SystemClock.elapsedRealtime() + ttlMillis, startEpoch));
+                }
+                return verdict;
+            }
+        }) {
+            @Override
+            protected void done() {
+                /* invalidate() may already have let a newer probe in */
+                inFlight.remove(key, this);
+            }
+        };
+        task = inFlight.putIfAbsent(key, created);
+        if (task != null) {
+            return task;
+        }
+        executor.execute(created);
+        return created;
+    }
+
+    /**
+     * Probe a network and wait for the verdict, must not be called on the main thread
+     *
+     * @param network       - Network, {@code null} for the default network
+     * @param timeoutMillis - how long to wait
+     * @return Verdict, {@link Verdict#UNKNOWN} if it did not come in time
+     */
+    @RequiresPermission(Manifest.permission.INTERNET)
+    @NonNull
+    public Verdict awaitVerdict(@Nullable Network network, long timeoutMillis) {
+        try {
+            return probe(network).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LogcatUtil.errorMessage(TAG, "Probe failed", e.getCause());
+        } catch (TimeoutException e) {
+            LogcatUtil.warningMessage(TAG, "No verdict after %d ms", timeoutMillis);
+        }
+        return Verdict.UNKNOWN;
+    }
+
+    /**
+     * Forget the verdict of a network, called when it is lost and, for the default network, on CONNECTIVITY_ACTION
+     * below Lollipop. A probe still running is not joined by later callers and does not cache its verdict.
+     *
+     * @param network - Network, {@code null} for the default network
+     */
+    void invalidate(@Nullable Network network) {
+        Object key = keyOf(network);
+        generation.incrementAndGet();
+        verdicts.remove(key);
+        inFlight.remove(key);
+    }
+
+    /**
+     * Forget every verdict
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        verdicts.clear();
+        inFlight.clear();
+    }
+
+    private Verdict runProbe(@Nullable Network network) {
+        Verdict result = Verdict.NO_INTERNET;
+        for (String endpoint : endpoints) {
+            long startMillis = SystemClock.elapsedRealtime();
+            Verdict verdict = endpoint.startsWith("tcp://") ? probeTcp(network, endpoint) : probeHttp(network, endpoint);
+            LogcatUtil.informationMessage(TAG, "%s in %d ms", verdict, SystemClock.elapsedRealtime() - startMillis);
+            if (verdict == Verdict.VALIDATED) {
+                return verdict;
+            }
+            if (verdict == Verdict.CAPTIVE) {
+                /* keep trying, one blocked endpoint is not a portal yet, but remember what we saw */
+                result = verdict;
+            }
+        }
+        return result;
+    }
+
+    private Verdict probeHttp(@Nullable Network network, @NonNull String endpoint) {
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(endpoint);
+            if (network != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                connection = (HttpURLConnection) network.openConnection(url);
+            } else {
+                connection = (HttpURLConnection) url.openConnection();
+            }
+            connection.setInstanceFollowRedirects(false);
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setUseCaches(false);
+            connection.setRequestProperty("Connection", "close");
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NO_CONTENT) {
+                return Verdict.VALIDATED;
+            }
+            if (responseCode == HttpURLConnection.HTTP_OK && connection.getContentLength() == 0) {
+                /* some proxies turn 204 into an empty 200 */
+                return Verdict.VALIDATED;
+            }
+            if (responseCode >= 200 && responseCode < 400) {
+                return Verdict.CAPTIVE;
+            }
+            return Verdict.NO_INTERNET;
+        } catch (IOException e) {
+            LogcatUtil.warningMessage(TAG, "HTTP probe failed: %s", e.toString());
+            return Verdict.NO_INTERNET;
+        } finally {
+            if (connection != null) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private Verdict probeTcp(@Nullable Network network, @NonNull String endpoint) {
+        Socket socket = null;
+        try {
+            URI uri = URI.create(endpoint);
+            if (network != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                socket = network.getSocketFactory().createSocket();
+            } else {
+                socket = new Socket();
+            }
+            socket.connect(new InetSocketAddress(uri.getHost(), uri.getPort()), timeoutMillis);
+            return Verdict.VALIDATED;
+        } catch (IOException | IllegalArgumentException e) {
+            LogcatUtil.warningMessage(TAG, "TCP probe failed: %s", e.toString());
+            return Verdict.NO_INTERNET;
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(@NonNull HttpURLConnection connection) {
+        try {
+            InputStream inputStream = connection.getInputStream();
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
+        connection.disconnect();
+    }
+
+    private static Object keyOf(@Nullable Network network) {
+        return network != null ? network : DEFAULT_NETWORK;
+    }
+
+    private static final class CachedVerdict {
+
+        final Verdict verdict;
+        final long expiresAtMillis;
+        final int epoch;
+
+        CachedVerdict(@NonNull Verdict verdict, long expiresAtMillis, int epoch) {
+            this.verdict         = verdict;
+            this.expiresAtMillis = expiresAtMillis;
+            this.epoch           = epoch;
+        }
+    }
+}
@@ -6,12 +6,12 @@ import android.net.ConnectivityManager;
 import android.net.NetworkCapabilities;
 import android.net.NetworkRequest;
 import android.net.NetworkSpecifier;
-import android.net.wifi.WifiManager;
 import android.net.wifi.WifiNetworkSpecifier;
 import android.os.Build;
 import android.os.Handler;
 import android.os.PatternMatcher;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresPermission;
 import com.network.util.LogcatUtil;
 
@@ -24,33 +24,48 @@ public class RegisterAndUnregisterNetworkReceiver {
     private ConnectivityManager connectivityManager;
     private NetworkStateChangeReceiver networkStateChangeReceiver;
     private NetworkCallbackImpl networkCallback;
+    private Handler handler;
 
     public RegisterAndUnregisterNetworkReceiver(@NonNull Context context) {
+        this(context, null);
+    }
+
+    /**
+     * @param context - Context
+     * @param handler - Handler callbacks and broadcasts are delivered on where the platform allows it,
+     *                  {@code null} for the platform default
+     */
+    public RegisterAndUnregisterNetworkReceiver(@NonNull Context context, @Nullable Handler handler) {
         this.context = context;
+        this.handler = handler;
         networkStateChangeReceiver = new NetworkStateChangeReceiver();
     }
 
     @RequiresPermission(android.Manifest.permission.ACCESS_NETWORK_STATE)
     public void registerNetworkReceiver(@NonNull Context context)
     {
+        /* publish the first settled state whatever the state was before the last unregister */
+        ConnectivityStateMachine.getInstance().reset();
+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
         {
             connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-            context.registerReceiver(networkStateChangeReceiver, new IntentFilter(NETWORK_AVAILABILITY_ACTION));
             if (connectivityManager != null)
             {
                 networkCallback = new NetworkCallbackImpl(context);
 
+                /* Starting with Oreo specifying a Handler is allowed.  Use this to avoid thread-hops. */
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && provideHandler() != null)
+                {
+                    LogcatUtil.informationMessage(TAG, "NETWORK CALLBACK WITH HANDLER");
+                    connectivityManager.registerDefaultNetworkCallback(networkCallback, provideHandler());
+                }
                 /* for devices above Nougat */
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+                else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
                 {
                     LogcatUtil.informationMessage(TAG, "NETWORK CALLBACK IF");
                     connectivityManager.registerDefaultNetworkCallback(networkCallback);
                 }
-                else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    /* Starting with Oreo specifying a Handler is allowed.  Use this to avoid thread-hops. */
-                   connectivityManager.registerNetworkCallback(provideNetworkRequest(), networkCallback, provideHandler());
-                }
                 /* for devices b/w Lollipop and Nougat */
                 else
                 {
@@ -59,12 +74,18 @@ public class RegisterAndUnregisterNetworkReceiver {
                 }
             }
 
-            // used because if network is off when app start
-            if(NetworkConnectivityUtil.isConnectedAll(context)){
-                context.sendBroadcast(networkCallback.getNetworkAvailabilityIntent(true));
-            } else{
-                context.sendBroadcast(networkCallback.getNetworkAvailabilityIntent(false));
+            /* Data Saver has no network callback, only a broadcast that is not delivered to manifest receivers */
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+            {
+                context.registerReceiver(networkStateChangeReceiver,
+                        new IntentFilter(ConnectivityManager.ACTION_RESTRICT_BACKGROUND_CHANGED), null, provideHandler());
+                NetworkConstraints.refreshRestrictBackground(connectivityManager);
             }
+
+            // used because if network is off when app start
+            ConnectivityStateMachine.getInstance().onRawCallback(
+                    NetworkConnectivityUtil.isConnectedAll(context) ? ConnectivityStateMachine.State.CONNECTED : ConnectivityStateMachine.State.DISCONNECTED,
+                    ConnectivitySnapshot.current());
         }
         /* below lollipop */
         else
@@ -74,10 +95,8 @@ public class RegisterAndUnregisterNetworkReceiver {
             if (networkStateChangeReceiver != null)
             {
                 IntentFilter filter = new IntentFilter();
-                filter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
-                filter.addAction(WifiManager.WIFI_STATE_CHANGED_ACTION);
                 filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
-                context.registerReceiver(networkStateChangeReceiver, filter);
+                context.registerReceiver(networkStateChangeReceiver, filter, null, provideHandler());
                 LogcatUtil.informationMessage(TAG, "CONNECTIVITY_ACTION");
             }
         }
@@ -119,8 +138,8 @@ public class RegisterAndUnregisterNetworkReceiver {
         }
     }
 
+    @Nullable
     public Handler provideHandler() {
-        Handler handler = null;
         return handler;
     }
 
@@ -129,6 +148,12 @@ public class RegisterAndUnregisterNetworkReceiver {
         {
             LogcatUtil.informationMessage(TAG, "UNREGISTER ABOVE 21");
             connectivityManager.unregisterNetworkCallback(networkCallback);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+            {
+                context.unregisterReceiver(networkStateChangeReceiver);
+            }
+            /* nothing keeps the snapshot current any more, queries go back to ConnectivityManager */
+            ConnectivitySnapshot.clear();
         }
         else
         {
@@ -0,0 +1,76 @@
+package com.network.internet;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiManager;
+import android.telephony.TelephonyManager;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Holds the system services every platform backend needs, looked up once from the application context
+ */
+abstract class SystemConnectivityBackend implements ConnectivityBackend {
+
+    final ConnectivityManager connectivityManager;
+    private final TelephonyManager telephonyManager;
+    private final WifiManager wifiManager;
+
+    @SuppressLint("WifiManagerLeak")
+    SystemConnectivityBackend(@NonNull Context context) {
+        this.connectivityManager    = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.telephonyManager       = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
+        this.wifiManager            = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+    }
+
+    @Nullable
+    @Override
+    public NetworkInfo getActiveNetworkInfo() {
+        return connectivityManager != null ? connectivityManager.getActiveNetworkInfo() : null;
+    }
+
+    @Nullable
+    @Override
+    public ConnectivityManager getConnectivityManager() {
+        return connectivityManager;
+    }
+
+    @Nullable
+    @Override
+    public TelephonyManager getTelephonyManager() {
+        return telephonyManager;
+    }
+
+    @Nullable
+    @Override
+    public WifiManager getWifiManager() {
+        return wifiManager;
+    }
+
+    static int typeOf(@Nullable NetworkInfo networkInfo) {
+        if (networkInfo == null) {
+            return TYPE_NONE;
+        }
+        switch (networkInfo.getType()) {
+            case ConnectivityManager.TYPE_MOBILE:
+                return TYPE_MOBILE;
+            case ConnectivityManager.TYPE_WIFI:
+                return TYPE_WIFI;
+            case ConnectivityManager.TYPE_VPN:
+                return TYPE_VPN;
+            default:
+                return TYPE_NONE;
+        }
+    }
+
+    static int flagOf(int type) {
+        return type == TYPE_MOBILE || type == TYPE_WIFI ? 1 << type : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectivityBackend{" + getName() + '}';
+    }
+}
@@ -0,0 +1,153 @@
+package com.network.internet;
+
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+/**
+ * What {@link NetworkTracker} knows about one network, an immutable copy taken at the last callback
+ */
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+public final class TrackedNetwork {
+
+    private final Network network;
+    private final int transports;
+    private final boolean validated;
+    private final boolean metered;
+    private final int linkDownstreamKbps;
+    private final int linkUpstreamKbps;
+    private final long availableSinceMillis;
+    private final int flapCount;
+    private final double flapPenalty;
+    private final long flapPenaltyMillis;
+
+    TrackedNetwork(@NonNull Network network, int transports, boolean validated, boolean metered,
+                   int linkDownstreamKbps, int linkUpstreamKbps, long availableSinceMillis,
+                   int flapCount, double flapPenalty, long flapPenaltyMillis) {
+        this.network                = network;
+        this.transports             = transports;
+        this.validated              = validated;
+        this.metered                = metered;
+        this.linkDownstreamKbps     = linkDownstreamKbps;
+        this.linkUpstreamKbps       = linkUpstreamKbps;
+        this.availableSinceMillis   = availableSinceMillis;
+        this.flapCount              = flapCount;
+        this.flapPenalty            = flapPenalty;
+        this.flapPenaltyMillis      = flapPenaltyMillis;
+    }
+
+    @NonNull
+    public Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * @param transport - e.g. {@link NetworkCapabilities#TRANSPORT_WIFI}
+     * @return {@code true} if the network uses that transport
+     */
+    public boolean hasTransport(int transport) {
+        return (transports & (1 << transport)) != 0;
+    }
+
+    /**
+     * Transports of the network
+     *
+     * @return one bit per {@code NetworkCapabilities.TRANSPORT_*}, shifted by its value
+     */
+    public int getTransports() {
+        return transports;
+    }
+
+    public boolean isValidated() {
+        return validated;
+    }
+
+    public boolean isMetered() {
+        return metered;
+    }
+
+    /**
+     * Whether this is the default network of the process right now
+     *
+     * @return {@code true}: Yes <br>{@code false}: no
+     */
+    public boolean isDefault() {
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        return snapshot != null && network.equals(snapshot.getNetwork());
+    }
+
+    /**
+     * Downstream bandwidth, the link estimate of the platform, or what {@link BandwidthEstimator} measured on the
+     * default network when it is confident and higher, the measurement being a lower bound
+     *
+     * @return kbps, 0 when unknown
+     */
+    public long getDownstreamKbps() {
+        if (isDefault()) {
+            BandwidthEstimator bandwidthEstimator = BandwidthEstimator.getInstance();
+            if (bandwidthEstimator.getConfidence() >= BandwidthEstimator.CONFIDENT) {
+                return Math.max(linkDownstreamKbps, bandwidthEstimator.getEstimatedDownstreamKbps());
+            }
+        }
+        return linkDownstreamKbps;
+    }
+
+    /**
+     * @return {@link NetworkCapabilities#getLinkDownstreamBandwidthKbps()}
+     */
+    public int getLinkDownstreamKbps() {
+        return linkDownstreamKbps;
+    }
+
+    /**
+     * @return {@link NetworkCapabilities#getLinkUpstreamBandwidthKbps()}
+     */
+    public int getLinkUpstreamKbps() {
+        return linkUpstreamKbps;
+    }
+
+    /**
+     * @return {@link SystemClock#elapsedRealtime()} of onAvailable
+     */
+    public long getAvailableSinceMillis() {
+        return availableSinceMillis;
+    }
+
+    /**
+     * Validation losses and onLosing calls seen on this network
+     *
+     * @return count
+     */
+    public int getFlapCount() {
+        return flapCount;
+    }
+
+    /**
+     * 1 for a network whose transport has not flapped recently, towards 0 the more it did.
+     * Every flap adds a penalty that halves each {@link NetworkTracker#FLAP_HALF_LIFE_MILLIS}.
+     *
+     * @return stability in (0, 1]
+     */
+    public double getStability() {
+        long elapsedMillis = SystemClock.elapsedRealtime() - flapPenaltyMillis;
+        double penalty = flapPenalty * Math.pow(0.5, (double) elapsedMillis / NetworkTracker.FLAP_HALF_LIFE_MILLIS);
+        return 1 / (1 + penalty);
+    }
+
+    @Override
+    public String toString() {
+        return "TrackedNetwork{" +
+                "network=" + network +
+                ", transports=" + Integer.toBinaryString(transports) +
+                ", validated=" + validated +
+                ", metered=" + metered +
+                ", linkDownstreamKbps=" + linkDownstreamKbps +
+                ", linkUpstreamKbps=" + linkUpstreamKbps +
+                ", flapCount=" + flapCount +
+                ", stability=" + Math.round(getStability() * 100) / 100.0 +
+                '}';
+    }
+}
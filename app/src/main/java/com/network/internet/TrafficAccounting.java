@@ -0,0 +1,484 @@
+package com.network.internet;
+
+import android.net.TrafficStats;
+import android.os.Handler;
+import android.os.Process;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.network.util.LogcatUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes sent and received per feature and per transport, e.g. how much the image loader used on mobile data.
+ *
+ * <p>A feature wraps its network code in a scope:</p>
+ * <pre>
+ * TrafficAccounting.Feature images = TrafficAccounting.getInstance().feature("images");
+ * int previousTag = images.enter();
+ * try {
+ *     ...
+ * } finally {
+ *     images.exit(previousTag);
+ * }
+ * </pre>
+ *
+ * <p>{@link Feature#enter()} sets the thread stats tag, so sockets created inside the scope carry the tag of the
+ * feature in the kernel counters seen by Android Studio and {@code NetworkStatsManager}. Sockets taken from a
+ * connection pool keep the tag of the thread that opened them. Entering and leaving a scope costs two atomic
+ * operations and nothing is done per read or write.</p>
+ *
+ * <p>The byte counters of this application's UID are read on the monitor thread every
+ * {@link #SAMPLE_INTERVAL_MILLIS} while started, and once more whenever the type of the default network changes,
+ * so an interval never spans two transports. Per-tag counters cannot be read back through {@link TrafficStats},
+ * so the bytes of an interval are split between the features in proportion to the time each had a scope open.
+ * Bytes of an interval without any open scope go to {@link #UNTAGGED}. Traffic of unscoped code that overlaps
+ * a scope is counted for that feature.</p>
+ */
+public final class TrafficAccounting {
+
+    private static final String TAG = TrafficAccounting.class.getSimpleName();
+
+    public static final long SAMPLE_INTERVAL_MILLIS = 15 * 1000;
+
+    /**
+     * Feature of the bytes moved while no scope was open
+     */
+    public static final String UNTAGGED = "untagged";
+
+    /* tags from here on are handed out by feature(String), the system reserves 0xFFFFFF00 and above */
+    public static final int TAG_BASE = 0x4E540000;
+
+    /* indexed by ConnectivityBackend.TYPE_, bytes without a known default network go to "none" */
+    private static final String[] NETWORK_TYPE_NAMES = {"none", "mobile", "wifi", "vpn"};
+
+    private static volatile TrafficAccounting instance;
+
+    private final int uid = Process.myUid();
+    private final CopyOnWriteArrayList<Feature> features = new CopyOnWriteArrayList<>();
+
+    private Handler handler;
+    private boolean running;
+    private boolean supported = true;
+    private int networkType = ConnectivityBackend.TYPE_NONE;
+    private long lastRxBytes;
+    private long lastTxBytes;
+
+    private final Runnable sample = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (TrafficAccounting.this) {
+                if (!running) {
+                    return;
+                }
+                sample();
+                if (running) {
+                    getHandler().postDelayed(sample, SAMPLE_INTERVAL_MILLIS);
+                }
+            }
+        }
+    };
+
+    public static TrafficAccounting getInstance() {
+        if (instance == null) {
+            synchronized (TrafficAccounting.class) {
+                if (instance == null) {
+                    instance = new TrafficAccounting();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private TrafficAccounting() {
+        features.add(new Feature(UNTAGGED, 0));
+    }
+
+    /**
+     * Feature with a tag of its own, the same instance is returned for the same name
+     *
+     * @param name - name used in {@link Usage}
+     * @return Feature
+     */
+    @NonNull
+    public synchronized Feature feature(@NonNull String name) {
+        return feature(name, TAG_BASE + features.size());
+    }
+
+    /**
+     * Feature with a given tag, e.g. one already used with {@link TrafficStats#tagSocket(java.net.Socket)}
+     *
+     * @param name - name used in {@link Usage}
+     * @param tag  - thread stats tag, the tag of an existing feature of that name wins
+     * @return Feature
+     */
+    @NonNull
+    public synchronized Feature feature(@NonNull String name, int tag) {
+        for (Feature feature : features) {
+            if (feature.name.equals(name)) {
+                return feature;
+            }
+        }
+        Feature feature = new Feature(name, tag);
+        features.add(feature);
+        return feature;
+    }
+
+    /**
+     * Start sampling, the totals so far are kept
+     */
+    public synchronized void start() {
+        if (running || !supported) {
+            return;
+        }
+        ConnectivitySnapshot snapshot = ConnectivitySnapshot.current();
+        networkType = snapshot != null ? snapshot.getNetworkType() : ConnectivityBackend.TYPE_NONE;
+        lastRxBytes = TrafficStats.getUidRxBytes(uid);
+        lastTxBytes = TrafficStats.getUidTxBytes(uid);
+        long nowNanos = System.nanoTime();
+        for (Feature feature : features) {
+            feature.takeActiveNanos(nowNanos);
+        }
+        running = true;
+        getHandler().postDelayed(sample, SAMPLE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Stop sampling, the bytes since the last sample are not counted
+     */
+    public synchronized void stop() {
+        if (running) {
+            running = false;
+            getHandler().removeCallbacks(sample);
+        }
+    }
+
+    /**
+     * Count the bytes moved since the last sample now, e.g. before reading {@link #getUsage()}
+     */
+    public synchronized void sampleNow() {
+        if (running) {
+            sample();
+        }
+    }
+
+    /**
+     * Called whenever the type of the default network may have changed, the bytes so far belong to the old one
+     *
+     * @param type - {@link ConnectivityBackend} TYPE_ constant
+     */
+    static void onNetworkType(int type) {
+        TrafficAccounting accounting = instance;
+        if (accounting != null) {
+            accounting.setNetworkType(type);
+        }
+    }
+
+    private synchronized void setNetworkType(int type) {
+        if (type < 0 || type >= NETWORK_TYPE_NAMES.length) {
+            type = ConnectivityBackend.TYPE_NONE;
+        }
+        if (type == networkType) {
+            return;
+        }
+        if (running) {
+            sample();
+        }
+        networkType = type;
+    }
+
+    /* caller holds this */
+    private void sample() {
+        long rxBytes = TrafficStats.getUidRxBytes(uid);
+        long txBytes = TrafficStats.getUidTxBytes(uid);
+        if (rxBytes == TrafficStats.UNSUPPORTED || txBytes == TrafficStats.UNSUPPORTED) {
+            LogcatUtil.warningMessage(TAG, "TrafficStats not supported for this UID, no traffic accounting");
+            supported = false;
+            stop();
+            return;
+        }
+        long rxDelta = rxBytes - lastRxBytes;
+        long txDelta = txBytes - lastTxBytes;
+        lastRxBytes = rxBytes;
+        lastTxBytes = txBytes;
+
+        long nowNanos = System.nanoTime();
+        Feature[] current = features.toArray(new Feature[0]);
+        long[] weights = new long[current.length];
+        long totalWeight = 0;
+        int lastWeighted = -1;
+        for (int i = 0; i < current.length; i++) {
+            weights[i] = current[i].takeActiveNanos(nowNanos);
+            if (weights[i] > 0) {
+                totalWeight += weights[i];
+                lastWeighted = i;
+            }
+        }
+        /* the counters go back to 0 when the kernel resets them, such an interval is skipped */
+        if (rxDelta < 0 || txDelta < 0 || (rxDelta == 0 && txDelta == 0)) {
+            return;
+        }
+        long minute = SystemClock.elapsedRealtime() / MinuteWindow.SLOT_MILLIS;
+        if (totalWeight == 0) {
+            current[0].add(networkType, rxDelta, txDelta, minute);
+            return;
+        }
+        long rxLeft = rxDelta;
+        long txLeft = txDelta;
+        for (int i = 0; i < lastWeighted; i++) {
+            if (weights[i] > 0) {
+                double share = weights[i] / (double) totalWeight;
+                long rx = Math.round(rxDelta * share);
+                long tx = Math.round(txDelta * share);
+                current[i].add(networkType, rx, tx, minute);
+                rxLeft -= rx;
+                txLeft -= tx;
+            }
+        }
+        /* rounding leftovers go to the last one so the totals add up to the UID counters */
+        current[lastWeighted].add(networkType, Math.max(0, rxLeft), Math.max(0, txLeft), minute);
+    }
+
+    /**
+     * Bytes per feature and transport, only the pairs that moved any
+     *
+     * @return list of Usage, totals since the process started and of the last hour
+     */
+    @NonNull
+    public synchronized List<Usage> getUsage() {
+        long minute = SystemClock.elapsedRealtime() / MinuteWindow.SLOT_MILLIS;
+        List<Usage> usage = new ArrayList<>();
+        for (Feature feature : features) {
+            for (int type = 0; type < NETWORK_TYPE_NAMES.length; type++) {
+                if (feature.rxBytes[type] == 0 && feature.txBytes[type] == 0) {
+                    continue;
+                }
+                MinuteWindow window = feature.lastHour[type];
+                usage.add(new Usage(feature.name, type, feature.rxBytes[type], feature.txBytes[type],
+                        window.rxSum(minute), window.txSum(minute)));
+            }
+        }
+        return Collections.unmodifiableList(usage);
+    }
+
+    /**
+     * Name of a transport as used in logs
+     *
+     * @param type - {@link ConnectivityBackend} TYPE_ constant
+     * @return "none", "mobile", "wifi" or "vpn"
+     */
+    @NonNull
+    public static String networkTypeName(int type) {
+        return type >= 0 && type < NETWORK_TYPE_NAMES.length ? NETWORK_TYPE_NAMES[type] : NETWORK_TYPE_NAMES[0];
+    }
+
+    private Handler getHandler() {
+        if (handler == null) {
+            handler = ConnectivityExecutors.monitorHandler();
+        }
+        return handler;
+    }
+
+    /**
+     * A part of the application whose traffic is counted on its own
+     */
+    public static final class Feature {
+
+        private final String name;
+        private final int tag;
+
+        /* open scopes, and since when at least one is open */
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile long activeSinceNanos;
+        private final AtomicLong activeNanos = new AtomicLong();
+
+        /* guarded by the TrafficAccounting instance */
+        private long lastTakenNanos;
+        private final long[] rxBytes = new long[NETWORK_TYPE_NAMES.length];
+        private final long[] txBytes = new long[NETWORK_TYPE_NAMES.length];
+        private final MinuteWindow[] lastHour = new MinuteWindow[NETWORK_TYPE_NAMES.length];
+
+        private Feature(@NonNull String name, int tag) {
+            this.name           = name;
+            this.tag            = tag;
+            this.lastTakenNanos = System.nanoTime();
+            for (int type = 0; type < lastHour.length; type++) {
+                lastHour[type] = new MinuteWindow();
+            }
+        }
+
+        /**
+         * Open a scope on this thread, scopes of the same or other features may nest
+         *
+         * @return the previous thread stats tag, to be given to {@link #exit(int)}
+         */
+        public int enter() {
+            int previousTag = TrafficStats.getThreadStatsTag();
+            TrafficStats.setThreadStatsTag(tag);
+            while (true) {
+                int count = active.get();
+                if (count == 0) {
+                    /* before the count is published, a sample that sees the scope open never sees an older start */
+                    activeSinceNanos = System.nanoTime();
+                }
+                if (active.compareAndSet(count, count + 1)) {
+                    return previousTag;
+                }
+            }
+        }
+
+        /**
+         * Close the scope opened by {@link #enter()} on this thread
+         *
+         * @param previousTag - value returned by {@link #enter()}
+         */
+        public void exit(int previousTag) {
+            if (active.decrementAndGet() == 0) {
+                activeNanos.addAndGet(Math.max(0, System.nanoTime() - activeSinceNanos));
+            }
+            TrafficStats.setThreadStatsTag(previousTag);
+        }
+
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        public int getTag() {
+            return tag;
+        }
+
+        /*
+         * time with an open scope since the last call, an open stretch is cut at nowNanos. An exit racing with
+         * the cut may count part of the stretch twice, so it is never more than the time since the last call.
+         */
+        private long takeActiveNanos(long nowNanos) {
+            long nanos = activeNanos.getAndSet(0);
+            if (active.get() > 0) {
+                long since = activeSinceNanos;
+                activeSinceNanos = nowNanos;
+                nanos += Math.max(0, nowNanos - since);
+            }
+            long interval = Math.max(0, nowNanos - lastTakenNanos);
+            lastTakenNanos = nowNanos;
+            return Math.min(nanos, interval);
+        }
+
+        private void add(int type, long rx, long tx, long minute) {
+            rxBytes[type] += rx;
+            txBytes[type] += tx;
+            lastHour[type].add(rx, tx, minute);
+        }
+    }
+
+    /**
+     * Bytes of one feature on one transport
+     */
+    public static final class Usage {
+
+        private final String feature;
+        private final int networkType;
+        private final long rxBytes;
+        private final long txBytes;
+        private final long rxBytesLastHour;
+        private final long txBytesLastHour;
+
+        private Usage(@NonNull String feature, int networkType, long rxBytes, long txBytes,
+                      long rxBytesLastHour, long txBytesLastHour) {
+            this.feature            = feature;
+            this.networkType        = networkType;
+            this.rxBytes            = rxBytes;
+            this.txBytes            = txBytes;
+            this.rxBytesLastHour    = rxBytesLastHour;
+            this.txBytesLastHour    = txBytesLastHour;
+        }
+
+        @NonNull
+        public String getFeature() {
+            return feature;
+        }
+
+        /**
+         * Transport the bytes went over
+         *
+         * @return {@link ConnectivityBackend} TYPE_ constant
+         */
+        public int getNetworkType() {
+            return networkType;
+        }
+
+        public long getRxBytes() {
+            return rxBytes;
+        }
+
+        public long getTxBytes() {
+            return txBytes;
+        }
+
+        public long getRxBytesLastHour() {
+            return rxBytesLastHour;
+        }
+
+        public long getTxBytesLastHour() {
+            return txBytesLastHour;
+        }
+
+        @Override
+        public String toString() {
+            return "Usage{" +
+                    "feature='" + feature + '\'' +
+                    ", networkType=" + networkTypeName(networkType) +
+                    ", rxBytes=" + rxBytes +
+                    ", txBytes=" + txBytes +
+                    ", rxBytesLastHour=" + rxBytesLastHour +
+                    ", txBytesLastHour=" + txBytesLastHour +
+                    '}';
+        }
+    }
+
+    /**
+     * Bytes of the last 60 minutes, one slot per minute. Guarded by the TrafficAccounting instance.
+     */
+    private static final class MinuteWindow {
+
+        private static final int SLOTS = 60;
+        private static final long SLOT_MILLIS = 60 * 1000;
+
+        private final long[] minutes = new long[SLOTS];
+        private final long[] rx = new long[SLOTS];
+        private final long[] tx = new long[SLOTS];
+
+        void add(long rxBytes, long txBytes, long minute) {
+            int slot = (int) (minute % SLOTS);
+            if (minutes[slot] != minute) {
+                minutes[slot] = minute;
+                rx[slot] = 0;
+                tx[slot] = 0;
+            }
+            rx[slot] += rxBytes;
+            tx[slot] += txBytes;
+        }
+
+        long rxSum(long minute) {
+            return sum(rx, minute);
+        }
+
+        long txSum(long minute) {
+            return sum(tx, minute);
+        }
+
+        private long sum(long[] bytes, long minute) {
+            long sum = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                if (minute - minutes[i] < SLOTS) {
+                    sum += bytes[i];
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.network.internet;
+
+import android.net.NetworkInfo;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.network.util.LogcatUtil;
+
+/**
+ * How to move data over the current network: parallelism, chunk sizes, prefetch, compression and media quality,
+ * decided in one place instead of at every caller of {@link NetworkConnectivityUtil#getInternetConnectionType(android.content.Context)}.
+ *
+ * <p>The inputs are the default network type, its downstream and upstream link bandwidth as reported by
+ * {@link android.net.NetworkCapabilities}, and the {@link NetworkConstraints} bits. Each bandwidth is reduced to
+ * a {@link Tier} first, so the policy is only recomputed when a tier, the network type or a relevant constraint
+ * changes and not on every small bandwidth update. {@link #current()} is a volatile read and can be called
+ * from any thread.</p>
+ */
+public final class TransferPolicy {
+
+    private static final String TAG = TransferPolicy.class.getSimpleName();
+
+    /* upper bounds of the tiers, in kbps */
+    public static final int POOR_KBPS       = 150;
+    public static final int MODERATE_KBPS   = 1000;
+    public static final int GOOD_KBPS       = 10000;
+
+    /*
+     * no speculative traffic and the smallest media. An application the user exempted from Data Saver gets the
+     * metered policy only, not worse than with Data Saver off.
+     */
+    private static final int FRUGAL_CONSTRAINTS = NetworkConstraints.FLAG_ROAMING
+            | NetworkConstraints.FLAG_BACKGROUND_RESTRICTED;
+    private static final int RELEVANT_CONSTRAINTS = FRUGAL_CONSTRAINTS | NetworkConstraints.FLAG_METERED
+            | NetworkConstraints.FLAG_SUSPENDED | NetworkConstraints.FLAG_BLOCKED;
+
+    public enum Tier {
+        OFFLINE,
+        POOR,
+        MODERATE,
+        GOOD,
+        EXCELLENT
+    }
+
+    public enum MediaQuality {
+        LOW,
+        MEDIUM,
+        HIGH,
+        ORIGINAL
+    }
+
+    private static final TransferPolicy OFFLINE = compute(false, ConnectivityBackend.TYPE_NONE, Tier.OFFLINE, Tier.OFFLINE, 0);
+
+    private static volatile TransferPolicy current = OFFLINE;
+
+    /* inputs of the current policy, guarded by TransferPolicy.class */
+    private static boolean connected;
+    private static int networkType = ConnectivityBackend.TYPE_NONE;
+    private static int downstreamKbps;
+    private static int upstreamKbps;
+    private static int constraints;
+
+    private final int networkTypeInput;
+    private final Tier downstreamTier;
+    private final Tier upstreamTier;
+    private final int constraintsInput;
+    private final int maxConcurrentRequests;
+    private final int downloadChunkBytes;
+    private final int uploadChunkBytes;
+    private final int prefetchDepth;
+    private final int compressionLevel;
+    private final MediaQuality mediaQuality;
+
+    private TransferPolicy(int networkType, @NonNull Tier downstreamTier, @NonNull Tier upstreamTier, int constraints,
+                           int maxConcurrentRequests, int downloadChunkBytes, int uploadChunkBytes, int prefetchDepth,
+                           int compressionLevel, @NonNull MediaQuality mediaQuality) {
+        this.networkTypeInput       = networkType;
+        this.downstreamTier         = downstreamTier;
+        this.upstreamTier           = upstreamTier;
+        this.constraintsInput       = constraints;
+        this.maxConcurrentRequests  = maxConcurrentRequests;
+        this.downloadChunkBytes     = downloadChunkBytes;
+        this.uploadChunkBytes       = uploadChunkBytes;
+        this.prefetchDepth          = prefetchDepth;
+        this.compressionLevel       = compressionLevel;
+        this.mediaQuality           = mediaQuality;
+    }
+
+    /**
+     * Policy for the current network
+     *
+     * @return TransferPolicy, the offline policy until a network is reported
+     */
+    @NonNull
+    public static TransferPolicy current() {
+        return current;
+    }
+
+    /**
+     * Tier of a link bandwidth
+     *
+     * @param kbps        - link bandwidth, 0 or less when unknown
+     * @param networkType - {@link ConnectivityBackend} TYPE_ constant, used when the bandwidth is unknown
+     * @return Tier, never {@link Tier#OFFLINE}
+     */
+    @NonNull
+    public static Tier tierOf(int kbps, int networkType) {
+        if (kbps <= 0) {
+            /* not reported, Wi-Fi is usually fast and cellular usually is not */
+            return networkType == ConnectivityBackend.TYPE_WIFI ? Tier.GOOD : Tier.MODERATE;
+        }
+        if (kbps < POOR_KBPS) {
+            return Tier.POOR;
+        } else if (kbps < MODERATE_KBPS) {
+            return Tier.MODERATE;
+        } else if (kbps < GOOD_KBPS) {
+            return Tier.GOOD;
+        }
+        return Tier.EXCELLENT;
+    }
+
+    /**
+     * Policy for given inputs, without touching the current one
+     *
+     * @param connected      - whether there is a default network
+     * @param networkType    - {@link ConnectivityBackend} TYPE_ constant
+     * @param downstreamTier - Tier of the downstream bandwidth
+     * @param upstreamTier   - Tier of the upstream bandwidth
+     * @param constraints    - {@link NetworkConstraints} bits, as {@link NetworkConstraints#get()} publishes them
+     * @return TransferPolicy
+     */
+    @NonNull
+    public static TransferPolicy compute(boolean connected, int networkType, @NonNull Tier downstreamTier,
+                                         @NonNull Tier upstreamTier, int constraints) {
+        constraints &= RELEVANT_CONSTRAINTS;
+        if (!connected || (constraints & (NetworkConstraints.FLAG_BLOCKED | NetworkConstraints.FLAG_SUSPENDED)) != 0) {
+            downstreamTier = Tier.OFFLINE;
+            upstreamTier = Tier.OFFLINE;
+        }
+        int maxConcurrentRequests;
+        int prefetchDepth;
+        int compressionLevel;
+        MediaQuality mediaQuality;
+        switch (downstreamTier) {
+            case OFFLINE:
+                maxConcurrentRequests = 0;
+                prefetchDepth = 0;
+                compressionLevel = 9;
+                mediaQuality = MediaQuality.LOW;
+                break;
+            case POOR:
+                maxConcurrentRequests = 1;
+                prefetchDepth = 0;
+                compressionLevel = 9;
+                mediaQuality = MediaQuality.LOW;
+                break;
+            case MODERATE:
+                maxConcurrentRequests = 2;
+                prefetchDepth = 1;
+                compressionLevel = 6;
+                mediaQuality = MediaQuality.MEDIUM;
+                break;
+            case GOOD:
+                maxConcurrentRequests = 4;
+                prefetchDepth = 3;
+                compressionLevel = 3;
+                mediaQuality = MediaQuality.HIGH;
+                break;
+            default:
+                maxConcurrentRequests = 6;
+                prefetchDepth = 5;
+                compressionLevel = 1;
+                mediaQuality = MediaQuality.ORIGINAL;
+                break;
+        }
+        if ((constraints & NetworkConstraints.FLAG_METERED) != 0) {
+            /* every byte may cost money: no speculative traffic, squeeze what is sent */
+            prefetchDepth = Math.min(prefetchDepth, 1);
+            compressionLevel = Math.max(compressionLevel, 6);
+            if (mediaQuality == MediaQuality.ORIGINAL) {
+                mediaQuality = MediaQuality.HIGH;
+            }
+        }
+        if ((constraints & FRUGAL_CONSTRAINTS) != 0) {
+            prefetchDepth = 0;
+            compressionLevel = 9;
+            mediaQuality = MediaQuality.LOW;
+        }
+        return new TransferPolicy(networkType, downstreamTier, upstreamTier, constraints,
+                maxConcurrentRequests, chunkBytesOf(downstreamTier), chunkBytesOf(upstreamTier), prefetchDepth,
+                compressionLevel, mediaQuality);
+    }
+
+    private static int chunkBytesOf(@NonNull Tier tier) {
+        switch (tier) {
+            case OFFLINE:
+            case POOR:
+                return 16 * 1024;
+            case MODERATE:
+                return 64 * 1024;
+            case GOOD:
+                return 256 * 1024;
+            default:
+                return 1024 * 1024;
+        }
+    }
+
+    /**
+     * The default network or its link bandwidth changed, from Lollipop
+     *
+     * @param connected      - whether there is a default network
+     * @param networkType    - {@link ConnectivityBackend} TYPE_ constant
+     * @param downstreamKbps - NetworkCapabilities.getLinkDownstreamBandwidthKbps()
+     * @param upstreamKbps   - NetworkCapabilities.getLinkUpstreamBandwidthKbps()
+     */
+    static void onNetwork(boolean connected, int networkType, int downstreamKbps, int upstreamKbps) {
+        synchronized (TransferPolicy.class) {
+            TransferPolicy.connected        = connected;
+            TransferPolicy.networkType      = networkType;
+            TransferPolicy.downstreamKbps   = downstreamKbps;
+            TransferPolicy.upstreamKbps     = upstreamKbps;
+            recompute();
+        }
+    }
+
+    /**
+     * The active network changed below Lollipop, the bandwidth is guessed from the mobile subtype
+     *
+     * @param networkInfo - active NetworkInfo, may be null
+     * @param networkType - {@link ConnectivityBackend} TYPE_ constant of it
+     */
+    static void onActiveNetworkInfo(@Nullable NetworkInfo networkInfo, int networkType) {
+        boolean connected = networkInfo != null && networkInfo.isConnected();
+        int kbps = 0;
+        if (connected && networkType == ConnectivityBackend.TYPE_MOBILE) {
+            switch (NetworkConnectivityUtil.getMobileConnectionType(networkInfo.getSubtype(), networkInfo.getSubtypeName())) {
+                case NETWORK_2G:
+                    kbps = 50;
+                    break;
+                case NETWORK_3G:
+                    kbps = 700;
+                    break;
+                case NETWORK_4G:
+                    kbps = 5000;
+                    break;
+                default:
+                    break;
+            }
+        }
+        onNetwork(connected, networkType, kbps, kbps);
+    }
+
+    /**
+     * Called by {@link NetworkConstraints} on every change, the bits are read again here so a late call cannot
+     * bring back an older value
+     */
+    static void onConstraints() {
+        synchronized (TransferPolicy.class) {
+            TransferPolicy.constraints = NetworkConstraints.get();
+            recompute();
+        }
+    }
+
+    /* caller holds TransferPolicy.class */
+    private static void recompute() {
+        int relevantConstraints = constraints & RELEVANT_CONSTRAINTS;
+        boolean usable = connected && (relevantConstraints & (NetworkConstraints.FLAG_BLOCKED | NetworkConstraints.FLAG_SUSPENDED)) == 0;
+        Tier downstreamTier = usable ? tierOf(downstreamKbps, networkType) : Tier.OFFLINE;
+        Tier upstreamTier = usable ? tierOf(upstreamKbps, networkType) : Tier.OFFLINE;
+        TransferPolicy policy = current;
+        if (policy.networkTypeInput == networkType && policy.downstreamTier == downstreamTier
+                && policy.upstreamTier == upstreamTier && policy.constraintsInput == relevantConstraints) {
+            return;
+        }
+        policy = compute(connected, networkType, downstreamTier, upstreamTier, relevantConstraints);
+        current = policy;
+        LogcatUtil.informationMessage(TAG, "%s", policy);
+    }
+
+    /**
+     * Tier of the downstream link the policy was made for
+     *
+     * @return Tier, {@link Tier#OFFLINE} without a usable network
+     */
+    @NonNull
+    public Tier getDownstreamTier() {
+        return downstreamTier;
+    }
+
+    @NonNull
+    public Tier getUpstreamTier() {
+        return upstreamTier;
+    }
+
+    /**
+     * Requests to run at the same time
+     *
+     * @return 0 without a usable network
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Size of one range request or read when downloading
+     *
+     * @return bytes
+     */
+    public int getDownloadChunkBytes() {
+        return downloadChunkBytes;
+    }
+
+    /**
+     * Size of one part of a resumable upload
+     *
+     * @return bytes
+     */
+    public int getUploadChunkBytes() {
+        return uploadChunkBytes;
+    }
+
+    /**
+     * Pages or items to load ahead of what the user sees
+     *
+     * @return 0 for no prefetch
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * Compression level of request bodies, same scale as {@link java.util.zip.Deflater}
+     *
+     * @return 1 (fastest) to 9 (smallest)
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    @NonNull
+    public MediaQuality getMediaQuality() {
+        return mediaQuality;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferPolicy{" +
+                "downstreamTier=" + downstreamTier +
+                ", upstreamTier=" + upstreamTier +
+                ", constraints=" + NetworkConstraints.toString(constraintsInput) +
+                ", maxConcurrentRequests=" + maxConcurrentRequests +
+                ", downloadChunkBytes=" + downloadChunkBytes +
+                ", uploadChunkBytes=" + uploadChunkBytes +
+                ", prefetchDepth=" + prefetchDepth +
+                ", compressionLevel=" + compressionLevel +
+                ", mediaQuality=" + mediaQuality +
+                '}';
+    }
+}
@@ -0,0 +1,53 @@
+package com.network.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monotonic counter spread over a few cache-line padded cells, so threads updating it at the same time
+ * rarely touch the same cell. {@link #add(long)} is one atomic add and never allocates, {@link #get()} sums
+ * the cells. LongAdder would do the same but needs API 24.
+ */
+public final class Counter {
+
+    /* power of two, a cell is picked from the low bits of the thread id */
+    private static final int STRIPES = 8;
+    /* 8 longs, one cache line between two used cells */
+    private static final int PADDING = 8;
+
+    private final String name;
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd((int) (Thread.currentThread().getId() & (STRIPES - 1)) * PADDING, delta);
+    }
+
+    /**
+     * Sum of every cell, updates made while summing may or may not be included
+     *
+     * @return value
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return name + '=' + get();
+    }
+}
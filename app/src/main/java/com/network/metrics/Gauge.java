@@ -0,0 +1,8 @@
+package com.network.metrics;
+
+/**
+ * Value computed when a snapshot is taken, e.g. a time that is still running
+ */
+public interface Gauge {
+    long getValue();
+}
@@ -0,0 +1,84 @@
+package com.network.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of non-negative values in fixed power of two buckets: bucket 0 holds 0, bucket n holds
+ * values from 2^(n-1) to 2^n - 1 and the last bucket everything above. Recording is a few atomic
+ * operations and never allocates, percentiles are resolved to the upper bound of a bucket.
+ */
+public final class Histogram {
+
+    public static final int BUCKETS = 40;
+
+    private final String name;
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name, String unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Add one value
+     *
+     * @param value - value in the unit of this histogram, negative values count as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.getAndIncrement(bucketOf(value));
+        sum.getAndAdd(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Add the microseconds elapsed since a {@link System#nanoTime()} reading
+     *
+     * @param startNanos - System.nanoTime() when the measured operation started
+     */
+    public void recordMicrosSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    static int bucketOf(long value) {
+        return Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+    }
+
+    /**
+     * Largest value a bucket holds
+     *
+     * @param bucket - bucket index
+     * @return upper bound, {@link Long#MAX_VALUE} for the last bucket
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket == 0) {
+            return 0;
+        }
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    MetricsSnapshot.HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new MetricsSnapshot.HistogramSnapshot(unit, counts, sum.get(), max.get());
+    }
+}
@@ -0,0 +1,11 @@
+package com.network.metrics;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives every snapshot exported by a {@link MetricsRegistry}, e.g. to upload it or write it to a log.
+ * Called on the export thread, or on the caller of {@link MetricsRegistry#export()}.
+ */
+public interface MetricsExporter {
+    void export(@NonNull MetricsSnapshot snapshot);
+}
@@ -0,0 +1,178 @@
+package com.network.metrics;
+
+import androidx.annotation.NonNull;
+import com.network.util.LogcatUtil;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named counters, gauges and histograms, read together with {@link #snapshot()}.
+ *
+ * <p>Registering a metric takes a lock and allocates, so callers look a metric up once and keep it in a
+ * field. Updating it afterwards is lock-free. Exporters get a snapshot on every {@link #export()}, or
+ * periodically once {@link #setExportIntervalMillis(long)} is set.</p>
+ */
+public final class MetricsRegistry {
+
+    private static final String TAG = MetricsRegistry.class.getSimpleName();
+
+    private final Object lock = new Object();
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+    private final Map<String, Gauge> gauges = new LinkedHashMap<>();
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+    private ScheduledThreadPoolExecutor executor;
+    private ScheduledFuture<?> periodicExport;
+
+    private final Runnable exportTask = new Runnable() {
+        @Override
+        public void run() {
+            export();
+        }
+    };
+
+    /**
+     * Counter of a name, created on the first call
+     *
+     * @param name - metric name
+     * @return Counter
+     */
+    @NonNull
+    public Counter counter(@NonNull String name) {
+        synchronized (lock) {
+            Counter counter = counters.get(name);
+            if (counter == null) {
+                counter = new Counter(name);
+                counters.put(name, counter);
+            }
+            return counter;
+        }
+    }
+
+    /**
+     * Histogram of a name, created on the first call
+     *
+     * @param name - metric name
+     * @param unit - unit of the recorded values, e.g. "us", only used on creation
+     * @return Histogram
+     */
+    @NonNull
+    public Histogram histogram(@NonNull String name, @NonNull String unit) {
+        synchronized (lock) {
+            Histogram histogram = histograms.get(name);
+            if (histogram == null) {
+                histogram = new Histogram(name, unit);
+                histograms.put(name, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * Register a gauge, replacing one of the same name
+     *
+     * @param name  - metric name
+     * @param gauge - Gauge, called on every snapshot
+     */
+    public void gauge(@NonNull String name, @NonNull Gauge gauge) {
+        synchronized (lock) {
+            gauges.put(name, gauge);
+        }
+    }
+
+    /**
+     * Read every metric
+     *
+     * @return MetricsSnapshot
+     */
+    @NonNull
+    public MetricsSnapshot snapshot() {
+        List<Counter> counterList;
+        List<Map.Entry<String, Gauge>> gaugeList;
+        List<Histogram> histogramList;
+        synchronized (lock) {
+            counterList = new ArrayList<>(counters.values());
+            gaugeList = new ArrayList<>(gauges.entrySet());
+            histogramList = new ArrayList<>(histograms.values());
+        }
+        Map<String, Long> counterValues = new TreeMap<>();
+        for (Counter counter : counterList) {
+            counterValues.put(counter.getName(), counter.get());
+        }
+        /* gauges run outside the lock, they may take locks of their own */
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        for (Map.Entry<String, Gauge> entry : gaugeList) {
+            gaugeValues.put(entry.getKey(), entry.getValue().getValue());
+        }
+        Map<String, MetricsSnapshot.HistogramSnapshot> histogramValues = new TreeMap<>();
+        for (Histogram histogram : histogramList) {
+            histogramValues.put(histogram.getName(), histogram.snapshot());
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+    }
+
+    public void addExporter(@NonNull MetricsExporter exporter) {
+        if (!exporters.contains(exporter)) {
+            exporters.add(exporter);
+        }
+    }
+
+    public void removeExporter(@NonNull MetricsExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    /**
+     * Hand one snapshot to every exporter, on the calling thread
+     */
+    public void export() {
+        if (exporters.isEmpty()) {
+            return;
+        }
+        MetricsSnapshot snapshot = snapshot();
+        for (MetricsExporter exporter : exporters) {
+            try {
+                exporter.export(snapshot);
+            } catch (RuntimeException e) {
+                /* one broken exporter must not keep the others from getting the snapshot */
+                LogcatUtil.errorMessage(TAG, "Exporter failed", e);
+            }
+        }
+    }
+
+    /**
+     * Export periodically on a background thread
+     *
+     * @param intervalMillis - interval in milliseconds, 0 stops the periodic export
+     */
+    public void setExportIntervalMillis(long intervalMillis) {
+        synchronized (lock) {
+            if (periodicExport != null) {
+                periodicExport.cancel(false);
+                periodicExport = null;
+            }
+            if (intervalMillis <= 0) {
+                return;
+            }
+            if (executor == null) {
+                executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, TAG);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            periodicExport = executor.scheduleAtFixedRate(exportTask, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
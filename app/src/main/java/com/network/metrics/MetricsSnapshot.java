@@ -0,0 +1,177 @@
+package com.network.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Values of every metric of a {@link MetricsRegistry} at one point in time, sorted by name.
+ */
+public final class MetricsSnapshot {
+
+    private final long timeMillis;
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, HistogramSnapshot> histograms;
+
+    MetricsSnapshot(long timeMillis, @NonNull Map<String, Long> counters, @NonNull Map<String, Long> gauges,
+                    @NonNull Map<String, HistogramSnapshot> histograms) {
+        this.timeMillis = timeMillis;
+        this.counters   = Collections.unmodifiableMap(counters);
+        this.gauges     = Collections.unmodifiableMap(gauges);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * Wall clock time of the snapshot
+     *
+     * @return {@link System#currentTimeMillis()}
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @NonNull
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    @NonNull
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    @NonNull
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * Value of a counter
+     *
+     * @param name - counter name
+     * @return value, 0 if there is no such counter
+     */
+    public long getCounter(@NonNull String name) {
+        Long value = counters.get(name);
+        return value != null ? value : 0;
+    }
+
+    @Nullable
+    public HistogramSnapshot getHistogram(@NonNull String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * Plain text, one metric per line, meant for a bug report
+     *
+     * @return text dump
+     */
+    @NonNull
+    public String toText() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            builder.append("counter ").append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> entry : gauges.entrySet()) {
+            builder.append("gauge ").append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, HistogramSnapshot> entry : histograms.entrySet()) {
+            builder.append("histogram ").append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{" +
+                "counters=" + counters.size() +
+                ", gauges=" + gauges.size() +
+                ", histograms=" + histograms.size() +
+                '}';
+    }
+
+    /**
+     * Bucket counts of a {@link Histogram}
+     */
+    public static final class HistogramSnapshot {
+
+        private final String unit;
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        HistogramSnapshot(@NonNull String unit, @NonNull long[] buckets, long sum, long max) {
+            long count = 0;
+            for (long bucket : buckets) {
+                count += bucket;
+            }
+            this.unit    = unit;
+            this.buckets = buckets;
+            this.count   = count;
+            this.sum     = sum;
+            this.max     = max;
+        }
+
+        @NonNull
+        public String getUnit() {
+            return unit;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Number of values in a bucket, see {@link Histogram} for the bucket bounds
+         *
+         * @param bucket - bucket index, 0 to {@link Histogram#BUCKETS} - 1
+         * @return count
+         */
+        public long getBucket(int bucket) {
+            return buckets[bucket];
+        }
+
+        /**
+         * Upper bound of the bucket holding a percentile, never above the largest value recorded
+         *
+         * @param percentile - 0 to 100
+         * @return value, 0 when the histogram is empty
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(Histogram.upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d %s",
+                    count, getMean(), getPercentile(50), getPercentile(90), getPercentile(99), max, unit);
+        }
+    }
+}
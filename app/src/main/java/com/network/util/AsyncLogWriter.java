@@ -0,0 +1,388 @@
+package com.network.util;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer used by {@link LogcatUtil} in async mode.
+ *
+ * <p>Callers only claim a slot in a preallocated ring buffer and store the raw pieces of the message
+ * (level, tag id, timestamp, message or format and argument references, thread name and optionally a
+ * Throwable holding the caller). A single daemon thread formats them into the usual LogcatUtil line and
+ * hands it to {@link Log}, so arguments passed to the format overloads of LogcatUtil should not be mutated
+ * after the call.</p>
+ *
+ * <p>The buffer is a bounded multi-producer / single-consumer queue: a producer claims a position with one
+ * CAS on {@code tail}, fills the slot and publishes it through the slot sequence, so no lock is taken on
+ * the caller thread. When the buffer is full the {@link DropPolicy} decides what happens.</p>
+ *
+ * <p>On {@link #shutdown(long)} the consumer writes every claimed slot and then closes {@code tail}, a producer
+ * that still held this writer and finds it closed writes on its own thread, so switching writers loses
+ * nothing.</p>
+ */
+public final class AsyncLogWriter {
+
+    private static final String TAG = "AsyncLogWriter";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /* value of tail once the consumer has left, no position can be claimed any more */
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    public enum DropPolicy {
+        /**
+         * Throw the new message away and count it, the caller never waits
+         */
+        DROP_NEWEST,
+
+        /**
+         * Format and write the message on the caller thread, nothing is lost but the caller pays the cost
+         */
+        CALLER_RUNS
+    }
+
+    /**
+     * Where formatted records go, {@link Log} outside of tests
+     */
+    interface Output {
+        void write(int level, String tag, String message, @Nullable Throwable throwable);
+    }
+
+    private static final Output LOG_OUTPUT = new Output() {
+        @Override
+        public void write(int level, String tag, String message, @Nullable Throwable throwable) {
+            AsyncLogWriter.write(level, tag, message, throwable);
+        }
+    };
+
+    private final int capacity;
+    private final int mask;
+    private final DropPolicy dropPolicy;
+    private final boolean captureCallerLocation;
+    private final Output output;
+
+    /* slot sequence, see offer() and drain() */
+    private final AtomicLongArray sequences;
+    private final int[] levels;
+    private final int[] tagIds;
+    private final long[] timestamps;
+    private final String[] messages;
+    private final int[] argCounts;
+    private final Object[] firstArgs;
+    private final Object[] secondArgs;
+    private final Object[][] moreArgs;
+    private final String[] threadNames;
+    private final Throwable[] throwables;
+    private final Throwable[] callers;
+
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final ConcurrentHashMap<String, Integer> tagIdsByTag = new ConcurrentHashMap<>();
+    private volatile String[] tagsById = new String[16];
+    private int tagCount;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private long droppedReported;
+
+    private final Thread consumer;
+    private volatile boolean consumerParked;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity              - number of slots, rounded up to a power of two
+     * @param dropPolicy            - what to do when the buffer is full
+     * @param captureCallerLocation - capture a Throwable per message so the background thread can print file,
+     *                                line and method like the synchronous mode. Cheaper than
+     *                                Thread.getStackTrace() but still the most expensive part of a record.
+     */
+    AsyncLogWriter(int capacity, @NonNull DropPolicy dropPolicy, boolean captureCallerLocation) {
+        this(capacity, dropPolicy, captureCallerLocation, LOG_OUTPUT);
+    }
+
+    @VisibleForTesting
+    AsyncLogWriter(int capacity, @NonNull DropPolicy dropPolicy, boolean captureCallerLocation, @NonNull Output output) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity               = size;
+        this.mask                   = size - 1;
+        this.dropPolicy             = dropPolicy;
+        this.captureCallerLocation  = captureCallerLocation;
+        this.output                 = output;
+
+        sequences   = new AtomicLongArray(size);
+        levels      = new int[size];
+        tagIds      = new int[size];
+        timestamps  = new long[size];
+        messages    = new String[size];
+        argCounts   = new int[size];
+        firstArgs   = new Object[size];
+        secondArgs  = new Object[size];
+        moreArgs    = new Object[size][];
+        threadNames = new String[size];
+        throwables  = new Throwable[size];
+        callers     = new Throwable[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+
+        consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "LogcatUtil-async");
+        consumer.setDaemon(true);
+        consumer.setPriority(Thread.MIN_PRIORITY);
+        consumer.start();
+    }
+
+    /**
+     * Queue a message, called on the logging thread. Format arguments are kept as references and
+     * only formatted on the background thread, see {@link LogcatUtil#formatMessage}.
+     *
+     * @param level     - Log priority, {@link Log#VERBOSE} to {@link Log#ASSERT}
+     * @param tag       - Application Tag.
+     * @param message   - Logging message, or format when argCount is not {@link LogcatUtil#NOT_FORMATTED}
+     * @param argCount  - number of format arguments
+     * @param arg1      - first format argument
+     * @param arg2      - second format argument
+     * @param args      - all format arguments when there are more than two
+     * @param throwable - exception, may be null
+     */
+    void offer(int level, @NonNull String tag, String message, int argCount,
+               Object arg1, Object arg2, Object[] args, @Nullable Throwable throwable) {
+        int tagId = tagId(tag);
+        long position;
+        int index;
+
+        while (true) {
+            position = tail.get();
+            if (position == CLOSED) {
+                /* the consumer has left, e.g. a call that read this writer just before it was replaced */
+                Throwable caller = captureCallerLocation ? new Throwable() : null;
+                writeOnCaller(level, tagId, message, argCount, arg1, arg2, args, throwable, caller);
+                return;
+            }
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+                /* the consumer has not freed this slot yet, the buffer is full */
+                if (dropPolicy == DropPolicy.CALLER_RUNS) {
+                    Throwable caller = captureCallerLocation ? new Throwable() : null;
+                    writeOnCaller(level, tagId, message, argCount, arg1, arg2, args, throwable, caller);
+                } else {
+                    droppedCount.incrementAndGet();
+                }
+                return;
+            }
+        }
+
+        levels[index]       = level;
+        tagIds[index]       = tagId;
+        timestamps[index]   = System.currentTimeMillis();
+        messages[index]     = message;
+        argCounts[index]    = argCount;
+        firstArgs[index]    = arg1;
+        secondArgs[index]   = arg2;
+        moreArgs[index]     = args;
+        threadNames[index]  = Thread.currentThread().getName();
+        throwables[index]   = throwable;
+        callers[index]      = captureCallerLocation ? new Throwable() : null;
+        sequences.lazySet(index, position + 1);
+
+        if (consumerParked) {
+            consumerParked = false;
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Number of messages thrown away because the buffer was full
+     *
+     * @return dropped count since this writer was created
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Stop the background thread after it has written what is already queued. Messages offered from now on
+     * are written on the caller thread.
+     *
+     * @param timeoutMillis - how long to wait for the queue to drain, it keeps draining in the background after
+     */
+    void shutdown(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeOnCaller(int level, int tagId, String message, int argCount, Object arg1, Object arg2,
+                               Object[] args, @Nullable Throwable throwable, @Nullable Throwable caller) {
+        String formatted = LogcatUtil.formatMessage(message, argCount, arg1, arg2, args);
+        output.write(level, tagsById[tagId], format(Thread.currentThread().getName(), caller, formatted, 0), throwable);
+    }
+
+    private int tagId(String tag) {
+        Integer id = tagIdsByTag.get(tag);
+        if (id != null) {
+            return id;
+        }
+        synchronized (tagIdsByTag) {
+            id = tagIdsByTag.get(tag);
+            if (id == null) {
+                String[] tags = tagsById;
+                if (tagCount == tags.length) {
+                    String[] grown = new String[tags.length * 2];
+                    System.arraycopy(tags, 0, grown, 0, tags.length);
+                    tags = grown;
+                }
+                tags[tagCount] = LogcatUtil.getTag23Characters(tag);
+                /* publish the array before the id so a reader that sees the id also sees the tag */
+                tagsById = tags;
+                id = tagCount++;
+                tagIdsByTag.put(tag, id);
+            }
+            return id;
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            boolean drained = drain();
+            reportDropped();
+            if (!drained) {
+                if (!running) {
+                    /* every claimed slot is written, a producer that claims after this finds the writer closed */
+                    long position = tail.get();
+                    if (position == head && tail.compareAndSet(position, CLOSED)) {
+                        return;
+                    }
+                    /* a producer is still filling the slot it claimed */
+                    Thread.yield();
+                    continue;
+                }
+                consumerParked = true;
+                /* check again, a producer may have published before it could see consumerParked */
+                if (!isEmpty()) {
+                    consumerParked = false;
+                    continue;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                consumerParked = false;
+            }
+        }
+    }
+
+    private boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * Write every published record
+     *
+     * @return {@code true} if at least one record was written
+     */
+    private boolean drain() {
+        boolean wroteAny = false;
+        while (true) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                return wroteAny;
+            }
+
+            String tag          = tagsById[tagIds[index]];
+            String message      = LogcatUtil.formatMessage(messages[index], argCounts[index],
+                                                           firstArgs[index], secondArgs[index], moreArgs[index]);
+            String threadName   = threadNames[index];
+            Throwable throwable = throwables[index];
+            Throwable caller    = callers[index];
+            int level           = levels[index];
+            long queuedMillis   = System.currentTimeMillis() - timestamps[index];
+
+            messages[index]     = null;
+            firstArgs[index]    = null;
+            secondArgs[index]   = null;
+            moreArgs[index]     = null;
+            threadNames[index]  = null;
+            throwables[index]   = null;
+            callers[index]      = null;
+            sequences.lazySet(index, head + capacity);
+            head++;
+
+            output.write(level, tag, format(threadName, caller, message, queuedMillis), throwable);
+            wroteAny = true;
+        }
+    }
+
+    private void reportDropped() {
+        long dropped = droppedCount.get();
+        if (dropped != droppedReported) {
+            Log.w(TAG, "Log buffer full, dropped " + (dropped - droppedReported) + " messages (" + dropped + " in total)");
+            droppedReported = dropped;
+        }
+    }
+
+    /**
+     * Same layout as the synchronous mode of {@link LogcatUtil}, plus the time spent in the queue when it is noticeable
+     */
+    private static String format(String threadName, @Nullable Throwable caller, String message, long queuedMillis) {
+        StringBuilder buffer = new StringBuilder(64 + (message != null ? message.length() : 4));
+        buffer.append("[ ");
+        buffer.append(threadName);
+        if (caller != null) {
+            StackTraceElement[] stackTrace = caller.getStackTrace();
+            /* [0] offer(), [1] LogcatUtil.println() or printf(), [2] LogcatUtil public method, [3] caller */
+            if (stackTrace.length > 3) {
+                StackTraceElement stackTraceElement = stackTrace[3];
+                buffer.append(": ");
+                buffer.append(stackTraceElement.getFileName());
+                buffer.append(": ");
+                buffer.append(stackTraceElement.getLineNumber());
+                buffer.append(": ");
+                buffer.append(stackTraceElement.getMethodName());
+                buffer.append("()");
+            }
+        }
+        buffer.append(" ] =======> ");
+        if (queuedMillis > 0) {
+            buffer.append("(+").append(queuedMillis).append("ms) ");
+        }
+        buffer.append(message);
+        return buffer.toString();
+    }
+
+    static void write(int level, String tag, String message, @Nullable Throwable throwable) {
+        if (level == Log.ASSERT) {
+            if (throwable != null) {
+                Log.wtf(tag, message, throwable);
+            } else {
+                Log.wtf(tag, message);
+            }
+        } else if (throwable != null) {
+            Log.println(level, tag, message + '\n' + Log.getStackTraceString(throwable));
+        } else {
+            Log.println(level, tag, message);
+        }
+    }
+}
@@ -2,11 +2,30 @@ package com.network.util;
 
 import android.util.Log;
 import com.network.BuildConfig;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class LogcatUtil {
 
+    /**
+     * Master switch, nothing is logged when false. Release builds that want selective logging set it to
+     * true together with {@link #setDefaultLevel(int)} and {@link #setTagLevel(String, int)}.
+     */
     public static boolean LOG_ENABLE = BuildConfig.DEBUG;
 
+    /**
+     * Level that filters out everything, for {@link #setDefaultLevel(int)} and {@link #setTagLevel(String, int)}
+     */
+    public static final int LEVEL_OFF = Log.ASSERT + 1;
+
+    /* argCount of a plain message, the message is never passed through String.format() */
+    static final int NOT_FORMATTED = -1;
+
+    private static final ConcurrentHashMap<String, Integer> tagLevels = new ConcurrentHashMap<>();
+    private static volatile int defaultLevel = Log.VERBOSE;
+    /* lowest of defaultLevel and all tag levels, lets most filtered calls return without a map lookup */
+    private static volatile int lowestLevel = Log.VERBOSE;
+
     /**
      * Log.isLoggable() will throw an exception if the length of the tag is greater than
      * 23 characters, so trim it if necessary to avoid the exception.
@@ -50,9 +69,156 @@ public class LogcatUtil {
         return tag;
     }
 
+    /*
+     * Thread.getStackTrace() index of the caller of the public method :
+     * [0] VMStack.getThreadStackTrace(), [1] Thread.getStackTrace(), [2] buildMessage(), [3] println() or printf(),
+     * [4] public method
+     */
+    private static final int CALLER_STACK_INDEX = 5;
+
+    private static volatile AsyncLogWriter asyncLogWriter;
+
+    /**
+     * Switch to async mode, messages are queued in a preallocated ring buffer and written to
+     * logcat by a single background thread instead of on the caller thread.
+     *
+     * @param capacity              - ring buffer slots, rounded up to a power of two
+     * @param dropPolicy            - what to do when the buffer is full
+     * @param captureCallerLocation - also print file, line and method of the caller, costs one Throwable per message
+     */
+    public static synchronized void enableAsyncLogging(int capacity, AsyncLogWriter.DropPolicy dropPolicy, boolean captureCallerLocation) {
+        AsyncLogWriter previous = asyncLogWriter;
+        asyncLogWriter = new AsyncLogWriter(capacity, dropPolicy, captureCallerLocation);
+        if (previous != null) {
+            previous.shutdown(1000);
+        }
+    }
+
+    /**
+     * Go back to writing on the caller thread, after what is already queued has been written
+     */
+    public static synchronized void disableAsyncLogging() {
+        AsyncLogWriter previous = asyncLogWriter;
+        asyncLogWriter = null;
+        if (previous != null) {
+            previous.shutdown(1000);
+        }
+    }
+
+    public static boolean isAsyncLoggingEnabled() {
+        return asyncLogWriter != null;
+    }
+
+    /**
+     * Number of messages the async writer threw away because its buffer was full
+     *
+     * @return dropped count, 0 when async mode is off
+     */
+    public static long getDroppedMessageCount() {
+        AsyncLogWriter writer = asyncLogWriter;
+        return writer != null ? writer.getDroppedCount() : 0;
+    }
+
+    /**
+     * Minimum level for tags without their own level, {@link Log#VERBOSE} by default
+     *
+     * @param level - {@link Log#VERBOSE} to {@link Log#ASSERT}, or {@link #LEVEL_OFF}
+     */
+    public static synchronized void setDefaultLevel(int level) {
+        defaultLevel = level;
+        updateLowestLevel();
+    }
+
+    /**
+     * Minimum level for one tag, can be changed at any time
+     *
+     * @param tag   - Application Tag, as passed to the logging methods
+     * @param level - {@link Log#VERBOSE} to {@link Log#ASSERT}, or {@link #LEVEL_OFF}
+     */
+    public static synchronized void setTagLevel(String tag, int level) {
+        tagLevels.put(tag, level);
+        updateLowestLevel();
+    }
+
+    /**
+     * Let a tag follow the default level again
+     *
+     * @param tag - Application Tag
+     */
+    public static synchronized void clearTagLevel(String tag) {
+        tagLevels.remove(tag);
+        updateLowestLevel();
+    }
+
+    private static void updateLowestLevel() {
+        int lowest = defaultLevel;
+        for (Integer level : tagLevels.values()) {
+            lowest = Math.min(lowest, level);
+        }
+        lowestLevel = lowest;
+    }
+
+    /**
+     * Whether a message of this level and tag would be written. Does not allocate.
+     *
+     * @param tag   - Application Tag.
+     * @param level - {@link Log#VERBOSE} to {@link Log#ASSERT}
+     * @return {@code true}: Yes <br>{@code false}: no
+     */
+    public static boolean isLoggable(String tag, int level) {
+        if (!LOG_ENABLE || level < lowestLevel) {
+            return false;
+        }
+        Integer tagLevel = tagLevels.isEmpty() ? null : tagLevels.get(tag);
+        return level >= (tagLevel != null ? tagLevel : defaultLevel);
+    }
+
+    /*
+     * Every public method must call this directly, the stack depth of the caller depends on it
+     */
+    private static void println(int level, String tag, String message, Throwable throwable) {
+        AsyncLogWriter writer = asyncLogWriter;
+        if (writer != null) {
+            writer.offer(level, tag, message, NOT_FORMATTED, null, null, null, throwable);
+        } else {
+            AsyncLogWriter.write(level, getTag23Characters(tag), buildMessage(message), throwable);
+        }
+    }
+
+    /*
+     * Same as println() for the format overloads, the message is only formatted here or on the async writer thread
+     */
+    private static void printf(int level, String tag, String format, int argCount, Object arg1, Object arg2, Object[] args) {
+        AsyncLogWriter writer = asyncLogWriter;
+        if (writer != null) {
+            writer.offer(level, tag, format, argCount, arg1, arg2, args, null);
+        } else {
+            AsyncLogWriter.write(level, getTag23Characters(tag), buildMessage(formatMessage(format, argCount, arg1, arg2, args)), null);
+        }
+    }
+
+    static String formatMessage(String format, int argCount, Object arg1, Object arg2, Object[] args) {
+        if (argCount == NOT_FORMATTED) {
+            return format;
+        }
+        try {
+            if (args != null) {
+                return String.format(Locale.US, format, args);
+            } else if (argCount == 1) {
+                return String.format(Locale.US, format, arg1);
+            } else {
+                return String.format(Locale.US, format, arg1, arg2);
+            }
+        } catch (RuntimeException e) {
+            /* a bad format must never take the app down, log what we have */
+            return format + " [format error: " + e.getMessage() + "]";
+        }
+    }
+
     private static String buildMessage(String message) {
         StringBuilder buffer = new StringBuilder();
-        final StackTraceElement stackTraceElement = Thread.currentThread().getStackTrace()[4];
+        final StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        final StackTraceElement stackTraceElement = stackTrace[Math.min(CALLER_STACK_INDEX, stackTrace.length - 1)];
         buffer.append("[ ");
         buffer.append(Thread.currentThread().getName());
         buffer.append(": ");
@@ -74,9 +240,9 @@ public class LogcatUtil {
      */
     public static void verboseMessage(final String tag, final String message)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.VERBOSE))
         {
-            Log.v(getTag23Characters(tag),  buildMessage(message));
+            println(Log.VERBOSE, tag, message, null);
         }
     }
 
@@ -89,9 +255,69 @@ public class LogcatUtil {
      */
     public static void verboseMessage(final String tag, final String message, final Throwable throwable)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.VERBOSE))
         {
-            Log.v(getTag23Characters(tag), buildMessage(message),throwable);
+            println(Log.VERBOSE, tag, message, throwable);
+        }
+    }
+
+    /**
+     * Verbose Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - format argument.
+     */
+    public static void verboseMessage(final String tag, final String format, final Object arg1)
+    {
+        if (isLoggable(tag, Log.VERBOSE))
+        {
+            printf(Log.VERBOSE, tag, format, 1, arg1, null, null);
+        }
+    }
+
+    /**
+     * Verbose Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - first format argument.
+     * @param arg2   - second format argument.
+     */
+    public static void verboseMessage(final String tag, final String format, final Object arg1, final Object arg2)
+    {
+        if (isLoggable(tag, Log.VERBOSE))
+        {
+            printf(Log.VERBOSE, tag, format, 2, arg1, arg2, null);
+        }
+    }
+
+    /**
+     * Verbose Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param args   - format arguments.
+     */
+    public static void verboseMessage(final String tag, final String format, final Object... args)
+    {
+        if (isLoggable(tag, Log.VERBOSE))
+        {
+            printf(Log.VERBOSE, tag, format, args != null ? args.length : 0, null, null, args);
+        }
+    }
+
+    /**
+     * Verbose Message, the supplier is only called if the message is going to be written.
+     *
+     * @param tag      - Application Tag.
+     * @param supplier - Builds the logging message.
+     */
+    public static void verboseMessage(final String tag, final MessageSupplier supplier)
+    {
+        if (isLoggable(tag, Log.VERBOSE))
+        {
+            println(Log.VERBOSE, tag, supplier.get(), null);
         }
     }
 
@@ -103,9 +329,9 @@ public class LogcatUtil {
      */
     public static void debuggingMessage(final String tag, final String message)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.DEBUG))
         {
-            Log.d(getTag23Characters(tag), buildMessage(message));
+            println(Log.DEBUG, tag, message, null);
         }
     }
 
@@ -118,9 +344,69 @@ public class LogcatUtil {
      */
     public static void debuggingMessage(final String tag, final String message, final Throwable throwable)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.DEBUG))
+        {
+            println(Log.DEBUG, tag, message, throwable);
+        }
+    }
+
+    /**
+     * Debug Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - format argument.
+     */
+    public static void debuggingMessage(final String tag, final String format, final Object arg1)
+    {
+        if (isLoggable(tag, Log.DEBUG))
+        {
+            printf(Log.DEBUG, tag, format, 1, arg1, null, null);
+        }
+    }
+
+    /**
+     * Debug Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - first format argument.
+     * @param arg2   - second format argument.
+     */
+    public static void debuggingMessage(final String tag, final String format, final Object arg1, final Object arg2)
+    {
+        if (isLoggable(tag, Log.DEBUG))
+        {
+            printf(Log.DEBUG, tag, format, 2, arg1, arg2, null);
+        }
+    }
+
+    /**
+     * Debug Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param args   - format arguments.
+     */
+    public static void debuggingMessage(final String tag, final String format, final Object... args)
+    {
+        if (isLoggable(tag, Log.DEBUG))
+        {
+            printf(Log.DEBUG, tag, format, args != null ? args.length : 0, null, null, args);
+        }
+    }
+
+    /**
+     * Debug Message, the supplier is only called if the message is going to be written.
+     *
+     * @param tag      - Application Tag.
+     * @param supplier - Builds the logging message.
+     */
+    public static void debuggingMessage(final String tag, final MessageSupplier supplier)
+    {
+        if (isLoggable(tag, Log.DEBUG))
         {
-            Log.d(getTag23Characters(tag), buildMessage(message),throwable);
+            println(Log.DEBUG, tag, supplier.get(), null);
         }
     }
 
@@ -133,9 +419,9 @@ public class LogcatUtil {
      */
     public static void informationMessage(final String tag, final String message)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.INFO))
         {
-            Log.i(getTag23Characters(tag),  buildMessage(message));
+            println(Log.INFO, tag, message, null);
         }
     }
 
@@ -149,9 +435,69 @@ public class LogcatUtil {
      */
     public static void informationMessage(final String tag, final String message, final Throwable throwable)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.INFO))
         {
-            Log.i(getTag23Characters(tag), buildMessage(message),throwable);
+            println(Log.INFO, tag, message, throwable);
+        }
+    }
+
+    /**
+     * Information Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - format argument.
+     */
+    public static void informationMessage(final String tag, final String format, final Object arg1)
+    {
+        if (isLoggable(tag, Log.INFO))
+        {
+            printf(Log.INFO, tag, format, 1, arg1, null, null);
+        }
+    }
+
+    /**
+     * Information Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - first format argument.
+     * @param arg2   - second format argument.
+     */
+    public static void informationMessage(final String tag, final String format, final Object arg1, final Object arg2)
+    {
+        if (isLoggable(tag, Log.INFO))
+        {
+            printf(Log.INFO, tag, format, 2, arg1, arg2, null);
+        }
+    }
+
+    /**
+     * Information Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param args   - format arguments.
+     */
+    public static void informationMessage(final String tag, final String format, final Object... args)
+    {
+        if (isLoggable(tag, Log.INFO))
+        {
+            printf(Log.INFO, tag, format, args != null ? args.length : 0, null, null, args);
+        }
+    }
+
+    /**
+     * Information Message, the supplier is only called if the message is going to be written.
+     *
+     * @param tag      - Application Tag.
+     * @param supplier - Builds the logging message.
+     */
+    public static void informationMessage(final String tag, final MessageSupplier supplier)
+    {
+        if (isLoggable(tag, Log.INFO))
+        {
+            println(Log.INFO, tag, supplier.get(), null);
         }
     }
 
@@ -163,9 +509,9 @@ public class LogcatUtil {
      */
     public static void warningMessage(final String tag, final String message)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.WARN))
         {
-            Log.w(getTag23Characters(tag),  buildMessage(message));
+            println(Log.WARN, tag, message, null);
         }
     }
 
@@ -178,9 +524,69 @@ public class LogcatUtil {
      */
     public static void warningMessage(final String tag, final String message, final Throwable throwable)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.WARN))
+        {
+            println(Log.WARN, tag, message, throwable);
+        }
+    }
+
+    /**
+     * Warning Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - format argument.
+     */
+    public static void warningMessage(final String tag, final String format, final Object arg1)
+    {
+        if (isLoggable(tag, Log.WARN))
+        {
+            printf(Log.WARN, tag, format, 1, arg1, null, null);
+        }
+    }
+
+    /**
+     * Warning Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - first format argument.
+     * @param arg2   - second format argument.
+     */
+    public static void warningMessage(final String tag, final String format, final Object arg1, final Object arg2)
+    {
+        if (isLoggable(tag, Log.WARN))
+        {
+            printf(Log.WARN, tag, format, 2, arg1, arg2, null);
+        }
+    }
+
+    /**
+     * Warning Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param args   - format arguments.
+     */
+    public static void warningMessage(final String tag, final String format, final Object... args)
+    {
+        if (isLoggable(tag, Log.WARN))
+        {
+            printf(Log.WARN, tag, format, args != null ? args.length : 0, null, null, args);
+        }
+    }
+
+    /**
+     * Warning Message, the supplier is only called if the message is going to be written.
+     *
+     * @param tag      - Application Tag.
+     * @param supplier - Builds the logging message.
+     */
+    public static void warningMessage(final String tag, final MessageSupplier supplier)
+    {
+        if (isLoggable(tag, Log.WARN))
         {
-            Log.w(getTag23Characters(tag), buildMessage(message),throwable);
+            println(Log.WARN, tag, supplier.get(), null);
         }
     }
 
@@ -192,9 +598,9 @@ public class LogcatUtil {
      */
     public static void errorMessage(final String tag, final String message)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.ERROR))
         {
-            Log.e(getTag23Characters(tag),  buildMessage(message));
+            println(Log.ERROR, tag, message, null);
         }
     }
 
@@ -207,9 +613,69 @@ public class LogcatUtil {
      */
     public static void errorMessage(final String tag, final String message, final Throwable throwable)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.ERROR))
         {
-            Log.w(getTag23Characters(tag), buildMessage(message),throwable);
+            println(Log.ERROR, tag, message, throwable);
+        }
+    }
+
+    /**
+     * Error Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - format argument.
+     */
+    public static void errorMessage(final String tag, final String format, final Object arg1)
+    {
+        if (isLoggable(tag, Log.ERROR))
+        {
+            printf(Log.ERROR, tag, format, 1, arg1, null, null);
+        }
+    }
+
+    /**
+     * Error Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - first format argument.
+     * @param arg2   - second format argument.
+     */
+    public static void errorMessage(final String tag, final String format, final Object arg1, final Object arg2)
+    {
+        if (isLoggable(tag, Log.ERROR))
+        {
+            printf(Log.ERROR, tag, format, 2, arg1, arg2, null);
+        }
+    }
+
+    /**
+     * Error Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param args   - format arguments.
+     */
+    public static void errorMessage(final String tag, final String format, final Object... args)
+    {
+        if (isLoggable(tag, Log.ERROR))
+        {
+            printf(Log.ERROR, tag, format, args != null ? args.length : 0, null, null, args);
+        }
+    }
+
+    /**
+     * Error Message, the supplier is only called if the message is going to be written.
+     *
+     * @param tag      - Application Tag.
+     * @param supplier - Builds the logging message.
+     */
+    public static void errorMessage(final String tag, final MessageSupplier supplier)
+    {
+        if (isLoggable(tag, Log.ERROR))
+        {
+            println(Log.ERROR, tag, supplier.get(), null);
         }
     }
 
@@ -222,9 +688,9 @@ public class LogcatUtil {
      */
     public static void wtfMessage(final String tag, final String message)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.ASSERT))
         {
-            Log.wtf(getTag23Characters(tag),  buildMessage(message));
+            println(Log.ASSERT, tag, message, null);
         }
     }
 
@@ -239,9 +705,69 @@ public class LogcatUtil {
 
     public static void wtfMessage(final String tag, final String message, final Throwable throwable)
     {
-        if (LOG_ENABLE)
+        if (isLoggable(tag, Log.ASSERT))
+        {
+            println(Log.ASSERT, tag, message, throwable);
+        }
+    }
+
+    /**
+     * wtf Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - format argument.
+     */
+    public static void wtfMessage(final String tag, final String format, final Object arg1)
+    {
+        if (isLoggable(tag, Log.ASSERT))
+        {
+            printf(Log.ASSERT, tag, format, 1, arg1, null, null);
+        }
+    }
+
+    /**
+     * wtf Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param arg1   - first format argument.
+     * @param arg2   - second format argument.
+     */
+    public static void wtfMessage(final String tag, final String format, final Object arg1, final Object arg2)
+    {
+        if (isLoggable(tag, Log.ASSERT))
+        {
+            printf(Log.ASSERT, tag, format, 2, arg1, arg2, null);
+        }
+    }
+
+    /**
+     * wtf Message, formatted with {@link String#format} only if it is going to be written.
+     *
+     * @param tag    - Application Tag.
+     * @param format - Logging message format.
+     * @param args   - format arguments.
+     */
+    public static void wtfMessage(final String tag, final String format, final Object... args)
+    {
+        if (isLoggable(tag, Log.ASSERT))
+        {
+            printf(Log.ASSERT, tag, format, args != null ? args.length : 0, null, null, args);
+        }
+    }
+
+    /**
+     * wtf Message, the supplier is only called if the message is going to be written.
+     *
+     * @param tag      - Application Tag.
+     * @param supplier - Builds the logging message.
+     */
+    public static void wtfMessage(final String tag, final MessageSupplier supplier)
+    {
+        if (isLoggable(tag, Log.ASSERT))
         {
-            Log.wtf(getTag23Characters(tag),  buildMessage(message),throwable);
+            println(Log.ASSERT, tag, supplier.get(), null);
         }
     }
 
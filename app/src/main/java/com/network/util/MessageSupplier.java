@@ -0,0 +1,9 @@
+package com.network.util;
+
+/**
+ * Builds a log message on demand, see the supplier overloads of {@link LogcatUtil}.
+ * java.util.function.Supplier needs API 24, this works down to the project's minSdk.
+ */
+public interface MessageSupplier {
+    String get();
+}
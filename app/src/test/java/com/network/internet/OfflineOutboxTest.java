@@ -0,0 +1,261 @@
+package com.network.internet;
+
+import com.network.util.LogcatUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Crash recovery of {@link OfflineOutbox}: a crash is simulated by closing the outbox and damaging the segment
+ * file the way a lost page would, then opening it again.
+ */
+public class OfflineOutboxTest {
+
+    /* layout of a segment: 16 byte segment header, then records of a 16 byte header (length, crc, sequence) */
+    private static final int FIRST_RECORD = 16;
+    private static final int RECORD_HEADER = 16;
+
+    private File directory;
+    private final List<OfflineOutbox> opened = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        LogcatUtil.LOG_ENABLE = false;
+        directory = Files.createTempDirectory("outbox").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (OfflineOutbox outbox : opened) {
+            outbox.close();
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void reopenKeepsPendingRecordsInOrder() throws Exception {
+        OfflineOutbox outbox = open(new RecordingSender());
+        outbox.enqueue(payload(1, 10));
+        outbox.enqueue(payload(2, 20));
+        outbox.enqueue(payload(3, 30));
+        outbox.close();
+
+        RecordingSender sender = new RecordingSender();
+        OfflineOutbox reopened = open(sender);
+        assertEquals(3, reopened.getPendingCount());
+        replayAndWait(reopened);
+        assertEquals(Arrays.asList(1L, 2L, 3L), sender.sequences);
+        assertArrayEquals(payload(2, 20), sender.payloads.get(1));
+        assertEquals(4, reopened.enqueue(payload(4, 10)));
+    }
+
+    @Test
+    public void tornPayloadTruncatesFromThatRecord() throws Exception {
+        OfflineOutbox outbox = open(new RecordingSender());
+        outbox.enqueue(payload(1, 10));
+        outbox.enqueue(payload(2, 10));
+        outbox.enqueue(payload(3, 10));
+        outbox.close();
+
+        /* the page holding the second payload never reached the disk */
+        int second = FIRST_RECORD + RECORD_HEADER + 10;
+        writeByte(segmentFile(), second + RECORD_HEADER + 3, 0x55);
+
+        RecordingSender sender = new RecordingSender();
+        OfflineOutbox reopened = open(sender);
+        assertEquals(1, reopened.getPendingCount());
+        assertEquals(2, reopened.enqueue(payload(9, 10)));
+        replayAndWait(reopened);
+        assertEquals(Arrays.asList(1L, 2L), sender.sequences);
+        assertArrayEquals(payload(9, 10), sender.payloads.get(1));
+    }
+
+    @Test
+    public void tornHeaderIsCaughtByTheChecksum() throws Exception {
+        OfflineOutbox outbox = open(new RecordingSender());
+        outbox.enqueue(payload(1, 10));
+        outbox.enqueue(payload(2, 10));
+        outbox.close();
+
+        /* half of the sequence of the second record is from another write, it still grows */
+        int second = FIRST_RECORD + RECORD_HEADER + 10;
+        writeByte(segmentFile(), second + 8 + 3, 0x7f);
+
+        OfflineOutbox reopened = open(new RecordingSender());
+        assertEquals(1, reopened.getPendingCount());
+        assertEquals(2, reopened.enqueue(payload(3, 10)));
+    }
+
+    @Test
+    public void recordsBehindALostLengthDoNotComeBack() throws Exception {
+        OfflineOutbox outbox = open(new RecordingSender());
+        outbox.enqueue(payload(1, 10));
+        outbox.enqueue(payload(2, 10));
+        outbox.enqueue(payload(3, 10));
+        outbox.close();
+
+        /* the length of the second record was lost, the third one made it */
+        int second = FIRST_RECORD + RECORD_HEADER + 10;
+        writeInt(segmentFile(), second, 0);
+
+        OfflineOutbox reopened = open(new RecordingSender());
+        assertEquals(1, reopened.getPendingCount());
+        /* same size as the lost record, so the old third record lines up right behind it */
+        reopened.enqueue(payload(7, 10));
+        reopened.close();
+
+        RecordingSender sender = new RecordingSender();
+        OfflineOutbox again = open(sender);
+        assertEquals(2, again.getPendingCount());
+        replayAndWait(again);
+        assertEquals(Arrays.asList(1L, 2L), sender.sequences);
+        assertArrayEquals(payload(7, 10), sender.payloads.get(1));
+    }
+
+    @Test
+    public void compactionDeletesAcknowledgedSegments() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        OfflineOutbox outbox = open(sender);
+        int large = OfflineOutbox.SEGMENT_SIZE / 2 + 1;
+        outbox.enqueue(payload(1, large));
+        outbox.enqueue(payload(2, large));
+        outbox.enqueue(payload(3, large));
+        assertEquals(3, outbox.getSegmentCount());
+
+        replayAndWait(outbox);
+        assertEquals(Arrays.asList(1L, 2L, 3L), sender.sequences);
+        /* compaction runs on the replay thread after the last acknowledgement, the segment being written is kept */
+        waitForSegments(outbox, 1);
+        outbox.close();
+
+        OfflineOutbox reopened = open(new RecordingSender());
+        assertEquals(0, reopened.getPendingCount());
+        assertEquals(4, reopened.enqueue(payload(4, 10)));
+    }
+
+    @Test
+    public void refusedRecordsStayPending() throws Exception {
+        RecordingSender sender = new RecordingSender();
+        sender.acceptCount = 1;
+        OfflineOutbox outbox = open(sender);
+        outbox.enqueue(payload(1, 10));
+        outbox.enqueue(payload(2, 10));
+        outbox.replay();
+        waitFor(outbox, 1);
+        outbox.close();
+
+        RecordingSender next = new RecordingSender();
+        OfflineOutbox reopened = open(next);
+        assertEquals(1, reopened.getPendingCount());
+        replayAndWait(reopened);
+        assertEquals(Arrays.asList(2L), next.sequences);
+    }
+
+    private OfflineOutbox open(OfflineOutbox.Sender sender) throws IOException {
+        OfflineOutbox outbox = OfflineOutbox.open(directory, sender);
+        opened.add(outbox);
+        return outbox;
+    }
+
+    private static void replayAndWait(OfflineOutbox outbox) throws InterruptedException {
+        outbox.replay();
+        waitFor(outbox, 0);
+    }
+
+    private static void waitFor(OfflineOutbox outbox, long pending) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outbox.getPendingCount() > pending && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(pending, outbox.getPendingCount());
+    }
+
+    /* the files are deleted right after the segments leave the list */
+    private void waitForSegments(OfflineOutbox outbox, int segments) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((outbox.getSegmentCount() > segments || segmentFiles().length > segments)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(segments, outbox.getSegmentCount());
+        assertEquals(segments, segmentFiles().length);
+    }
+
+    private File segmentFile() {
+        File[] files = segmentFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private File[] segmentFiles() {
+        File[] files = directory.listFiles();
+        List<File> segments = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(".seg")) {
+                    segments.add(file);
+                }
+            }
+        }
+        return segments.toArray(new File[segments.size()]);
+    }
+
+    private static byte[] payload(int value, int length) {
+        byte[] payload = new byte[length];
+        Arrays.fill(payload, (byte) value);
+        return payload;
+    }
+
+    private static void writeByte(File file, long position, int value) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(position);
+            randomAccessFile.write(value);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void writeInt(File file, long position, int value) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(position);
+            randomAccessFile.writeInt(value);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static final class RecordingSender implements OfflineOutbox.Sender {
+
+        final List<Long> sequences = new ArrayList<>();
+        final List<byte[]> payloads = new ArrayList<>();
+        int acceptCount = Integer.MAX_VALUE;
+
+        @Override
+        public synchronized boolean send(long sequence, byte[] payload) {
+            if (sequences.size() >= acceptCount) {
+                return false;
+            }
+            sequences.add(sequence);
+            payloads.add(payload);
+            return true;
+        }
+    }
+}
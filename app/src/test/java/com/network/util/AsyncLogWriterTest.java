@@ -0,0 +1,201 @@
+package com.network.util;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The ring buffer of {@link AsyncLogWriter} with several producers: every record is written once when it has
+ * room, the drop count is exact when it has not, and nothing is lost around a shutdown.
+ */
+public class AsyncLogWriterTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int MESSAGES = 5000;
+
+    @Test
+    public void writesEveryRecordOnceWhenNotFull() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        AsyncLogWriter writer = new AsyncLogWriter(PRODUCERS * MESSAGES, AsyncLogWriter.DropPolicy.DROP_NEWEST,
+                false, output);
+
+        produce(writer, PRODUCERS, MESSAGES);
+        writer.shutdown(5000);
+
+        assertEquals(0, writer.getDroppedCount());
+        assertWrittenOnceInOrder(output, PRODUCERS, MESSAGES);
+    }
+
+    @Test
+    public void wrapsAroundWithoutLossWhileTheConsumerKeepsUp() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        AsyncLogWriter writer = new AsyncLogWriter(64, AsyncLogWriter.DropPolicy.DROP_NEWEST, false, output);
+
+        /* far more messages than slots, only dropped ones may be missing */
+        produce(writer, PRODUCERS, MESSAGES);
+        writer.shutdown(5000);
+
+        Map<String, Integer> counts = output.counts();
+        for (Integer count : counts.values()) {
+            assertEquals(1, (int) count);
+        }
+        assertEquals(PRODUCERS * MESSAGES, counts.size() + writer.getDroppedCount());
+    }
+
+    @Test
+    public void countsEveryDropWhenFull() throws Exception {
+        BlockingOutput output = new BlockingOutput();
+        AsyncLogWriter writer = new AsyncLogWriter(16, AsyncLogWriter.DropPolicy.DROP_NEWEST, false, output);
+        writer.offer(Log.INFO, "Test", "first", LogcatUtil.NOT_FORMATTED, null, null, null, null);
+        /* the consumer holds the first record, all 16 slots are free and nothing frees them */
+        assertTrue(output.entered.await(5, TimeUnit.SECONDS));
+
+        produce(writer, PRODUCERS, MESSAGES);
+        assertEquals(PRODUCERS * MESSAGES - writer.getCapacity(), writer.getDroppedCount());
+
+        output.release.countDown();
+        writer.shutdown(5000);
+        assertEquals(1 + writer.getCapacity(), output.messages.size());
+    }
+
+    @Test
+    public void callerRunsWhenFull() throws Exception {
+        BlockingOutput output = new BlockingOutput();
+        AsyncLogWriter writer = new AsyncLogWriter(16, AsyncLogWriter.DropPolicy.CALLER_RUNS, false, output);
+        writer.offer(Log.INFO, "Test", "first", LogcatUtil.NOT_FORMATTED, null, null, null, null);
+        assertTrue(output.entered.await(5, TimeUnit.SECONDS));
+
+        produce(writer, PRODUCERS, MESSAGES);
+        /* the held first record and every record that found no slot */
+        assertEquals(1 + PRODUCERS * MESSAGES - writer.getCapacity(), output.messages.size());
+
+        output.release.countDown();
+        writer.shutdown(5000);
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(1 + PRODUCERS * MESSAGES, output.messages.size());
+    }
+
+    @Test
+    public void nothingIsLostAroundShutdown() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            RecordingOutput output = new RecordingOutput();
+            final AsyncLogWriter writer = new AsyncLogWriter(PRODUCERS * MESSAGES,
+                    AsyncLogWriter.DropPolicy.DROP_NEWEST, false, output);
+            Thread stopper = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writer.shutdown(5000);
+                }
+            });
+
+            /* producers still holding the writer while it shuts down, like a call racing disableAsyncLogging() */
+            List<Thread> producers = startProducers(writer, PRODUCERS, MESSAGES);
+            stopper.start();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            stopper.join();
+
+            assertEquals(0, writer.getDroppedCount());
+            assertWrittenOnceInOrder(output, PRODUCERS, MESSAGES);
+        }
+    }
+
+    private static void produce(AsyncLogWriter writer, int producers, int messages) throws InterruptedException {
+        for (Thread producer : startProducers(writer, producers, messages)) {
+            producer.join();
+        }
+    }
+
+    private static List<Thread> startProducers(final AsyncLogWriter writer, int producers, final int messages) {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < messages; i++) {
+                        writer.offer(Log.INFO, "Test", producer + ":" + i, LogcatUtil.NOT_FORMATTED,
+                                null, null, null, null);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        return threads;
+    }
+
+    private static void assertWrittenOnceInOrder(RecordingOutput output, int producers, int messages) {
+        int[] next = new int[producers];
+        for (String message : output.messages) {
+            String[] parts = message.split(":");
+            int producer = Integer.parseInt(parts[0]);
+            assertEquals(next[producer], Integer.parseInt(parts[1]));
+            next[producer]++;
+        }
+        for (int producer = 0; producer < producers; producer++) {
+            assertEquals(messages, next[producer]);
+        }
+    }
+
+    /* the message without the thread and queue time prefix */
+    private static String body(String line) {
+        return line.substring(line.lastIndexOf(' ') + 1);
+    }
+
+    private static class RecordingOutput implements AsyncLogWriter.Output {
+
+        final ConcurrentLinkedQueue<String> messages = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void write(int level, String tag, String message, Throwable throwable) {
+            messages.add(body(message));
+        }
+
+        Map<String, Integer> counts() {
+            Map<String, Integer> counts = new HashMap<>();
+            for (String message : messages) {
+                Integer count = counts.get(message);
+                counts.put(message, count == null ? 1 : count + 1);
+            }
+            return counts;
+        }
+    }
+
+    /* holds the consumer in its first write until released, records written on callers go through */
+    private static final class BlockingOutput extends RecordingOutput {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void write(int level, String tag, String message, Throwable throwable) {
+            super.write(level, tag, message, throwable);
+            if (Thread.currentThread().getName().equals("LogcatUtil-async") && entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.network.internet;
+
+import androidx.annotation.NonNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Callback-to-listener cost of {@link ConnectivityEventBus#publish}, per number of subscribers, with
+ * subscribers called inline or handed to the monitor thread executor.
+ * Compare with NetworkStateChangeReceiverBenchmark, which still goes through an Intent.
+ */
+@State(Scope.Benchmark)
+public class ConnectivityEventBusBenchmark {
+
+    @Param({"1", "8", "32"})
+    public int subscribers;
+
+    @Param({"inline", "monitorThread"})
+    public String delivery;
+
+    private ConnectivityEventListener[] listeners;
+    private ConnectivitySnapshot snapshot;
+    private volatile long delivered;
+    private boolean available;
+
+    @Setup
+    public void setUp() {
+        FakeNetworkState state = new FakeNetworkState(FakeNetworkState.WIFI);
+        snapshot = ConnectivitySnapshot.from(state.network, state.networkCapabilities, state.networkInfo);
+        listeners = new ConnectivityEventListener[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            listeners[i] = new ConnectivityEventListener() {
+                @Override
+                public void onConnectivityEvent(@NonNull ConnectivityEvent event) {
+                    delivered += event.isAvailable() ? 1 : 2;
+                }
+            };
+            ConnectivityEventBus.subscribe(listeners[i], "inline".equals(delivery) ? null : ConnectivityExecutors.monitorThread());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (ConnectivityEventListener listener : listeners) {
+            ConnectivityEventBus.unsubscribe(listener);
+        }
+    }
+
+    @Benchmark
+    public long publish() {
+        available = !available;
+        ConnectivityEventBus.publish(available ? ConnectivityStateMachine.State.CONNECTED : ConnectivityStateMachine.State.DISCONNECTED,
+                snapshot, 1);
+        return delivered;
+    }
+}
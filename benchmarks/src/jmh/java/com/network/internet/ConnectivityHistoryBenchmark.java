@@ -0,0 +1,41 @@
+package com.network.internet;
+
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of recording one network callback in {@link ConnectivityHistory}, gc.alloc.rate.norm should be 0.
+ * Persistence stays off, the ring just wraps.
+ */
+@State(Scope.Benchmark)
+public class ConnectivityHistoryBenchmark {
+
+    private Network network;
+    private NetworkCapabilities networkCapabilities;
+
+    @Setup
+    public void setUp() {
+        network = new Network(100);
+        networkCapabilities = new NetworkCapabilities()
+                .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)
+                .setLinkDownstreamBandwidthKbps(30000)
+                .setLinkUpstreamBandwidthKbps(10000);
+    }
+
+    @Benchmark
+    public void recordCapabilitiesChanged() {
+        ConnectivityHistory.getInstance().record(ConnectivityHistory.TYPE_CAPABILITIES_CHANGED, network, networkCapabilities, 0);
+    }
+
+    @Benchmark
+    public void recordLost() {
+        ConnectivityHistory.getInstance().record(ConnectivityHistory.TYPE_LOST, network, null, 0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.network.internet;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiManager;
+import android.telephony.TelephonyManager;
+
+/**
+ * Builds a fake {@link Context} whose system services describe one connected network.
+ */
+final class FakeNetworkState {
+
+    static final String WIFI     = "wifi";
+    static final String CELLULAR = "cellular";
+    static final String NONE     = "none";
+
+    final Context context = new Context();
+    final ConnectivityManager connectivityManager = new ConnectivityManager();
+    final Network network = new Network(100);
+    NetworkCapabilities networkCapabilities;
+    NetworkInfo networkInfo;
+
+    FakeNetworkState(String transport) {
+        context.putSystemService(Context.CONNECTIVITY_SERVICE, connectivityManager);
+        context.putSystemService(Context.TELEPHONY_SERVICE, new TelephonyManager());
+        context.putSystemService(Context.WIFI_SERVICE, new WifiManager());
+
+        if (WIFI.equals(transport))
+        {
+            networkCapabilities = new NetworkCapabilities()
+                    .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+            networkInfo = new NetworkInfo(ConnectivityManager.TYPE_WIFI, 0, "", null, NetworkInfo.State.CONNECTED);
+        }
+        else if (CELLULAR.equals(transport))
+        {
+            networkCapabilities = new NetworkCapabilities()
+                    .addTransportType(NetworkCapabilities.TRANSPORT_CELLULAR)
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+            networkInfo = new NetworkInfo(ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_LTE,
+                    "LTE", "cmnet", NetworkInfo.State.CONNECTED);
+        }
+
+        if (networkCapabilities != null)
+        {
+            connectivityManager.putNetwork(network, networkCapabilities, networkInfo);
+        }
+    }
+
+    /**
+     * The same state without system services behind it
+     */
+    InMemoryConnectivityBackend inMemoryBackend() {
+        int type = ConnectivityBackend.TYPE_NONE;
+        if (networkCapabilities != null)
+        {
+            type = networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)
+                    ? ConnectivityBackend.TYPE_WIFI
+                    : ConnectivityBackend.TYPE_MOBILE;
+        }
+        return new InMemoryConnectivityBackend().setActiveNetwork(type, networkInfo, networkCapabilities != null);
+    }
+
+    /**
+     * Publish the snapshot NetworkCallbackImpl would have published for this state
+     */
+    void publishSnapshot() {
+        if (networkCapabilities != null)
+        {
+            ConnectivitySnapshot.publish(ConnectivitySnapshot.from(network, networkCapabilities, networkInfo));
+        }
+        else
+        {
+            ConnectivitySnapshot.publish(ConnectivitySnapshot.DISCONNECTED);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.network.internet;
+
+import android.app.Activity;
+import android.net.ConnectivityManager;
+import android.os.Build;
+import android.telephony.TelephonyManager;
+import com.network.fake.FakeBinder;
+import com.network.util.LogcatUtil;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Collections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Every public method of {@link NetworkConnectivityUtil}, per API tier, transport and with or without
+ * a published {@link ConnectivitySnapshot}.
+ *
+ *   ./gradlew :benchmarks:jmh -Pjmh.includes=NetworkConnectivityUtilBenchmark
+ */
+@State(Scope.Benchmark)
+public class NetworkConnectivityUtilBenchmark {
+
+    /* Q: NetworkCapabilities path, LOLLIPOP: getAllNetworks() path, KITKAT: NetworkInfo path */
+    @Param({"29", "21", "19"})
+    public int sdkInt;
+
+    @Param({FakeNetworkState.WIFI, FakeNetworkState.CELLULAR, FakeNetworkState.NONE})
+    public String transport;
+
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    /* platform: the backend of the API tier over the fake system services, in-memory: InMemoryConnectivityBackend */
+    @Param({"platform", "in-memory"})
+    public String backend;
+
+    /* simulated cost of one binder call into system_server */
+    @Param({"0"})
+    public long binderCostNanos;
+
+    private FakeNetworkState state;
+    private Activity activity;
+    /* below Marshmallow hasInternetConnection() probes, keep that on loopback */
+    private ServerSocket probeEndpoint;
+
+    @Setup
+    public void setUp() throws IOException {
+        Build.VERSION.SDK_INT = sdkInt;
+        FakeBinder.reset();
+        FakeBinder.costNanos = binderCostNanos;
+        LogcatUtil.LOG_ENABLE = false;
+
+        state = new FakeNetworkState(transport);
+        ConnectivityBackends.install("in-memory".equals(backend) ? state.inMemoryBackend() : null);
+        activity = new Activity();
+        probeEndpoint = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ReachabilityProber.getInstance().setEndpoints(Collections.singletonList(
+                "tcp://127.0.0.1:" + probeEndpoint.getLocalPort()));
+        ReachabilityProber.getInstance().setTtlMillis(Long.MAX_VALUE / 2, Long.MAX_VALUE / 2);
+        ReachabilityProber.getInstance().invalidateAll();
+        if (snapshot)
+        {
+            state.publishSnapshot();
+        }
+        else
+        {
+            ConnectivitySnapshot.clear();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ConnectivitySnapshot.clear();
+        ConnectivityBackends.install(null);
+        FakeBinder.reset();
+        probeEndpoint.close();
+        ReachabilityProber.getInstance().setEndpoints(ReachabilityProber.DEFAULT_ENDPOINTS);
+        ReachabilityProber.getInstance().setTtlMillis(ReachabilityProber.DEFAULT_VALIDATED_TTL_MILLIS,
+                ReachabilityProber.DEFAULT_FAILED_TTL_MILLIS);
+    }
+
+    @Benchmark
+    public void openWirelessSettings() {
+        NetworkConnectivityUtil.openWirelessSettings(activity);
+    }
+
+    @Benchmark
+    public void openSetting() {
+        NetworkConnectivityUtil.openSetting(activity);
+    }
+
+    @Benchmark
+    public boolean getDataEnabled() {
+        return NetworkConnectivityUtil.getDataEnabled(state.context);
+    }
+
+    @Benchmark
+    public void setDataEnabled() {
+        NetworkConnectivityUtil.setDataEnabled(state.context, true);
+    }
+
+    @Benchmark
+    public boolean getWifiEnabled() {
+        return NetworkConnectivityUtil.getWifiEnabled(state.context);
+    }
+
+    @Benchmark
+    public void setWifiEnabled() {
+        NetworkConnectivityUtil.setWifiEnabled(state.context, true);
+    }
+
+    @Benchmark
+    public String getNetworkOperatorName() {
+        return NetworkConnectivityUtil.getNetworkOperatorName(state.context);
+    }
+
+    @Benchmark
+    public int getPhoneType() {
+        return NetworkConnectivityUtil.getPhoneType(state.context);
+    }
+
+    @Benchmark
+    public String getDomainAddress() {
+        return NetworkConnectivityUtil.getDomainAddress("localhost");
+    }
+
+    @Benchmark
+    public boolean isNetWorkAvailable() {
+        return NetworkConnectivityUtil.isNetWorkAvailable(state.context);
+    }
+
+    @Benchmark
+    public boolean isConnected() {
+        return NetworkConnectivityUtil.isConnected(state.context);
+    }
+
+    @Benchmark
+    public int getNetworkType() {
+        return NetworkConnectivityUtil.getNetworkType(state.context);
+    }
+
+    @Benchmark
+    public boolean isMobileConnected() {
+        return NetworkConnectivityUtil.isMobileConnected(state.context);
+    }
+
+    @Benchmark
+    public boolean isWifiConnected() {
+        return NetworkConnectivityUtil.isWifiConnected(state.context);
+    }
+
+    @Benchmark
+    public boolean isConnectedFast() {
+        return NetworkConnectivityUtil.isConnectedFast(state.context);
+    }
+
+    @Benchmark
+    public boolean isConnectionFast() {
+        return NetworkConnectivityUtil.isConnectionFast(ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_HSPA);
+    }
+
+    @Benchmark
+    public boolean isConnectionFastApiLevel7() {
+        return NetworkConnectivityUtil.isConnectionFastApiLevel7(ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_HSPA);
+    }
+
+    @Benchmark
+    public NetworkConnectivityUtil.InternetConnectionType getInternetConnectionType() {
+        return NetworkConnectivityUtil.getInternetConnectionType(state.context);
+    }
+
+    @Benchmark
+    public boolean is4G() {
+        return NetworkConnectivityUtil.is4G(state.context);
+    }
+
+    @Benchmark
+    public boolean isConnectedAll() {
+        return NetworkConnectivityUtil.isConnectedAll(state.context);
+    }
+
+    @Benchmark
+    public boolean hasInternetConnection() {
+        return NetworkConnectivityUtil.hasInternetConnection(state.context);
+    }
+
+    @Benchmark
+    public boolean isMobileConnectAll() {
+        return NetworkConnectivityUtil.isMobileConnectAll(state.context);
+    }
+
+    @Benchmark
+    public boolean isWifiConnectAll() {
+        return NetworkConnectivityUtil.isWifiConnectAll(state.context);
+    }
+
+    @Benchmark
+    public boolean isConnectedNew() {
+        return NetworkConnectivityUtil.isConnectedNew(state.context);
+    }
+
+    @Benchmark
+    public int getNetworkTypeNew() {
+        return NetworkConnectivityUtil.getNetworkTypeNew(state.context);
+    }
+
+    @Benchmark
+    public boolean isMobileConnectedNew() {
+        return NetworkConnectivityUtil.isMobileConnectedNew(state.context);
+    }
+
+    @Benchmark
+    public boolean isWifiConnectedNew() {
+        return NetworkConnectivityUtil.isWifiConnectedNew(state.context);
+    }
+}
@@ -0,0 +1,66 @@
+package com.network.internet;
+
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.os.Build;
+import com.network.util.LogcatUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of one {@link NetworkStateChangeReceiver#onReceive} dispatch, from Intent to listener.
+ * The settle window is 0 so every edge is published inline, repeated intents with the same state
+ * measure the cost of a suppressed duplicate. Only CONNECTIVITY_ACTION reaches the state machine.
+ */
+@State(Scope.Benchmark)
+public class NetworkStateChangeReceiverBenchmark {
+
+    @Param({"false", "true"})
+    public boolean logEnabled;
+
+    private FakeNetworkState state;
+    private NetworkStateChangeReceiver receiver;
+    private Intent connectivityIntent;
+    private int notifications;
+
+    @Setup
+    public void setUp() {
+        Build.VERSION.SDK_INT = Build.VERSION_CODES.Q;
+        LogcatUtil.LOG_ENABLE = logEnabled;
+        state = new FakeNetworkState(FakeNetworkState.WIFI);
+        receiver = new NetworkStateChangeReceiver();
+        ConnectivityStateMachine.getInstance().setSettleWindowMillis(0);
+        ConnectivityStateMachine.getInstance().reset();
+
+        connectivityIntent = new Intent(ConnectivityManager.CONNECTIVITY_ACTION);
+
+        NetworkStateChangeReceiver.setNetworkStateChangeListener(new NetworkStateChangeListener() {
+            @Override
+            public void networkAvailable() {
+                notifications++;
+            }
+
+            @Override
+            public void networkUnavailable() {
+                notifications--;
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        NetworkStateChangeReceiver.setNetworkStateChangeListener(null);
+        ConnectivityStateMachine.getInstance().setSettleWindowMillis(ConnectivityStateMachine.DEFAULT_SETTLE_WINDOW_MILLIS);
+        LogcatUtil.LOG_ENABLE = false;
+    }
+
+    @Benchmark
+    public int connectivityAction() {
+        receiver.onReceive(state.context, connectivityIntent);
+        return notifications;
+    }
+}
@@ -0,0 +1,61 @@
+package com.network.internet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of {@link OfflineOutbox#enqueue(byte[])} with many payloads already waiting, the sender never
+ * accepts anything so the journal only grows.
+ */
+@State(Scope.Benchmark)
+public class OfflineOutboxBenchmark {
+
+    @Param({"0", "20000"})
+    public int pending;
+
+    @Param({"64", "1024"})
+    public int payloadSize;
+
+    private File directory;
+    private OfflineOutbox offlineOutbox;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("outbox").toFile();
+        offlineOutbox = OfflineOutbox.open(directory, new OfflineOutbox.Sender() {
+            @Override
+            public boolean send(long sequence, byte[] payload) {
+                return false;
+            }
+        });
+        payload = new byte[payloadSize];
+        for (int i = 0; i < pending; i++) {
+            offlineOutbox.enqueue(payload);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        offlineOutbox.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public long enqueue() throws IOException {
+        return offlineOutbox.enqueue(payload);
+    }
+}
@@ -0,0 +1,65 @@
+package com.network.internet;
+
+import android.net.TrafficStats;
+import com.network.util.LogcatUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * What a {@link TrafficAccounting} scope adds around a request, alone and with threads sharing a feature,
+ * and the cost of one sample with a number of features.
+ *
+ *   ./gradlew :benchmarks:jmh -Pjmh.includes=TrafficAccountingBenchmark
+ */
+@State(Scope.Benchmark)
+public class TrafficAccountingBenchmark {
+
+    @Param({"1", "16"})
+    public int features;
+
+    private TrafficAccounting.Feature feature;
+
+    @Setup
+    public void setUp() {
+        LogcatUtil.LOG_ENABLE = false;
+        TrafficAccounting accounting = TrafficAccounting.getInstance();
+        for (int i = 0; i < features; i++) {
+            feature = accounting.feature("feature" + i);
+        }
+        accounting.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        TrafficAccounting.getInstance().stop();
+    }
+
+    @Benchmark
+    public int scope() {
+        int previousTag = feature.enter();
+        feature.exit(previousTag);
+        return previousTag;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int scopeShared() {
+        int previousTag = feature.enter();
+        feature.exit(previousTag);
+        return previousTag;
+    }
+
+    @Benchmark
+    public void sample() {
+        TrafficStats.uidRxBytes += 1500;
+        TrafficStats.uidTxBytes += 100;
+        int previousTag = feature.enter();
+        TrafficAccounting.getInstance().sampleNow();
+        feature.exit(previousTag);
+    }
+}
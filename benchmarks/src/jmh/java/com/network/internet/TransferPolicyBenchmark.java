@@ -0,0 +1,47 @@
+package com.network.internet;
+
+import com.network.util.LogcatUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Reading the {@link TransferPolicy} from many threads, and feeding it bandwidth updates that stay within
+ * a tier (no recompute) or cross one (recompute).
+ *
+ *   ./gradlew :benchmarks:jmh -Pjmh.includes=TransferPolicyBenchmark
+ */
+@State(Scope.Benchmark)
+public class TransferPolicyBenchmark {
+
+    private int kbps;
+
+    @Setup
+    public void setUp() {
+        LogcatUtil.LOG_ENABLE = false;
+        TransferPolicy.onNetwork(true, ConnectivityBackend.TYPE_WIFI, 20000, 5000);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int current() {
+        return TransferPolicy.current().getMaxConcurrentRequests();
+    }
+
+    @Benchmark
+    public TransferPolicy sameTier() {
+        /* 2000..9999 kbps is always GOOD */
+        kbps = kbps < 9000 ? kbps + 1000 : 2000;
+        TransferPolicy.onNetwork(true, ConnectivityBackend.TYPE_WIFI, kbps, kbps);
+        return TransferPolicy.current();
+    }
+
+    @Benchmark
+    public TransferPolicy tierChange() {
+        kbps = kbps == 500 ? 20000 : 500;
+        TransferPolicy.onNetwork(true, ConnectivityBackend.TYPE_WIFI, kbps, kbps);
+        return TransferPolicy.current();
+    }
+}
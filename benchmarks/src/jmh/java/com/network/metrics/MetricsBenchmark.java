@@ -0,0 +1,36 @@
+package com.network.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Cost of updating a {@link Counter} and a {@link Histogram} from several threads at once,
+ * gc.alloc.rate.norm should be 0.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class MetricsBenchmark {
+
+    private Counter counter;
+    private Histogram histogram;
+
+    @Setup
+    public void setUp() {
+        MetricsRegistry registry = new MetricsRegistry();
+        counter = registry.counter("benchmark.counter");
+        histogram = registry.histogram("benchmark.histogram", "us");
+    }
+
+    @Benchmark
+    public void increment() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void record() {
+        histogram.record(137);
+    }
+}
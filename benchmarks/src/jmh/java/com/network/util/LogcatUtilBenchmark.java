@@ -0,0 +1,84 @@
+package com.network.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of a {@link LogcatUtil} call on the caller thread, including buildMessage() when logging is
+ * enabled and the ring buffer hand-off in async mode, written the way the connectivity callbacks call it.
+ */
+@State(Scope.Benchmark)
+public class LogcatUtilBenchmark {
+
+    private static final String TAG = "NetworkCallbackImpl";
+    private static final String FILTERED_TAG = "NetworkStateChangeReceiver";
+
+    @Param({"false", "true"})
+    public boolean logEnabled;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    private boolean isInternet;
+
+    @Setup
+    public void setUp() {
+        LogcatUtil.LOG_ENABLE = logEnabled;
+        LogcatUtil.setTagLevel(FILTERED_TAG, LogcatUtil.LEVEL_OFF);
+        if (async)
+        {
+            LogcatUtil.enableAsyncLogging(4096, AsyncLogWriter.DropPolicy.DROP_NEWEST, false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        LogcatUtil.disableAsyncLogging();
+        LogcatUtil.clearTagLevel(FILTERED_TAG);
+        LogcatUtil.LOG_ENABLE = false;
+    }
+
+    @Benchmark
+    public void constantMessage() {
+        LogcatUtil.informationMessage(TAG, "Network Available (CONNECTED)");
+    }
+
+    @Benchmark
+    public void concatenatedMessage() {
+        isInternet = !isInternet;
+        LogcatUtil.informationMessage(TAG, "onCapabilitiesChanged : isInternet = " + isInternet);
+    }
+
+    @Benchmark
+    public void formattedMessage() {
+        isInternet = !isInternet;
+        LogcatUtil.informationMessage(TAG, "onCapabilitiesChanged : isInternet = %s", isInternet);
+    }
+
+    @Benchmark
+    public void suppliedMessage() {
+        isInternet = !isInternet;
+        LogcatUtil.informationMessage(TAG, new MessageSupplier() {
+            @Override
+            public String get() {
+                return "onCapabilitiesChanged : isInternet = " + isInternet;
+            }
+        });
+    }
+
+    /* release configuration: logging on, INFO and above for one other tag only */
+    @Benchmark
+    public void formattedMessageFilteredByTag() {
+        isInternet = !isInternet;
+        LogcatUtil.informationMessage(FILTERED_TAG, "onCapabilitiesChanged : isInternet = %s", isInternet);
+    }
+
+    @Benchmark
+    public String getTag23Characters() {
+        return LogcatUtil.getTag23Characters("RegisterAndUnregisterNetworkReceiver");
+    }
+}
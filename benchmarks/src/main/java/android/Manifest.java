@@ -0,0 +1,12 @@
+package android;
+
+public final class Manifest {
+    public static final class permission {
+        public static final String ACCESS_NETWORK_STATE = "android.permission.ACCESS_NETWORK_STATE";
+        public static final String ACCESS_WIFI_STATE    = "android.permission.ACCESS_WIFI_STATE";
+        public static final String CHANGE_WIFI_STATE    = "android.permission.CHANGE_WIFI_STATE";
+        public static final String INTERNET             = "android.permission.INTERNET";
+        public static final String MODIFY_PHONE_STATE   = "android.permission.MODIFY_PHONE_STATE";
+        public static final String READ_PHONE_STATE     = "android.permission.READ_PHONE_STATE";
+    }
+}
@@ -0,0 +1,17 @@
+package android.app;
+
+import android.content.Context;
+import android.content.Intent;
+
+public class Activity extends Context {
+
+    public Intent lastStartedIntent;
+
+    public void startActivity(Intent intent) {
+        lastStartedIntent = intent;
+    }
+
+    public void startActivityForResult(Intent intent, int requestCode) {
+        lastStartedIntent = intent;
+    }
+}
@@ -0,0 +1,28 @@
+package android.content;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fake Context, system services are whatever the benchmark put in with {@link #putSystemService(String, Object)}.
+ */
+public class Context {
+
+    public static final String CONNECTIVITY_SERVICE = "connectivity";
+    public static final String TELEPHONY_SERVICE    = "phone";
+    public static final String WIFI_SERVICE         = "wifi";
+
+    private final Map<String, Object> services = new HashMap<>();
+
+    public Object getSystemService(String name) {
+        return services.get(name);
+    }
+
+    public void putSystemService(String name, Object service) {
+        services.put(name, service);
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+}
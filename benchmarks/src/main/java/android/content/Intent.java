@@ -0,0 +1,58 @@
+package android.content;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class Intent {
+
+    public static final int FLAG_ACTIVITY_NEW_TASK = 0x10000000;
+
+    private String action;
+    private int flags;
+    private ComponentName component;
+    private final Map<String, Object> extras = new HashMap<>();
+
+    public Intent() {
+    }
+
+    public Intent(String action) {
+        this.action = action;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Intent setAction(String action) {
+        this.action = action;
+        return this;
+    }
+
+    public Intent setFlags(int flags) {
+        this.flags = flags;
+        return this;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public Intent setComponent(ComponentName component) {
+        this.component = component;
+        return this;
+    }
+
+    public ComponentName getComponent() {
+        return component;
+    }
+
+    public Intent putExtra(String name, boolean value) {
+        extras.put(name, value);
+        return this;
+    }
+
+    public boolean getBooleanExtra(String name, boolean defaultValue) {
+        Object value = extras.get(name);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+}
@@ -0,0 +1,112 @@
+package android.net;
+
+import com.network.fake.FakeBinder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fake ConnectivityManager backed by in-memory maps. Every query goes through {@link FakeBinder#transact()}
+ * so a benchmark can give it the cost of a real binder call.
+ */
+public class ConnectivityManager {
+
+    public static final String CONNECTIVITY_ACTION    = "android.net.conn.CONNECTIVITY_CHANGE";
+    public static final String EXTRA_NO_CONNECTIVITY  = "noConnectivity";
+    public static final String ACTION_RESTRICT_BACKGROUND_CHANGED = "android.net.conn.RESTRICT_BACKGROUND_CHANGED";
+
+    public static final int RESTRICT_BACKGROUND_STATUS_DISABLED    = 1;
+    public static final int RESTRICT_BACKGROUND_STATUS_WHITELISTED = 2;
+    public static final int RESTRICT_BACKGROUND_STATUS_ENABLED     = 3;
+
+    public static final int TYPE_MOBILE   = 0;
+    public static final int TYPE_WIFI     = 1;
+    public static final int TYPE_ETHERNET = 9;
+    public static final int TYPE_VPN      = 17;
+
+    public static class NetworkCallback {
+        public void onAvailable(Network network) {}
+        public void onLosing(Network network, int maxMsToLive) {}
+        public void onLost(Network network) {}
+        public void onUnavailable() {}
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {}
+        public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {}
+        public void onBlockedStatusChanged(Network network, boolean blocked) {}
+    }
+
+    private final Map<Network, NetworkCapabilities> capabilities = new LinkedHashMap<>();
+    private final Map<Network, NetworkInfo> networkInfos = new LinkedHashMap<>();
+    private Network activeNetwork;
+    private int restrictBackgroundStatus = RESTRICT_BACKGROUND_STATUS_DISABLED;
+
+    /**
+     * Add or replace a network, the first one added becomes the active network.
+     */
+    public void putNetwork(Network network, NetworkCapabilities networkCapabilities, NetworkInfo networkInfo) {
+        capabilities.put(network, networkCapabilities);
+        networkInfos.put(network, networkInfo);
+        if (activeNetwork == null)
+        {
+            activeNetwork = network;
+        }
+    }
+
+    public void setActiveNetwork(Network network) {
+        activeNetwork = network;
+    }
+
+    public void setRestrictBackgroundStatus(int restrictBackgroundStatus) {
+        this.restrictBackgroundStatus = restrictBackgroundStatus;
+    }
+
+    public void clearNetworks() {
+        capabilities.clear();
+        networkInfos.clear();
+        activeNetwork = null;
+    }
+
+    public Network getActiveNetwork() {
+        FakeBinder.transact();
+        return activeNetwork;
+    }
+
+    public NetworkInfo getActiveNetworkInfo() {
+        FakeBinder.transact();
+        return activeNetwork != null ? networkInfos.get(activeNetwork) : null;
+    }
+
+    public NetworkInfo getNetworkInfo(Network network) {
+        FakeBinder.transact();
+        return networkInfos.get(network);
+    }
+
+    public NetworkInfo[] getAllNetworkInfo() {
+        FakeBinder.transact();
+        return networkInfos.values().toArray(new NetworkInfo[0]);
+    }
+
+    public Network[] getAllNetworks() {
+        FakeBinder.transact();
+        return capabilities.keySet().toArray(new Network[0]);
+    }
+
+    public NetworkCapabilities getNetworkCapabilities(Network network) {
+        FakeBinder.transact();
+        return network != null ? capabilities.get(network) : null;
+    }
+
+    public boolean isActiveNetworkMetered() {
+        FakeBinder.transact();
+        NetworkCapabilities networkCapabilities = activeNetwork != null ? capabilities.get(activeNetwork) : null;
+        return networkCapabilities == null || !networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+    }
+
+    public LinkProperties getLinkProperties(Network network) {
+        FakeBinder.transact();
+        return null;
+    }
+
+    public int getRestrictBackgroundStatus() {
+        FakeBinder.transact();
+        return restrictBackgroundStatus;
+    }
+}
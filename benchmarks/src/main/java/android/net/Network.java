@@ -0,0 +1,59 @@
+package android.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.UnknownHostException;
+import javax.net.SocketFactory;
+
+/**
+ * Off-device every network goes through the JVM's own resolver and sockets.
+ */
+public class Network {
+
+    private final int netId;
+
+    public Network(int netId) {
+        this.netId = netId;
+    }
+
+    public long getNetworkHandle() {
+        return netId;
+    }
+
+    public InetAddress[] getAllByName(String host) throws UnknownHostException {
+        return InetAddress.getAllByName(host);
+    }
+
+    public InetAddress getByName(String host) throws UnknownHostException {
+        return InetAddress.getByName(host);
+    }
+
+    public URLConnection openConnection(URL url) throws IOException {
+        return url.openConnection();
+    }
+
+    public SocketFactory getSocketFactory() {
+        return SocketFactory.getDefault();
+    }
+
+    public void bindSocket(Socket socket) throws IOException {
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Network && ((Network) obj).netId == netId;
+    }
+
+    @Override
+    public int hashCode() {
+        return netId * 11;
+    }
+
+    @Override
+    public String toString() {
+        return Integer.toString(netId);
+    }
+}
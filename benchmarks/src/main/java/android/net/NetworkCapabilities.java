@@ -0,0 +1,68 @@
+package android.net;
+
+/**
+ * Fake NetworkCapabilities, transports and capabilities are plain bit sets filled in by the benchmark.
+ */
+public class NetworkCapabilities {
+
+    public static final int TRANSPORT_CELLULAR = 0;
+    public static final int TRANSPORT_WIFI     = 1;
+    public static final int TRANSPORT_BLUETOOTH = 2;
+    public static final int TRANSPORT_ETHERNET = 3;
+    public static final int TRANSPORT_VPN      = 4;
+
+    public static final int NET_CAPABILITY_NOT_METERED   = 11;
+    public static final int NET_CAPABILITY_INTERNET      = 12;
+    public static final int NET_CAPABILITY_NOT_RESTRICTED = 13;
+    public static final int NET_CAPABILITY_NOT_VPN       = 15;
+    public static final int NET_CAPABILITY_VALIDATED     = 16;
+    public static final int NET_CAPABILITY_CAPTIVE_PORTAL = 17;
+    public static final int NET_CAPABILITY_NOT_ROAMING   = 18;
+    public static final int NET_CAPABILITY_NOT_SUSPENDED = 21;
+
+    private long transports;
+    private long capabilities;
+    private int linkDownstreamBandwidthKbps;
+    private int linkUpstreamBandwidthKbps;
+
+    public NetworkCapabilities addTransportType(int transportType) {
+        transports |= 1L << transportType;
+        return this;
+    }
+
+    public NetworkCapabilities addCapability(int capability) {
+        capabilities |= 1L << capability;
+        return this;
+    }
+
+    public NetworkCapabilities removeCapability(int capability) {
+        capabilities &= ~(1L << capability);
+        return this;
+    }
+
+    public NetworkCapabilities setLinkDownstreamBandwidthKbps(int kbps) {
+        linkDownstreamBandwidthKbps = kbps;
+        return this;
+    }
+
+    public NetworkCapabilities setLinkUpstreamBandwidthKbps(int kbps) {
+        linkUpstreamBandwidthKbps = kbps;
+        return this;
+    }
+
+    public boolean hasTransport(int transportType) {
+        return (transports & (1L << transportType)) != 0;
+    }
+
+    public boolean hasCapability(int capability) {
+        return (capabilities & (1L << capability)) != 0;
+    }
+
+    public int getLinkDownstreamBandwidthKbps() {
+        return linkDownstreamBandwidthKbps;
+    }
+
+    public int getLinkUpstreamBandwidthKbps() {
+        return linkUpstreamBandwidthKbps;
+    }
+}
@@ -0,0 +1,58 @@
+package android.net;
+
+public class NetworkInfo {
+
+    public enum State {
+        CONNECTING, CONNECTED, SUSPENDED, DISCONNECTING, DISCONNECTED, UNKNOWN
+    }
+
+    private final int type;
+    private final int subtype;
+    private final String subtypeName;
+    private final String extraInfo;
+    private final State state;
+
+    public NetworkInfo(int type, int subtype, String subtypeName, String extraInfo, State state) {
+        this.type = type;
+        this.subtype = subtype;
+        this.subtypeName = subtypeName;
+        this.extraInfo = extraInfo;
+        this.state = state;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getSubtype() {
+        return subtype;
+    }
+
+    public String getSubtypeName() {
+        return subtypeName;
+    }
+
+    public String getExtraInfo() {
+        return extraInfo;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isAvailable() {
+        return state != State.UNKNOWN;
+    }
+
+    public boolean isConnected() {
+        return state == State.CONNECTED;
+    }
+
+    public boolean isConnectedOrConnecting() {
+        return state == State.CONNECTED || state == State.CONNECTING;
+    }
+
+    public boolean isRoaming() {
+        return false;
+    }
+}
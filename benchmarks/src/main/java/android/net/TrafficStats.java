@@ -0,0 +1,45 @@
+package android.net;
+
+/**
+ * Counters only move when a benchmark moves them.
+ */
+public class TrafficStats {
+
+    public static final long UNSUPPORTED = -1;
+
+    public static volatile long totalRxBytes;
+    public static volatile long totalTxBytes;
+    public static volatile long uidRxBytes;
+    public static volatile long uidTxBytes;
+
+    private static final ThreadLocal<Integer> threadStatsTag = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    };
+
+    public static long getTotalRxBytes() {
+        return totalRxBytes;
+    }
+
+    public static long getTotalTxBytes() {
+        return totalTxBytes;
+    }
+
+    public static long getUidRxBytes(int uid) {
+        return uidRxBytes;
+    }
+
+    public static long getUidTxBytes(int uid) {
+        return uidTxBytes;
+    }
+
+    public static int getThreadStatsTag() {
+        return threadStatsTag.get();
+    }
+
+    public static void setThreadStatsTag(int tag) {
+        threadStatsTag.set(tag);
+    }
+}
@@ -0,0 +1,22 @@
+package android.net.wifi;
+
+import com.network.fake.FakeBinder;
+
+public class WifiManager {
+
+    public static final String NETWORK_STATE_CHANGED_ACTION = "android.net.wifi.STATE_CHANGE";
+    public static final String WIFI_STATE_CHANGED_ACTION    = "android.net.wifi.WIFI_STATE_CHANGED";
+
+    private boolean wifiEnabled = true;
+
+    public boolean isWifiEnabled() {
+        FakeBinder.transact();
+        return wifiEnabled;
+    }
+
+    public boolean setWifiEnabled(boolean enabled) {
+        FakeBinder.transact();
+        wifiEnabled = enabled;
+        return true;
+    }
+}
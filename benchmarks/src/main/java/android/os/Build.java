@@ -0,0 +1,29 @@
+package android.os;
+
+/**
+ * SDK_INT is deliberately not a constant, so a benchmark can run every API tier branch.
+ */
+public class Build {
+
+    public static final String MANUFACTURER = "fake";
+
+    public static class VERSION {
+        public static int SDK_INT = VERSION_CODES.Q;
+    }
+
+    public static class VERSION_CODES {
+        public static final int JELLY_BEAN     = 16;
+        public static final int JELLY_BEAN_MR1 = 17;
+        public static final int JELLY_BEAN_MR2 = 18;
+        public static final int KITKAT         = 19;
+        public static final int LOLLIPOP       = 21;
+        public static final int LOLLIPOP_MR1   = 22;
+        public static final int M              = 23;
+        public static final int N              = 24;
+        public static final int N_MR1          = 25;
+        public static final int O              = 26;
+        public static final int O_MR1          = 27;
+        public static final int P              = 28;
+        public static final int Q              = 29;
+    }
+}
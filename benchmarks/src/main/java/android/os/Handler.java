@@ -0,0 +1,58 @@
+package android.os;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posted work runs on one shared daemon thread, enough for the delayed work the library schedules.
+ */
+public class Handler {
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "fake-looper");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Map<Runnable, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable runnable) {
+        return postDelayed(runnable, 0);
+    }
+
+    public final boolean postDelayed(final Runnable runnable, long delayMillis) {
+        pending.put(runnable, EXECUTOR.schedule(new Runnable() {
+            @Override
+            public void run() {
+                pending.remove(runnable);
+                runnable.run();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS));
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable runnable) {
+        ScheduledFuture<?> future = pending.remove(runnable);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    public final Looper getLooper() {
+        return Looper.getMainLooper();
+    }
+}
@@ -0,0 +1,28 @@
+package android.os;
+
+/**
+ * Only the handle the library asks for, the fake {@link Handler} does not use the thread.
+ */
+public class HandlerThread extends Thread {
+
+    public HandlerThread(String name) {
+        super(name);
+        setDaemon(true);
+    }
+
+    public HandlerThread(String name, int priority) {
+        this(name);
+    }
+
+    @Override
+    public void run() {
+    }
+
+    public Looper getLooper() {
+        return Looper.getMainLooper();
+    }
+
+    public boolean quit() {
+        return true;
+    }
+}
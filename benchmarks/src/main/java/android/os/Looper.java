@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * There is no message loop off-device, {@link Handler} runs posted work on a background thread instead.
+ */
+public final class Looper {
+
+    private static final Looper MAIN = new Looper();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    /* no thread runs a loop here, so work handed to a Handler is always posted */
+    public static Looper myLooper() {
+        return null;
+    }
+}
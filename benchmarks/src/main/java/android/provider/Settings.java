@@ -0,0 +1,6 @@
+package android.provider;
+
+public final class Settings {
+    public static final String ACTION_SETTINGS          = "android.settings.SETTINGS";
+    public static final String ACTION_WIRELESS_SETTINGS = "android.settings.WIRELESS_SETTINGS";
+}
@@ -0,0 +1,57 @@
+package android.telephony;
+
+import com.network.fake.FakeBinder;
+
+public class TelephonyManager {
+
+    public static final int PHONE_TYPE_NONE = 0;
+    public static final int PHONE_TYPE_GSM  = 1;
+    public static final int PHONE_TYPE_CDMA = 2;
+    public static final int PHONE_TYPE_SIP  = 3;
+
+    public static final int NETWORK_TYPE_UNKNOWN = 0;
+    public static final int NETWORK_TYPE_GPRS    = 1;
+    public static final int NETWORK_TYPE_EDGE    = 2;
+    public static final int NETWORK_TYPE_UMTS    = 3;
+    public static final int NETWORK_TYPE_CDMA    = 4;
+    public static final int NETWORK_TYPE_EVDO_0  = 5;
+    public static final int NETWORK_TYPE_EVDO_A  = 6;
+    public static final int NETWORK_TYPE_1xRTT   = 7;
+    public static final int NETWORK_TYPE_HSDPA   = 8;
+    public static final int NETWORK_TYPE_HSUPA   = 9;
+    public static final int NETWORK_TYPE_HSPA    = 10;
+    public static final int NETWORK_TYPE_IDEN    = 11;
+    public static final int NETWORK_TYPE_EVDO_B  = 12;
+    public static final int NETWORK_TYPE_LTE     = 13;
+    public static final int NETWORK_TYPE_EHRPD   = 14;
+    public static final int NETWORK_TYPE_HSPAP   = 15;
+
+    private boolean dataEnabled = true;
+
+    public String getNetworkOperatorName() {
+        FakeBinder.transact();
+        return "Fake Operator";
+    }
+
+    public int getPhoneType() {
+        FakeBinder.transact();
+        return PHONE_TYPE_GSM;
+    }
+
+    public boolean isDataEnabled() {
+        FakeBinder.transact();
+        return dataEnabled;
+    }
+
+    /* Hidden API on real devices, MobileDataAccess reaches it through reflection */
+    public boolean getDataEnabled() {
+        FakeBinder.transact();
+        return dataEnabled;
+    }
+
+    /* Hidden API on real devices, MobileDataAccess reaches it through reflection */
+    public void setDataEnabled(boolean enabled) {
+        FakeBinder.transact();
+        dataEnabled = enabled;
+    }
+}
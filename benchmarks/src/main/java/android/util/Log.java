@@ -0,0 +1,45 @@
+package android.util;
+
+/**
+ * Fake Log, keeps the last message so the formatting work cannot be optimised away.
+ */
+public final class Log {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG   = 3;
+    public static final int INFO    = 4;
+    public static final int WARN    = 5;
+    public static final int ERROR   = 6;
+    public static final int ASSERT  = 7;
+
+    public static volatile String lastMessage;
+
+    public static int println(int priority, String tag, String msg) {
+        lastMessage = msg;
+        return msg.length();
+    }
+
+    public static int v(String tag, String msg) { return println(VERBOSE, tag, msg); }
+    public static int v(String tag, String msg, Throwable tr) { return println(VERBOSE, tag, msg); }
+    public static int d(String tag, String msg) { return println(DEBUG, tag, msg); }
+    public static int d(String tag, String msg, Throwable tr) { return println(DEBUG, tag, msg); }
+    public static int i(String tag, String msg) { return println(INFO, tag, msg); }
+    public static int i(String tag, String msg, Throwable tr) { return println(INFO, tag, msg); }
+    public static int w(String tag, String msg) { return println(WARN, tag, msg); }
+    public static int w(String tag, String msg, Throwable tr) { return println(WARN, tag, msg); }
+    public static int e(String tag, String msg) { return println(ERROR, tag, msg); }
+    public static int e(String tag, String msg, Throwable tr) { return println(ERROR, tag, msg); }
+    public static int wtf(String tag, String msg) { return println(ASSERT, tag, msg); }
+    public static int wtf(String tag, String msg, Throwable tr) { return println(ASSERT, tag, msg); }
+
+    public static boolean isLoggable(String tag, int level) {
+        return level >= INFO;
+    }
+
+    public static String getStackTraceString(Throwable tr) {
+        return tr == null ? "" : tr.toString();
+    }
+
+    private Log() {
+    }
+}
@@ -0,0 +1,8 @@
+package com.network;
+
+/**
+ * Replaces the class generated by the Android build.
+ */
+public final class BuildConfig {
+    public static final boolean DEBUG = false;
+}
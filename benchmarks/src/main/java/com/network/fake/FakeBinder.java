@@ -0,0 +1,40 @@
+package com.network.fake;
+
+/**
+ * Stand-in for the cost of a binder call into system_server.
+ * Every fake system service method calls {@link #transact()}, which spins for {@link #costNanos}.
+ * Leave it at 0 to measure only the library code, set it to a few microseconds to see what
+ * avoiding the IPC is worth.
+ */
+public final class FakeBinder {
+
+    public static volatile long costNanos = 0;
+
+    private static volatile long transactions;
+
+    public static void transact() {
+        transactions++;
+        long cost = costNanos;
+        if (cost > 0)
+        {
+            long deadline = System.nanoTime() + cost;
+            while (System.nanoTime() < deadline) {
+                /* busy wait, like a caller blocked on the binder driver */
+            }
+        }
+    }
+
+    public static long getTransactions() {
+        return transactions;
+    }
+
+    public static void reset() {
+        costNanos = 0;
+        transactions = 0;
+    }
+
+    private FakeBinder() {
+        throw new UnsupportedOperationException(
+                "Should not create instance of Util class. Please use as static..");
+    }
+}